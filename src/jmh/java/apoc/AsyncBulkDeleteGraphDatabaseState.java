@@ -0,0 +1,16 @@
+package apoc;
+
+import org.neo4j.helpers.collection.MapUtil;
+
+import java.util.Map;
+
+public class AsyncBulkDeleteGraphDatabaseState extends BulkDeleteGraphDatabaseState {
+
+    @Override
+    public Map<String, String> getGraphDatabaseConfig() {
+        return MapUtil.genericMap("apoc.autoIndex.enabled", "true",
+                "apoc.autoIndex.async", "true",
+                "apoc.autoIndex.configUpdateInterval", "-1");
+    }
+
+}
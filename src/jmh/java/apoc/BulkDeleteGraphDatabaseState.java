@@ -0,0 +1,12 @@
+package apoc;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+
+public class BulkDeleteGraphDatabaseState extends SyncIndexingGraphDatabaseState {
+
+    @Override
+    void setupGraphDatabase(GraphDatabaseService graphDatabaseService) {
+        super.setupGraphDatabase(graphDatabaseService);
+        graphDatabaseService.execute("UNWIND range(1,10000) AS i CREATE (:Person{name:'myname_'+i})-[:KNOWS]->(:Person{name:'friend_'+i})").close();
+    }
+}
@@ -28,6 +28,21 @@ public class IndexUpdateBenchmarks {
         populateDb( state, 10000 );
     }
 
+    @Benchmark
+    public void detachDelete20kIndexedSyncNodes(BulkDeleteGraphDatabaseState state) {
+        detachDeleteAll( state );
+    }
+
+    @Benchmark
+    public void detachDelete20kIndexedAsyncNodes(AsyncBulkDeleteGraphDatabaseState state) {
+        detachDeleteAll( state );
+    }
+
+    private void detachDeleteAll( GraphDatabaseState state )
+    {
+        state.getGraphDatabaseService().execute("MATCH (n:Person) DETACH DELETE n").close();
+    }
+
     private void populateDb( GraphDatabaseState state, int numberOfNodes )
     {
         final GraphDatabaseService db = state.getGraphDatabaseService();
@@ -75,8 +75,8 @@ public class Centrality {
 
     @Procedure(value = "apoc.algo.betweennessCypher",mode = Mode.WRITE)
     @Description("CALL apoc.algo.betweennessCypher(node_cypher,rel_cypher,write) - calculates betweeness " +
-    " centrality based on cypher input")
-    public Stream<apoc.algo.algorithms.AlgorithmInterface.Statistics> betweennessCypher(
+    " centrality based on cypher input, approximated from sampled pivots with {sampling:'random'|'degree', samples, error:0.01, probability:0.9, seed}")
+    public Stream<apoc.algo.algorithms.BetweennessCentrality.BetweennessStatistics> betweennessCypher(
             @Name("config") Map<String, Object> config) {
         String nodeCypher = AlgoUtils.getCypher(config, AlgoUtils.SETTING_CYPHER_NODE, AlgoUtils.DEFAULT_CYPHER_NODE);
         String relCypher = AlgoUtils.getCypher(config, AlgoUtils.SETTING_CYPHER_REL, AlgoUtils.DEFAULT_CYPHER_REL);
@@ -105,7 +105,18 @@ public class Centrality {
         log.info("BetweennessCypher: Number of relationships: " + betweennessCentrality.numberOfRels());
 
 
-        betweennessCentrality.computeUnweightedParallel();
+        String sampling = (String) config.get("sampling");
+        if (sampling == null) {
+            betweennessCentrality.computeUnweightedParallel();
+        } else {
+            betweennessCentrality.computeApproximateParallel(
+                    ((Number) config.getOrDefault("samples", 0)).longValue(),
+                    ((Number) config.getOrDefault("error", 0.01)).doubleValue(),
+                    ((Number) config.getOrDefault("probability", 0.9)).doubleValue(),
+                    "degree".equalsIgnoreCase(sampling),
+                    ((Number) config.getOrDefault("seed", System.nanoTime())).longValue());
+            log.info("BetweennessCypher: Approximated from " + betweennessCentrality.getStatistics().pivots + " pivots");
+        }
 
         long afterComputation = System.currentTimeMillis();
         log.info("BetweennessCypher: Computations took " + (afterComputation - afterReading) + " milliseconds");
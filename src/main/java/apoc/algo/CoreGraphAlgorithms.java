@@ -1,5 +1,6 @@
 package apoc.algo;
 
+import apoc.algo.algorithms.IdMap;
 import org.neo4j.collection.primitive.PrimitiveLongIterator;
 import org.neo4j.cursor.Cursor;
 import org.neo4j.graphdb.Direction;
@@ -25,6 +26,7 @@ import static org.neo4j.kernel.api.ReadOperations.ANY_RELATIONSHIP_TYPE;
  */
 public class CoreGraphAlgorithms {
     private final Statement stmt;
+    private IdMap idMap;
     private int nodeCount;
     private int relCount;
     private int[] nodeRelOffsets;
@@ -228,8 +230,8 @@ public class CoreGraphAlgorithms {
     }
     private int[] loadDegrees(ReadOperations ops, int relType, Direction direction) {
         try {
-            int[] degrees = new int[nodeCount];
-            for (int nodeIdx = 0; nodeIdx < nodeCount; nodeIdx++) {
+            int[] degrees = new int[mappedCount()];
+            for (int nodeIdx = 0; nodeIdx < degrees.length; nodeIdx++) {
                 degrees[nodeIdx] = relType == ANY_RELATIONSHIP_TYPE ?
                         ops.nodeGetDegree(unMapId(nodeIdx), direction) :
                         ops.nodeGetDegree(unMapId(nodeIdx), direction, relType);
@@ -313,16 +315,17 @@ public class CoreGraphAlgorithms {
     public float[] pageRank(int iterations) {
         float oneMinusAlpha = 1 - ALPHA;
         int[] degrees = loadDegrees(stmt.readOperations(), relTypeId , OUTGOING);
-        float[] dst = new float[nodeCount]; float[] src = new float[nodeCount];
+        int size = mappedCount();
+        float[] dst = new float[size]; float[] src = new float[size];
 
         for (int it = 0; it < iterations; it++) {
-            for (int node = 0; node < nodeCount; node++) {
+            for (int node = 0; node < size; node++) {
                 src[node] = ALPHA * dst[node] / (float) degrees[node];
                 dst[node] = oneMinusAlpha;
             }
             runProgram((start, end) -> dst[end] += src[start]);
         }
-        for (int node = 0; node < nodeCount; node++) {
+        for (int node = 0; node < size; node++) {
             if (degrees[node] == 0 && dst[node] == oneMinusAlpha) dst[node] = 0;
         }
         return dst;
@@ -343,7 +346,7 @@ public class CoreGraphAlgorithms {
         class PageRank implements SuperStep, RelationshipProgram {
             private int iterations;
             float alpha = 0.15f; float oneMinusAlpha = 1 - alpha;
-            float[] dst = new float[nodeCount]; float[] src = new float[nodeCount];
+            float[] dst = new float[mappedCount()]; float[] src = new float[mappedCount()];
 
             public PageRank(int iterations) {
                 this.iterations = iterations;
@@ -387,8 +390,8 @@ public class CoreGraphAlgorithms {
      */
 
     public int[] labelPropagation() {
-        int[] labels = new int[nodeCount];
-        for (int nodeId = 0; nodeId < nodeCount; nodeId++) labels[nodeId] = nodeId;
+        int[] labels = new int[mappedCount()];
+        for (int nodeId = 0; nodeId < labels.length; nodeId++) labels[nodeId] = nodeId;
 
         boolean[] done = {false};
         while (!done[0]) {
@@ -422,9 +425,9 @@ public class CoreGraphAlgorithms {
      */
 
     public int[] unionFind() {
-        byte[] rank = new byte[nodeCount];
-        int[] root = new int[nodeCount];
-        for (int nodeId = 0; nodeId < nodeCount; nodeId++) root[nodeId] = nodeId;
+        byte[] rank = new byte[mappedCount()];
+        int[] root = new int[mappedCount()];
+        for (int nodeId = 0; nodeId < root.length; nodeId++) root[nodeId] = nodeId;
 
         runProgram((x, y) -> {
             while (x != root[x]) x = root[x];
@@ -459,11 +462,31 @@ public class CoreGraphAlgorithms {
     }
 
 
-    private static int mapId(long id) {
-        return (int) id; // TODO proper mapping to smaller array
+    // node ids are sparse and 64 bit, algo ids are dense and assigned in load order,
+    // end nodes outside of the loaded label are mapped too, so they follow the loaded nodes
+    private int mapId(long id) {
+        return idMap.getOrCreate(id);
     }
-    private static long unMapId(int id) {
-        return (long) id; // TODO proper mapping to smaller array
+    private long unMapId(int id) {
+        return idMap.toNodeId(id);
+    }
+
+    /**
+     * @return the node id of an algo id, the index into the arrays returned by the algorithms, {@link #getNodeRelOffsets()} and {@link #getRels()}
+     */
+    public long toNodeId(int algoId) {
+        return unMapId(algoId);
+    }
+
+    /**
+     * @return the algo id of a loaded node, or {@link IdMap#NOT_MAPPED} if it was not loaded
+     */
+    public int toAlgoId(long nodeId) {
+        return idMap.get(nodeId);
+    }
+
+    private int mappedCount() {
+        return idMap.size();
     }
 
     public CoreGraphAlgorithms(Statement stmt) {
@@ -490,9 +513,11 @@ public class CoreGraphAlgorithms {
         int allNodeCount = (int) ops.nodesGetCount();
         if (labelId == ANY_LABEL) {
             this.nodeCount = allNodeCount;
+            this.idMap = new IdMap(nodeCount);
             this.nodeRelOffsets = loadNodes(ops, ops.nodesGetAll(), nodeCount, relTypeId, OUTGOING);
         } else {
             this.nodeCount = (int) ops.countsForNodeWithoutTxState(labelId);
+            this.idMap = new IdMap(nodeCount);
             float percentage = (float)nodeCount / (float)allNodeCount;
 
             this.nodeRelOffsets = (percentage > 0.5f) ?
@@ -0,0 +1,172 @@
+package apoc.algo;
+
+import apoc.Pools;
+import apoc.algo.algorithms.AlgoUtils;
+import apoc.algo.algorithms.AlgorithmInterface.Statistics;
+import apoc.algo.graph.GraphAlgorithms;
+import apoc.algo.graph.GraphSnapshot;
+import apoc.algo.graph.GraphSnapshotLoader;
+import apoc.algo.graph.SnapshotResult;
+import apoc.algo.pagerank.PageRankEngine;
+import apoc.result.NodeScore;
+import apoc.util.Util;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.logging.Log;
+import org.neo4j.procedure.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static apoc.algo.algorithms.AlgoUtils.SETTING_BATCH_SIZE;
+
+/**
+ * Named in-memory graph projections that are loaded once and shared by several algorithm runs.
+ */
+public class GraphSnapshots {
+
+    static final ExecutorService pool = Pools.DEFAULT;
+    static final Map<String, GraphSnapshot> graphs = new ConcurrentHashMap<>();
+
+    @Context
+    public GraphDatabaseAPI db;
+
+    @Context
+    public Log log;
+
+    @Procedure("apoc.algo.graph.load")
+    @Description("CALL apoc.algo.graph.load(name, {labels:[],types:[],direction:'OUTGOING',weightProperty:null,defaultWeight:1.0,concurrency}) YIELD name, nodes, relationships, loadMillis - loads a named in-memory graph for the algorithms")
+    public Stream<GraphInfo> load(@Name("name") String name, @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        GraphSnapshotLoader loader = new GraphSnapshotLoader(db, pool, concurrency(config));
+        GraphSnapshot graph = loader.load(name,
+                names(config.get("labels")),
+                names(config.get("types")),
+                direction(config.getOrDefault("direction", "OUTGOING")),
+                (String) config.get("weightProperty"),
+                Util.toDouble(config.getOrDefault("defaultWeight", 1.0)));
+        graphs.put(name, graph);
+        log.info("Graph %s: loaded %d nodes and %d relationships in %d ms", name, graph.nodeCount(), graph.relationshipCount(), graph.loadMillis);
+        return Stream.of(new GraphInfo(graph));
+    }
+
+    @Procedure("apoc.algo.graph.list")
+    @Description("CALL apoc.algo.graph.list() YIELD name, nodes, relationships - lists the loaded in-memory graphs")
+    public Stream<GraphInfo> list() {
+        return graphs.values().stream().map(GraphInfo::new);
+    }
+
+    @Procedure("apoc.algo.graph.remove")
+    @Description("CALL apoc.algo.graph.remove(name) YIELD name, nodes, relationships - releases a loaded in-memory graph")
+    public Stream<GraphInfo> remove(@Name("name") String name) {
+        GraphSnapshot graph = graphs.remove(name);
+        return graph == null ? Stream.empty() : Stream.of(new GraphInfo(graph));
+    }
+
+    @Procedure("apoc.algo.graph.stream")
+    @Description("CALL apoc.algo.graph.stream(name, 'pageRank'|'betweenness'|'closeness'|'labelPropagation'|'wcc', {iterations,dampingFactor,tolerance,sourceNodes,concurrency}) YIELD node, score - runs the algorithm on a loaded graph")
+    public Stream<NodeScore> stream(@Name("name") String name, @Name("algorithm") String algorithm, @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        GraphSnapshot graph = graph(name);
+        double[] scores = compute(graph, algorithm, config);
+        return IntStream.range(0, graph.nodeCount())
+                .mapToObj(algoId -> new NodeScore(db.getNodeById(graph.toNodeId(algoId)), scores[algoId]));
+    }
+
+    @Procedure(value = "apoc.algo.graph.write", mode = Mode.WRITE)
+    @Description("CALL apoc.algo.graph.write(name, 'pageRank'|'betweenness'|'closeness'|'labelPropagation'|'wcc', {property,batchSize,iterations,dampingFactor,concurrency}) YIELD nodes, relationships, computeMillis, writeMillis - runs the algorithm on a loaded graph and writes the scores to the nodes")
+    public Stream<Statistics> write(@Name("name") String name, @Name("algorithm") String algorithm, @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        GraphSnapshot graph = graph(name);
+        long start = System.currentTimeMillis();
+        double[] scores = compute(graph, algorithm, config);
+        long computed = System.currentTimeMillis();
+        String property = (String) config.getOrDefault("property", algorithm);
+        int batchSize = (int) Util.toLong(config.getOrDefault(SETTING_BATCH_SIZE, 10_000));
+        AlgoUtils.writeBackResults(pool, db, new SnapshotResult(graph, scores, property), batchSize);
+        long written = System.currentTimeMillis();
+        return Stream.of(new Statistics(graph.nodeCount(), graph.relationshipCount(), 0, graph.loadMillis, 0, computed - start, written - computed, true, property));
+    }
+
+    private double[] compute(GraphSnapshot graph, String algorithm, Map<String, Object> config) {
+        GraphAlgorithms algorithms = new GraphAlgorithms(graph, pool, concurrency(config));
+        int iterations = (int) Util.toLong(config.getOrDefault("iterations", 20));
+        switch (algorithm) {
+            case "pageRank":
+                return algorithms.pageRank(iterations, Util.toDouble(config.getOrDefault("dampingFactor", 0.85)),
+                        Util.toDouble(config.getOrDefault("tolerance", PageRankEngine.DEFAULT_TOLERANCE)), algoIds(graph, config.get("sourceNodes")));
+            case "betweenness":
+                return algorithms.betweenness();
+            case "closeness":
+                return algorithms.closeness();
+            case "labelPropagation":
+                return toNodeIds(graph, algorithms.labelPropagation(iterations));
+            case "wcc":
+                return toNodeIds(graph, algorithms.unionFind());
+            default:
+                throw new RuntimeException("Unknown algorithm " + algorithm + ", supported are pageRank, betweenness, closeness, labelPropagation and wcc");
+        }
+    }
+
+    // partitions and components are identified by the node id of one of their members
+    private static double[] toNodeIds(GraphSnapshot graph, int[] algoIds) {
+        double[] result = new double[algoIds.length];
+        for (int i = 0; i < algoIds.length; i++) result[i] = graph.toNodeId(algoIds[i]);
+        return result;
+    }
+
+    private static int[] algoIds(GraphSnapshot graph, Object nodes) {
+        if (nodes == null) return null;
+        return ((List<?>) nodes).stream()
+                .mapToLong(node -> node instanceof Node ? ((Node) node).getId() : Util.toLong(node))
+                .mapToInt(graph::toAlgoId)
+                .filter(id -> id >= 0)
+                .toArray();
+    }
+
+    private static GraphSnapshot graph(String name) {
+        GraphSnapshot graph = graphs.get(name);
+        if (graph == null) throw new RuntimeException("No graph " + name + " loaded, use apoc.algo.graph.load first");
+        return graph;
+    }
+
+    private static int concurrency(Map<String, Object> config) {
+        return (int) Util.toLong(config.getOrDefault("concurrency", Pools.getNoThreadsInDefaultPool()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> names(Object value) {
+        if (value == null) return Collections.emptyList();
+        if (value instanceof List) return (List<String>) value;
+        return Collections.singletonList(value.toString());
+    }
+
+    private static Direction direction(Object value) {
+        return Direction.valueOf(value.toString().toUpperCase());
+    }
+
+    public static class GraphInfo {
+        public String name;
+        public List<String> labels;
+        public List<String> types;
+        public String direction;
+        public String weightProperty;
+        public long nodes;
+        public long relationships;
+        public long loadMillis;
+
+        public GraphInfo(GraphSnapshot graph) {
+            this.name = graph.name;
+            this.labels = graph.labels == null ? Collections.emptyList() : graph.labels;
+            this.types = graph.types == null ? Collections.emptyList() : graph.types;
+            this.direction = graph.direction.name();
+            this.weightProperty = graph.weightProperty;
+            this.nodes = graph.nodeCount();
+            this.relationships = graph.relationshipCount();
+            this.loadMillis = graph.loadMillis;
+        }
+    }
+}
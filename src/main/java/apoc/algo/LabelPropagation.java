@@ -1,8 +1,14 @@
 package apoc.algo;
 
 import apoc.Pools;
+import apoc.algo.graph.GraphSnapshot;
+import apoc.algo.graph.GraphSnapshotLoader;
+import apoc.algo.graph.LabelPropagationEngine;
 import apoc.util.Util;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
 import org.neo4j.graphdb.*;
+import org.neo4j.kernel.api.ReadOperations;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.logging.Log;
 import org.neo4j.procedure.*;
@@ -13,6 +19,8 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 
 import static apoc.util.Util.parseDirection;
+import static org.neo4j.kernel.api.StatementConstants.NO_SUCH_LABEL;
+import static org.neo4j.kernel.api.StatementConstants.NO_SUCH_PROPERTY_KEY;
 
 public class LabelPropagation {
     static final ExecutorService pool = Pools.DEFAULT;
@@ -37,102 +45,124 @@ public class LabelPropagation {
             @Name("weightKey") String weightKey,
             @Name("batchSize") long batchSize
     ) throws ExecutionException {
-        Set<Label> labels = labelNames == null ? Collections.emptySet() : new HashSet<>(labelNames.size());
-        if (labelNames != null)
-            labelNames.forEach(name -> labels.add(Label.label(name)));
-
-        RelationshipType relationshipType = relationshipTypeName == null ? null : RelationshipType.withName(relationshipTypeName);
-
-        Direction direction = parseDirection(directionName);
-
-        for (int i = 0; i < times; i++) {
-            List<Node> batch = null;
-            List<Future<Void>> futures = new ArrayList<>();
-            try (Transaction tx = dbAPI.beginTx()) {
-                // Before doing anything we check the transaction status
-                if (Util.transactionIsTerminated(dbAPI)) {
-                    return;
-                }
+        if (Util.transactionIsTerminated(dbAPI)) {
+            return;
+        }
+        int concurrency = Pools.getNoThreadsInDefaultPool();
+        int batch = (int) Math.max(1, batchSize);
+        List<String> types = relationshipTypeName == null ? Collections.emptyList() : Collections.singletonList(relationshipTypeName);
+        GraphSnapshot graph = new GraphSnapshotLoader(dbAPI, pool, concurrency)
+                .load("community", Collections.emptyList(), types, parseDirection(directionName), weightKey, 1.0d);
+        int n = graph.nodeCount();
+
+        Object[] partitions = new Object[n];
+        double[] nodeWeights = weightKey == null ? null : new double[n];
+        readNodes(graph, partitionKey, weightKey, partitions, nodeWeights, batch);
+        BitSet active = labelNames == null || labelNames.isEmpty() ? null : active(graph, labelNames);
+
+        List<Object> values = new ArrayList<>();
+        int[] initial = encode(graph, partitions, values);
+        int[] labels = new LabelPropagationEngine(graph, pool, concurrency)
+                .compute((int) times, initial, nodeWeights, active, false);
+        writePartitions(graph, partitionKey, partitions, active, initial, labels, values, batch);
+    }
 
-                for (Node node : dbAPI.getAllNodes()) {
-                    boolean add = labels.size() == 0;
-                    if (!add) {
-                        Iterator<Label> nodeLabels = node.getLabels().iterator();
-                        while (!add && nodeLabels.hasNext()) {
-                            if (labels.contains(nodeLabels.next()))
-                                add = true;
-                        }
+    /**
+     * Reads the initial partition and the weight of every node in parallel batches.
+     */
+    private void readNodes(GraphSnapshot graph, String partitionKey, String weightKey, Object[] partitions, double[] nodeWeights, int batchSize) throws ExecutionException {
+        ThreadToStatementContextBridge ctx = dbAPI.getDependencyResolver().resolveDependency(ThreadToStatementContextBridge.class);
+        int n = graph.nodeCount();
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int from = 0; from < n; from += batchSize) {
+            int start = from, end = Math.min(n, from + batchSize);
+            futures.add(Util.inTxFuture(pool, dbAPI, () -> {
+                ReadOperations ops = ctx.get().readOperations();
+                int partitionKeyId = ops.propertyKeyGetForName(partitionKey);
+                int weightKeyId = weightKey == null ? NO_SUCH_PROPERTY_KEY : ops.propertyKeyGetForName(weightKey);
+                for (int node = start; node < end; node++) {
+                    long nodeId = graph.toNodeId(node);
+                    if (partitionKeyId != NO_SUCH_PROPERTY_KEY) {
+                        partitions[node] = ops.nodeGetProperty(nodeId, partitionKeyId);
                     }
-                    if (add) {
-                        if (batch == null) {
-                            batch = new ArrayList<>((int) batchSize);
-                        }
-                        batch.add(node);
-                        if (batch.size() == batchSize) {
-                            futures.add(clusterBatch(batch, partitionKey, relationshipType, direction, weightKey));
-                            batch = null;
-                        }
+                    if (nodeWeights != null) {
+                        Object weight = weightKeyId == NO_SUCH_PROPERTY_KEY ? null : ops.nodeGetProperty(nodeId, weightKeyId);
+                        nodeWeights[node] = weight instanceof Number ? ((Number) weight).doubleValue() : 1.0d;
                     }
                 }
-                if (batch != null) {
-                    futures.add(clusterBatch(batch, partitionKey, relationshipType, direction, weightKey));
-                }
-                tx.success();
-            }
+                return null;
+            }));
+        }
+        for (Future<Void> future : futures) {
+            Pools.force(future);
+        }
+    }
 
-            // Await processing of node batches
-            for (Future<Void> future : futures) {
-                Pools.force(future);
+    private BitSet active(GraphSnapshot graph, List<String> labelNames) {
+        BitSet active = new BitSet(graph.nodeCount());
+        ReadOperations ops = dbAPI.getDependencyResolver().resolveDependency(ThreadToStatementContextBridge.class).get().readOperations();
+        for (String labelName : labelNames) {
+            int labelId = ops.labelGetForName(labelName);
+            if (labelId == NO_SUCH_LABEL) continue;
+            PrimitiveLongIterator it = ops.nodesGetForLabel(labelId);
+            while (it.hasNext()) {
+                int node = graph.toAlgoId(it.next());
+                if (node >= 0) active.set(node);
             }
         }
+        return active;
     }
 
-    private Future<Void> clusterBatch(List<Node> batch, String partitionKey, RelationshipType relationshipType, Direction direction, String weightKey) {
-        return Pools.processBatch(batch, dbAPI, (node) -> {
-            Map<Object, Double> votes = new HashMap<>();
-            for (Relationship rel :
-                    relationshipType == null
-                            ? node.getRelationships(direction)
-                            : node.getRelationships(relationshipType, direction)) {
-                Node other = rel.getOtherNode(node);
-                Object partition = partition(other, partitionKey);
-                double weight = weight(rel, weightKey) * weight(other, weightKey);
-                vote(votes, partition, weight);
+    /**
+     * Maps the partition values to int labels. A node without a partition is in the partition of its own id,
+     * which gets the node's algo id as label, every other value gets a label after the algo ids.
+     */
+    private static int[] encode(GraphSnapshot graph, Object[] partitions, List<Object> values) {
+        int n = graph.nodeCount();
+        int[] labels = new int[n];
+        Map<Object, Integer> codes = new HashMap<>();
+        for (int node = 0; node < n; node++) {
+            Object partition = partitions[node];
+            if (partition == null) {
+                labels[node] = node;
+                continue;
             }
-
-            Object originalPartition = partition(node, partitionKey);
-            Object partition = originalPartition;
-            double weight = 0.0d;
-            for (Map.Entry<Object, Double> entry : votes.entrySet()) {
-                if (weight < entry.getValue()) {
-                    weight = entry.getValue();
-                    partition = entry.getKey();
+            if (partition instanceof Long) {
+                int owner = graph.toAlgoId((Long) partition);
+                if (owner >= 0 && partitions[owner] == null) {
+                    labels[node] = owner;
+                    continue;
                 }
             }
-
-            if (partition != originalPartition)
-                node.setProperty(partitionKey, partition);
-        });
-    }
-
-    private void vote(Map<Object, Double> votes, Object partition, double weight) {
-        double currentWeight = votes.getOrDefault(partition, 0.0d);
-        double newWeight = currentWeight + weight;
-        votes.put(partition, newWeight);
-    }
-
-    private double weight(PropertyContainer container, String propertyKey) {
-        if (propertyKey != null) {
-            Object propertyValue = container.getProperty(propertyKey, null);
-            if (propertyValue instanceof Number) {
-                return ((Number) propertyValue).doubleValue();
-            }
+            labels[node] = codes.computeIfAbsent(partition, value -> {
+                values.add(value);
+                return n + values.size() - 1;
+            });
         }
-        return 1.0d;
+        return labels;
     }
 
-    private Object partition(Node node, String partitionKey) {
-        Object partition = node.getProperty(partitionKey, null);
-        return partition == null ? node.getId() : partition;
+    /**
+     * Writes the partition of every node where it changed or was not stored yet, in parallel batches.
+     */
+    private void writePartitions(GraphSnapshot graph, String partitionKey, Object[] partitions, BitSet active, int[] initial, int[] labels, List<Object> values, int batchSize) throws ExecutionException {
+        int n = graph.nodeCount();
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int from = 0; from < n; from += batchSize) {
+            int start = from, end = Math.min(n, from + batchSize);
+            futures.add(Util.inTxFuture(pool, dbAPI, () -> {
+                for (int node = start; node < end; node++) {
+                    boolean stored = partitions[node] != null || (active != null && !active.get(node));
+                    if (stored && labels[node] == initial[node]) continue;
+                    int label = labels[node];
+                    Object partition = label < n ? (Object) graph.toNodeId(label) : values.get(label - n);
+                    dbAPI.getNodeById(graph.toNodeId(node)).setProperty(partitionKey, partition);
+                }
+                return null;
+            }));
+        }
+        for (Future<Void> future : futures) {
+            Pools.force(future);
+        }
     }
-}
\ No newline at end of file
+}
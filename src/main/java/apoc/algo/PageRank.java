@@ -6,6 +6,7 @@ import apoc.Pools;
 import apoc.algo.algorithms.AlgoUtils;
 import apoc.algo.pagerank.PageRankArrayStorageParallelCypher;
 import apoc.algo.pagerank.PageRankArrayStorageParallelSPI;
+import apoc.algo.pagerank.PageRankEngine;
 import apoc.result.NodeScore;
 import apoc.util.Util;
 import org.neo4j.graphdb.Node;
@@ -13,17 +14,23 @@ import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.logging.Log;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.stream.Stream;
 
 import static apoc.algo.algorithms.AlgoUtils.*;
+import static apoc.algo.pagerank.PageRank.ALPHA;
 
 public class PageRank {
 
     private static final String SETTING_PAGE_RANK_ITERATIONS = "iterations";
     private static final String SETTING_PAGE_RANK_TYPES = "types";
+    private static final String SETTING_PAGE_RANK_DAMPING_FACTOR = "dampingFactor";
+    private static final String SETTING_PAGE_RANK_TOLERANCE = "tolerance";
+    private static final String SETTING_PAGE_RANK_SOURCE_NODES = "sourceNodes";
 
     static final ExecutorService pool = Pools.DEFAULT;
     static final Long DEFAULT_PAGE_RANK_ITERATIONS = 20L;
@@ -41,24 +48,26 @@ public class PageRank {
             @Name("nodes") List<Node> nodes) {
         return innerPageRank(
                 DEFAULT_PAGE_RANK_ITERATIONS,
+                Collections.emptyMap(),
                 nodes);
     }
 
     @Procedure("apoc.algo.pageRankWithConfig")
     @Description(
-            "CALL apoc.algo.pageRankWithConfig(nodes,{iterations:_,types:_}) YIELD node, score, info - calculates page rank" +
-                    " for given nodes")
+            "CALL apoc.algo.pageRankWithConfig(nodes,{iterations:_,types:_,dampingFactor:0.85,tolerance:0.0001,sourceNodes:[]}) YIELD node, score, info - calculates page rank" +
+                    " for given nodes, personalized for the source nodes if given")
     public Stream<NodeScore> pageRankWithConfig(
             @Name("nodes") List<Node> nodes,
             @Name("config") Map<String, Object> config) {
             return innerPageRank(
                     (Long) config.getOrDefault(SETTING_PAGE_RANK_ITERATIONS, DEFAULT_PAGE_RANK_ITERATIONS),
+                    config,
                     nodes,
                     Util.typesAndDirectionsToTypesArray((String) config.getOrDefault(SETTING_PAGE_RANK_TYPES, "")));
     }
     @Procedure(value = "apoc.algo.pageRankStats",mode = Mode.WRITE)
     @Description(
-            "CALL apoc.algo.pageRankStats({iterations:_,types:_,write:true,...}) YIELD nodeCount - calculates page rank on graph " +
+            "CALL apoc.algo.pageRankStats({iterations:_,types:_,write:true,dampingFactor:0.85,tolerance:0.0001,sourceNodes:[],...}) YIELD nodeCount - calculates page rank on graph " +
                     " for given nodes and potentially writes back")
     public Stream<PageRankStatistics> pageRankStats(@Name("config") Map<String, Object> config) {
         Long iterations = (Long) config.getOrDefault(SETTING_PAGE_RANK_ITERATIONS, DEFAULT_PAGE_RANK_ITERATIONS);
@@ -108,10 +117,10 @@ public class PageRank {
         return Stream.of(pageRank.getStatistics());
     }
 
-    private Stream<NodeScore> innerPageRank(Long iterations, List<Node> nodes, RelationshipType... types) {
+    private Stream<NodeScore> innerPageRank(Long iterations, Map<String,Object> config, List<Node> nodes, RelationshipType... types) {
         try {
             PageRankArrayStorageParallelSPI pageRank = new PageRankArrayStorageParallelSPI(db, pool);
-            pageRank.compute(iterations.intValue(), types);
+            compute(pageRank, iterations.intValue(), config, types);
             return nodes.stream().map(node -> new NodeScore(node, pageRank.getResult(node.getId())));
         } catch (Exception e) {
             String errMsg = "Error encountered while calculating page rank";
@@ -122,7 +131,7 @@ public class PageRank {
     private Stream<PageRankStatistics> innerPageRankStats(int iterations, Map<String,Object> config, RelationshipType... types) {
         try {
             PageRankArrayStorageParallelSPI pageRank = new PageRankArrayStorageParallelSPI(db, pool);
-            pageRank.compute(iterations, types);
+            compute(pageRank, iterations, config, types);
             if ((boolean)config.getOrDefault(SETTING_WRITE, DEFAULT_PAGE_RANK_WRITE)) {
                 pageRank.writeResultsToDB();
             }
@@ -133,4 +142,19 @@ public class PageRank {
             throw new RuntimeException(errMsg, e);
         }
     }
+
+    private void compute(PageRankArrayStorageParallelSPI pageRank, int iterations, Map<String,Object> config, RelationshipType... types) {
+        double dampingFactor = Util.toDouble(config.getOrDefault(SETTING_PAGE_RANK_DAMPING_FACTOR, ALPHA));
+        double tolerance = Util.toDouble(config.getOrDefault(SETTING_PAGE_RANK_TOLERANCE, PageRankEngine.DEFAULT_TOLERANCE));
+        pageRank.compute(iterations, dampingFactor, tolerance, nodeIds(config.get(SETTING_PAGE_RANK_SOURCE_NODES)), types);
+    }
+
+    private static List<Long> nodeIds(Object nodes) {
+        if (nodes == null) return null;
+        List<Long> ids = new ArrayList<>();
+        for (Object node : (Iterable<?>) nodes) {
+            ids.add(node instanceof Node ? ((Node) node).getId() : Util.toLong(node));
+        }
+        return ids;
+    }
 }
@@ -1,31 +1,32 @@
 package apoc.algo;
 
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.Stack;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
-import org.neo4j.collection.primitive.Primitive;
-import org.neo4j.collection.primitive.PrimitiveLongIterator;
-import org.neo4j.collection.primitive.PrimitiveLongSet;
-import org.neo4j.graphdb.Direction;
-import org.neo4j.graphdb.Node;
-import org.neo4j.graphdb.Relationship;
-import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Label;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.logging.Log;
 import org.neo4j.procedure.Context;
+import org.neo4j.procedure.Mode;
+import org.neo4j.procedure.Name;
 import org.neo4j.procedure.Procedure;
 
 import org.neo4j.procedure.Description;
-import apoc.algo.wcc.CCVar;
+import apoc.Pools;
+import apoc.algo.algorithms.AlgoUtils;
+import apoc.algo.wcc.ParallelUnionFind;
 import apoc.result.CCResult;
+import apoc.util.Util;
 
 public class WeaklyConnectedComponents {
 
+	static final int WRITE_BATCH = 10_000;
+
 	@Context
 	public GraphDatabaseAPI dbAPI;
 
@@ -35,68 +36,80 @@ public class WeaklyConnectedComponents {
 	@Procedure("apoc.algo.wcc")
 	@Description("CALL apoc.algo.wcc() YIELD number of weakly connected components")
 	public Stream<CCResult> wcc() {
-		List<List<CCVar>> results = new LinkedList<List<CCVar>>();
-		ResourceIterator<Node> nodes = dbAPI.getAllNodes().iterator();
-		PrimitiveLongSet allNodes = Primitive.longSet(0);
-		while (nodes.hasNext()) {
-			Node node = nodes.next();
-			if (node.getDegree() == 0) {
-				List<CCVar> result = new LinkedList<CCVar>();
-                result.add(new CCVar(node.getId()+"",node.getLabels().iterator().next().name()));
-                results.add(result);
-			} else {
-				allNodes.add(node.getId());
-			}
-		}
-		nodes.close();
-
-		PrimitiveLongIterator it = allNodes.iterator();
-		while (it.hasNext()) {
-			try {
-				long n = it.next();
-				List<CCVar> result = new LinkedList<CCVar>();
-				PrimitiveLongIterator reachableIDs = go(dbAPI.getNodeById(n), Direction.BOTH,result).iterator();
-				while (reachableIDs.hasNext()) {
-					long id = (long) reachableIDs.next();
-					allNodes.remove(id);
-				}
-				results.add(result);
-
-			} catch (NoSuchElementException e) {
-				break;
-			}
-			it = allNodes.iterator();
+		ParallelUnionFind unionFind = new ParallelUnionFind(dbAPI, Pools.DEFAULT).compute(Collections.emptyList());
+		Map<Integer, List<Long>> components = new HashMap<>();
+		for (int node = 0; node < unionFind.nodeCount(); node++) {
+			components.computeIfAbsent(unionFind.componentOf(node), k -> new ArrayList<>()).add(unionFind.getMappedNode(node));
 		}
-		allNodes.close();
-		return results.stream().map((x) ->new CCResult( x.stream().map((z) -> new Long(z.getId())).collect(Collectors.toList()), x.stream().collect(Collectors.groupingBy(CCVar::getType)).entrySet().stream().collect(Collectors.toMap(
-                e -> e.getKey(),
-                e -> e.getValue().size()))
-            ));
+		return components.values().stream().map(nodeIds -> new CCResult(nodeIds, labelCounts(nodeIds)));
 	}
 
-	private PrimitiveLongSet go(Node node, Direction direction, List<CCVar> result) {
+	@Procedure("apoc.algo.wccStream")
+	@Description("CALL apoc.algo.wccStream({types:[]}) YIELD nodeId, componentId - parallel union-find over the relationship store, the component id is the smallest node id of the component")
+	public Stream<ComponentResult> wccStream(@Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+		ParallelUnionFind unionFind = compute(config);
+		return IntStream.range(0, unionFind.nodeCount())
+				.mapToObj(node -> new ComponentResult(unionFind.getMappedNode(node), unionFind.componentId(node)));
+	}
 
-		PrimitiveLongSet visitedIDs = Primitive.longSet(0);
-		Stack<Node> frontierList = new Stack<Node>();
+	@Procedure(value = "apoc.algo.wccWrite", mode = Mode.WRITE)
+	@Description("CALL apoc.algo.wccWrite({types:[], property:'component', batchSize:10000}) YIELD nodes, relationships, components, computeMillis, writeMillis - writes the component id of every node")
+	public Stream<ComponentStats> wccWrite(@Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+		long start = System.currentTimeMillis();
+		ParallelUnionFind unionFind = compute(config);
+		ComponentStats stats = new ComponentStats();
+		stats.computeMillis = System.currentTimeMillis() - start;
+		stats.nodes = unionFind.nodeCount();
+		stats.relationships = unionFind.relationshipCount();
+		stats.components = unionFind.componentCount();
+		stats.property = (String) config.getOrDefault("property", "component");
 
-		frontierList.push(node);
-		visitedIDs.add(node.getId());
-		result.add(new CCVar(node.getId()+"",node.getLabels().iterator().next().name()));
+		start = System.currentTimeMillis();
+		int batchSize = (int) Util.toLong(config.getOrDefault("batchSize", WRITE_BATCH));
+		AlgoUtils.writeBackLongResults(Pools.DEFAULT, dbAPI, stats.property, unionFind.nodeCount(),
+				unionFind::getMappedNode, unionFind::componentId, batchSize);
+		stats.writeMillis = System.currentTimeMillis() - start;
+		return Stream.of(stats);
+	}
 
+	private ParallelUnionFind compute(Map<String, Object> config) {
+		return new ParallelUnionFind(dbAPI, Pools.DEFAULT).compute(types(config.get("types")));
+	}
 
-		while (!frontierList.isEmpty()) {
-			node = frontierList.pop();
-			Iterator<Relationship> itR = node.getRelationships(direction).iterator();
-			while (itR.hasNext()) {
-				Node child = itR.next().getOtherNode(node);
-				if (visitedIDs.contains(child.getId())) {
-					continue;
-				}
-				visitedIDs.add(child.getId());
-				frontierList.push(child);
-				result.add(new CCVar(child.getId()+"",child.getLabels().iterator().next().name()));
+	@SuppressWarnings("unchecked")
+	private static List<String> types(Object value) {
+		if (value == null) return Collections.emptyList();
+		if (value instanceof List) return (List<String>) value;
+		return Collections.singletonList(value.toString());
+	}
+
+	private Map<String, Long> labelCounts(List<Long> nodeIds) {
+		Map<String, Long> counts = new HashMap<>();
+		for (Long nodeId : nodeIds) {
+			for (Label label : dbAPI.getNodeById(nodeId).getLabels()) {
+				counts.merge(label.name(), 1L, Long::sum);
+				break;
 			}
 		}
-		return visitedIDs;
+		return counts;
+	}
+
+	public static class ComponentResult {
+		public final long nodeId;
+		public final long componentId;
+
+		public ComponentResult(long nodeId, long componentId) {
+			this.nodeId = nodeId;
+			this.componentId = componentId;
+		}
+	}
+
+	public static class ComponentStats {
+		public long nodes;
+		public long relationships;
+		public long components;
+		public long computeMillis;
+		public long writeMillis;
+		public String property;
 	}
 }
@@ -18,6 +18,7 @@ import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.function.IntToLongFunction;
 
 public class AlgoUtils {
     public static final String SETTING_CYPHER_NODE = "node_cypher";
@@ -56,6 +57,26 @@ public class AlgoUtils {
         return total;
     }
 
+    /**
+     * Waits for all write-back tasks and fails with the error of the first failed one, so the calling procedure does not report success.
+     */
+    private static void waitForWrites(List<Future> futures) {
+        RuntimeException failure = null;
+        for (Future future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (failure == null) failure = new RuntimeException("Interrupted while writing back results", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (failure == null) failure = cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+            }
+        }
+        futures.clear();
+        if (failure != null) throw failure;
+    }
+
     public static void writeBackResults(ExecutorService pool, GraphDatabaseAPI db, AlgorithmInterface algorithm,
                                         int batchSize) {
         ThreadToStatementContextBridge ctx = db.getDependencyResolver().resolveDependency(ThreadToStatementContextBridge.class);
@@ -100,13 +121,51 @@ public class AlgoUtils {
                     } catch (ConstraintValidationKernelException | InvalidTransactionTypeKernelException |
                             EntityNotFoundException | AutoIndexingKernelException |
                             org.neo4j.kernel.api.exceptions.EntityNotFoundException e) {
-                        e.printStackTrace();
+                        throw new RuntimeException("Error writing back property for nodes " + start + " to " + (start + batchSize - 1) + ": " + e.getMessage(), e);
                     }
                 }
             });
 
             futures.add(future);
         }
-        AlgoUtils.waitForTasks(futures);
+        waitForWrites(futures);
+    }
+
+    /**
+     * Writes a long property for the algo ids <code>0..count-1</code> in parallel batches of one transaction each.
+     */
+    public static void writeBackLongResults(ExecutorService pool, GraphDatabaseAPI db, String propertyName, int count,
+                                            IntToLongFunction nodeIds, IntToLongFunction values, int batchSize) {
+        ThreadToStatementContextBridge ctx = db.getDependencyResolver().resolveDependency(ThreadToStatementContextBridge.class);
+        int propertyNameId;
+        try (Transaction tx = db.beginTx()) {
+            if (Util.transactionIsTerminated(db)) {
+                return;
+            }
+            propertyNameId = ctx.get().tokenWriteOperations().propertyKeyGetOrCreateForName(propertyName);
+            tx.success();
+        } catch (IllegalTokenNameException e) {
+            throw new RuntimeException(e);
+        }
+        List<Future> futures = new ArrayList<>(count / batchSize + 1);
+        for (int i = 0; i < count; i += batchSize) {
+            final int start = i, end = (int) Math.min(count, (long) i + batchSize);
+            futures.add(pool.submit(() -> {
+                try (Transaction tx = db.beginTx()) {
+                    if (Util.transactionIsTerminated(db)) {
+                        return;
+                    }
+                    DataWriteOperations ops = ctx.get().dataWriteOperations();
+                    for (int algoId = start; algoId < end; algoId++) {
+                        ops.nodeSetProperty(nodeIds.applyAsLong(algoId), DefinedProperty.longProperty(propertyNameId, values.applyAsLong(algoId)));
+                    }
+                    tx.success();
+                } catch (ConstraintValidationKernelException | InvalidTransactionTypeKernelException |
+                        AutoIndexingKernelException | org.neo4j.kernel.api.exceptions.EntityNotFoundException e) {
+                    throw new RuntimeException("Error writing back property " + propertyName + " for algo ids " + start + " to " + (end - 1) + ": " + e.getMessage(), e);
+                }
+            }));
+        }
+        waitForWrites(futures);
     }
-}
\ No newline at end of file
+}
@@ -3,7 +3,6 @@ package apoc.algo.algorithms;
 import apoc.util.Util;
 import org.neo4j.collection.primitive.Primitive;
 import org.neo4j.collection.primitive.PrimitiveLongIntMap;
-import org.neo4j.collection.primitive.PrimitiveLongIntVisitor;
 import org.neo4j.collection.primitive.hopscotch.LongKeyIntValueTable;
 import org.neo4j.graphdb.Result;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
@@ -29,14 +28,12 @@ public class Algorithm implements AlgoIdGenerator {
     private final Log log;
     private final ExecutorService pool;
 
-    private int maxAlgoNodeId = 0;
     public int relCount;
     public long readNodeMillis, readRelationshipMillis;
 
     // Arrays to hold the graph.
-    // Mapping from Algo node ID to Graph nodeID
-    private  int [] nodeMapping;
-    private final PrimitiveLongIntMap nodeMap = Primitive.longIntMap(INITIAL_ARRAY_SIZE);
+    // Mapping between Graph nodeID and Algo node ID
+    private final IdMap nodeMap = new IdMap(INITIAL_ARRAY_SIZE);
 
     // Degree of each algo node.
     public int [] sourceDegreeData;
@@ -60,7 +57,7 @@ public class Algorithm implements AlgoIdGenerator {
     public boolean readNodeAndRelCypher(String relCypher, String nodeCypher, Number weight, Number batchSize, int concurrency) {
         this.batchSize = batchSize;
         long before = currentTimeMillis();
-        this.maxAlgoNodeId=loadNodes(nodeCypher);
+        loadNodes(nodeCypher);
         readNodeMillis = (currentTimeMillis() - before);
         log.info("Time to load nodes = " + readNodeMillis + " millis. Nodes from nodeCypher: " + getNodeCount());
 
@@ -73,15 +70,6 @@ public class Algorithm implements AlgoIdGenerator {
         }
         readRelationshipMillis = (currentTimeMillis() -before);
         log.info("Time for iteration over " + relCount + " relations = " + readRelationshipMillis + " millis");
-
-        nodeMapping = new int[getNodeCount()];
-        nodeMap.visitEntries(new PrimitiveLongIntVisitor<RuntimeException>() {
-            @Override
-            public boolean visited(long nodeId, int algoId) throws RuntimeException {
-                nodeMapping[algoId]=(int)nodeId;
-                return false;
-            }
-        });
         return true;
     }
 
@@ -98,20 +86,12 @@ public class Algorithm implements AlgoIdGenerator {
     }
 
     public int getOrCreateAlgoNodeId(long node) {
-        int id = nodeMap.get(node);
-        if (id != LongKeyIntValueTable.NULL) return id;
-        synchronized (nodeMap) {
-            id = nodeMap.get(node);
-            if (id != LongKeyIntValueTable.NULL) return id;
-            id = maxAlgoNodeId++;
-            nodeMap.put(node, id);
-            return id;
-        }
+        return nodeMap.getOrCreate(node);
     }
 
     @Override
     public int getNodeCount() {
-        return maxAlgoNodeId;
+        return nodeMap.size();
     }
 
     // TODO Create buckets instead of copying data.
@@ -215,7 +195,7 @@ public class Algorithm implements AlgoIdGenerator {
     }
 
     public long getMappedNode(int algoId) {
-        return nodeMapping[algoId];
+        return nodeMap.toNodeId(algoId);
     }
 
     private class NodeLoaderVisitor implements Result.ResultVisitor<RuntimeException> {
@@ -223,7 +203,7 @@ public class Algorithm implements AlgoIdGenerator {
 
         @Override
         public boolean visit(Result.ResultRow row) throws RuntimeException {
-            nodeMap.put(row.getNumber("id").longValue(),nodes);
+            nodeMap.getOrCreate(row.getNumber("id").longValue());
             nodes++;
             return true;
         }
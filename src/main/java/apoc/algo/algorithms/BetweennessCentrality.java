@@ -19,7 +19,7 @@ public class BetweennessCentrality implements AlgorithmInterface {
     ExecutorService pool;
     private int nodeCount;
     private int relCount;
-    private Statistics stats = new Statistics();
+    private BetweennessStatistics stats = new BetweennessStatistics();
 
     private PrimitiveIntObjectMap intermediateBcPerThread;
     float betweennessCentrality[];
@@ -37,8 +37,8 @@ public class BetweennessCentrality implements AlgorithmInterface {
     @Override
     public double getResult(long node) {
         float val = -1;
-        int logicalIndex = algorithm.getAlgoNodeId((int)node);
-        if (logicalIndex >= 0 && betweennessCentrality.length >= logicalIndex) {
+        int logicalIndex = algorithm.getAlgoNodeId(node);
+        if (logicalIndex >= 0 && betweennessCentrality.length > logicalIndex) {
             val = betweennessCentrality[logicalIndex];
         }
         return val;
@@ -74,7 +74,7 @@ public class BetweennessCentrality implements AlgorithmInterface {
         return relCount;
     }
 
-    public Statistics getStatistics() {
+    public BetweennessStatistics getStatistics() {
         return stats;
     }
 
@@ -90,7 +90,7 @@ public class BetweennessCentrality implements AlgorithmInterface {
         long before = System.currentTimeMillis();
         int start = 0;
         int end = nodeCount;
-        processNodesInBatch(-1, start, end, sourceDegreeData, sourceChunkStartingIndex, relationshipTarget);
+        processNodesInBatch(-1, null, null, start, end, sourceDegreeData, sourceChunkStartingIndex, relationshipTarget);
         long after = System.currentTimeMillis();
         long difference = after - before;
         log.info("Computations took " + difference + " milliseconds");
@@ -106,20 +106,101 @@ public class BetweennessCentrality implements AlgorithmInterface {
     public void computeUnweightedParallel(int [] sourceDegreeData,
                                   int [] sourceChunkStartingIndex,
                                   int [] relationshipTarget) {
+        computeParallel(null, null, nodeCount, MINIMUM_BATCH_SIZE, sourceDegreeData, sourceChunkStartingIndex, relationshipTarget);
+        stats.pivots = nodeCount;
+    }
+
+    /**
+     * Approximates betweenness from the shortest paths of a sample of pivot nodes, drawn with replacement either
+     * uniformly or proportional to their degree. The dependencies of each pivot are scaled by the inverse of its
+     * sampling probability, which makes the estimate unbiased.
+     * With the given probability every score is within {@link BetweennessStatistics#errorBound} of the exact value (Hoeffding bound).
+     *
+     * @param samples number of pivots to draw, if not positive it is derived from <code>error</code>
+     * @param error maximum error relative to the highest possible betweenness, only used without <code>samples</code>
+     * @param probability probability of staying within the error bound
+     */
+    public void computeApproximateParallel(long samples, double error, double probability, boolean degreeWeighted, long seed) {
+        int[] sourceDegreeData = algorithm.sourceDegreeData;
+        long[] cumulative = new long[nodeCount + 1];
+        int candidates = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            int weight = sourceDegreeData[node] == 0 ? 0 : (degreeWeighted ? sourceDegreeData[node] : 1);
+            if (weight > 0) candidates++;
+            cumulative[node + 1] = cumulative[node] + weight;
+        }
+        long total = cumulative[nodeCount];
+        if (total == 0) {
+            computeUnweightedParallel();
+            return;
+        }
+        int minWeight = Integer.MAX_VALUE;
+        for (int node = 0; node < nodeCount; node++) {
+            int weight = (int) (cumulative[node + 1] - cumulative[node]);
+            if (weight > 0) minWeight = Math.min(minWeight, weight);
+        }
+        // ratio of the highest possible to the average scaled dependency of a pivot, 1 for uniform sampling
+        double range = (double) total / minWeight / nodeCount;
+        double logTerm = Math.log(2.0 * nodeCount / (1 - probability)) / 2;
+        if (samples <= 0) {
+            samples = (long) Math.ceil(logTerm * range * range / (error * error));
+        }
+        if (!degreeWeighted && samples >= candidates) {
+            computeUnweightedParallel();
+            return;
+        }
+
+        Random random = new Random(seed);
+        int[] counts = new int[nodeCount];
+        for (long i = 0; i < samples; i++) {
+            counts[pick(cumulative, (long) (random.nextDouble() * total))]++;
+        }
+        int pivotCount = 0;
+        for (int count : counts) if (count > 0) pivotCount++;
+        int[] pivots = new int[pivotCount];
+        float[] scales = new float[pivotCount];
+        for (int node = 0, i = 0; node < nodeCount; node++) {
+            if (counts[node] == 0) continue;
+            double p = (double) (cumulative[node + 1] - cumulative[node]) / total;
+            pivots[i] = node;
+            scales[i++] = (float) (counts[node] / (samples * p));
+        }
+        computeParallel(pivots, scales, pivotCount, 1, sourceDegreeData, algorithm.sourceChunkStartingIndex, algorithm.relationshipTarget);
+        stats.pivots = samples;
+        stats.errorBound = range * Math.sqrt(logTerm / samples) * nodeCount * Math.max(0, nodeCount - 2);
+    }
+
+    /**
+     * @return the node with <code>cumulative[node] <= value < cumulative[node + 1]</code>
+     */
+    private static int pick(long[] cumulative, long value) {
+        int low = 0, high = cumulative.length - 2;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (cumulative[mid] <= value) low = mid;
+            else high = mid - 1;
+        }
+        return low;
+    }
+
+    private void computeParallel(int[] sources, float[] scales, int sourceCount, int minimumBatchSize,
+                                 int [] sourceDegreeData,
+                                 int [] sourceChunkStartingIndex,
+                                 int [] relationshipTarget) {
         betweennessCentrality = new float[nodeCount];
         Arrays.fill(betweennessCentrality, 0);
         long before = System.currentTimeMillis();
 
         int numOfThreads = Pools.getNoThreadsInDefaultPool();
         assert(numOfThreads != 0);
-        int batchSize = (int)nodeCount/numOfThreads;
+        int batchSize = (sourceCount + numOfThreads - 1) / numOfThreads;
         int batches = 0;
         if (batchSize > 0)
-            batches = (int)nodeCount/batchSize;
+            batches = (sourceCount + batchSize - 1) / batchSize;
 
-        if (batchSize < MINIMUM_BATCH_SIZE) {
+        if (batchSize < minimumBatchSize) {
             batches = 1;
-            batchSize = nodeCount;
+            batchSize = sourceCount;
         }
 
 
@@ -127,14 +208,14 @@ public class BetweennessCentrality implements AlgorithmInterface {
         intermediateBcPerThread = Primitive.intObjectMap();
         int nodeIter = 0;
         int batchNumber = 0;
-        while(nodeIter < nodeCount) {
+        while(nodeIter < sourceCount) {
             final int start = nodeIter;
-            final int end = Integer.min(start + batchSize, nodeCount);
+            final int end = Integer.min(start + batchSize, sourceCount);
             final int threadBatchNo = batchNumber;
             Future future = pool.submit(new Runnable() {
                 @Override
                 public void run() {
-                    processNodesInBatch(threadBatchNo, start, end, sourceDegreeData, sourceChunkStartingIndex, relationshipTarget);
+                    processNodesInBatch(threadBatchNo, sources, scales, start, end, sourceDegreeData, sourceChunkStartingIndex, relationshipTarget);
                 }
             });
             nodeIter = end;
@@ -165,7 +246,13 @@ public class BetweennessCentrality implements AlgorithmInterface {
         }
     }
 
+    /**
+     * @param sources algo ids of the sources at the positions <code>start..end-1</code>, null for the algo ids themselves
+     * @param scales factor for the dependencies of each source, null for 1
+     */
     private void processNodesInBatch(int threadBatchNo,
+                                     int[] sources,
+                                     float[] scales,
                                      int start,
                                      int end,
                                      int [] sourceDegreeData,
@@ -185,7 +272,9 @@ public class BetweennessCentrality implements AlgorithmInterface {
         float delta[] = new float[nodeCount];
 
         int processedNode = 0;
-        for (int source = start; source < end; source++) {
+        for (int index = start; index < end; index++) {
+            int source = sources == null ? index : sources[index];
+            float scale = scales == null ? 1 : scales[index];
 
             processedNode++;
             if (sourceDegreeData[source] == 0) {
@@ -242,14 +331,15 @@ public class BetweennessCentrality implements AlgorithmInterface {
                     delta[node] += partialDependency;
                 }
                 if (poppedNode != source && delta[poppedNode] != 0.0) {
+                    float dependency = delta[poppedNode] * scale;
                     if (threadBatchNo == -1) {
-                        betweennessCentrality[poppedNode] = betweennessCentrality[poppedNode] + delta[poppedNode];
+                        betweennessCentrality[poppedNode] = betweennessCentrality[poppedNode] + dependency;
                     } else {
                         Object storedValue = map.get(poppedNode);
                         if (storedValue != null)
-                            map.put(poppedNode, ((float)storedValue) + delta[poppedNode]);
+                            map.put(poppedNode, ((float)storedValue) + dependency);
                         else
-                            map.put(poppedNode, delta[poppedNode]);
+                            map.put(poppedNode, dependency);
                     }
                 }
             }
@@ -259,7 +349,9 @@ public class BetweennessCentrality implements AlgorithmInterface {
             }
         }
 
-        intermediateBcPerThread.put(threadBatchNo, map);
+        synchronized (intermediateBcPerThread) {
+            intermediateBcPerThread.put(threadBatchNo, map);
+        }
         delta = null;
         numShortestPaths = null;
         stack = null;
@@ -276,4 +368,9 @@ public class BetweennessCentrality implements AlgorithmInterface {
         stats.writeMillis = System.currentTimeMillis() - before;
         stats.property = getPropertyName();
     }
+
+    public static class BetweennessStatistics extends Statistics {
+        public long pivots;
+        public double errorBound;
+    }
 }
@@ -0,0 +1,60 @@
+package apoc.algo.algorithms;
+
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongIntMap;
+import org.neo4j.collection.primitive.hopscotch.LongKeyIntValueTable;
+
+import java.util.Arrays;
+
+import static apoc.algo.algorithms.PagedIntArray.PAGE_BITS;
+import static apoc.algo.algorithms.PagedIntArray.PAGE_MASK;
+import static apoc.algo.algorithms.PagedIntArray.PAGE_SIZE;
+
+/**
+ * Dense mapping of sparse 64-bit node ids to consecutive int algo ids (in order of creation) and back.
+ * The reverse mapping is kept in pages, so it never has to be copied while growing.
+ */
+public class IdMap {
+    public static final int NOT_MAPPED = LongKeyIntValueTable.NULL;
+
+    private final PrimitiveLongIntMap algoIds;
+    private long[][] nodeIds;
+    private volatile int size;
+
+    public IdMap(int capacity) {
+        this.algoIds = Primitive.longIntMap(Math.max(16, capacity));
+        this.nodeIds = new long[Math.max(1, (capacity + PAGE_MASK) >>> PAGE_BITS)][];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the algo id or {@link #NOT_MAPPED}
+     */
+    public int get(long nodeId) {
+        return algoIds.get(nodeId);
+    }
+
+    public int getOrCreate(long nodeId) {
+        int id = algoIds.get(nodeId);
+        if (id != NOT_MAPPED) return id;
+        synchronized (this) {
+            id = algoIds.get(nodeId);
+            if (id != NOT_MAPPED) return id;
+            id = size;
+            int page = id >>> PAGE_BITS;
+            if (page == nodeIds.length) nodeIds = Arrays.copyOf(nodeIds, page * 2);
+            if (nodeIds[page] == null) nodeIds[page] = new long[PAGE_SIZE];
+            nodeIds[page][id & PAGE_MASK] = nodeId;
+            algoIds.put(nodeId, id);
+            size = id + 1;
+            return id;
+        }
+    }
+
+    public long toNodeId(int algoId) {
+        return nodeIds[algoId >>> PAGE_BITS][algoId & PAGE_MASK];
+    }
+}
@@ -0,0 +1,55 @@
+package apoc.algo.algorithms;
+
+import java.util.Arrays;
+
+import static apoc.algo.algorithms.PagedIntArray.PAGE_BITS;
+import static apoc.algo.algorithms.PagedIntArray.PAGE_MASK;
+import static apoc.algo.algorithms.PagedIntArray.PAGE_SIZE;
+
+/**
+ * Fixed size double-array addressed by a long index, stored in pages so it can exceed 2^31 entries.
+ */
+public class PagedDoubleArray {
+    private final double[][] pages;
+    private final long size;
+
+    public PagedDoubleArray(long size) {
+        this.size = size;
+        int numPages = (int) ((size + PAGE_MASK) >>> PAGE_BITS);
+        this.pages = new double[numPages][];
+        for (int i = 0; i < numPages; i++) {
+            pages[i] = new double[i == numPages - 1 ? (int) (size - ((long) i << PAGE_BITS)) : PAGE_SIZE];
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public double get(long index) {
+        return pages[(int) (index >>> PAGE_BITS)][(int) (index & PAGE_MASK)];
+    }
+
+    public void set(long index, double value) {
+        pages[(int) (index >>> PAGE_BITS)][(int) (index & PAGE_MASK)] = value;
+    }
+
+    public void fill(double value) {
+        for (double[] page : pages) Arrays.fill(page, value);
+    }
+
+    /**
+     * copies <code>length</code> values of <code>source</code> to this array starting at <code>index</code>
+     */
+    public void copyFrom(double[] source, int length, long index) {
+        int offset = 0;
+        while (offset < length) {
+            double[] page = pages[(int) (index >>> PAGE_BITS)];
+            int pageOffset = (int) (index & PAGE_MASK);
+            int count = Math.min(length - offset, page.length - pageOffset);
+            System.arraycopy(source, offset, page, pageOffset, count);
+            offset += count;
+            index += count;
+        }
+    }
+}
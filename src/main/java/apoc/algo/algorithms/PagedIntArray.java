@@ -0,0 +1,55 @@
+package apoc.algo.algorithms;
+
+import java.util.Arrays;
+
+/**
+ * Fixed size int-array addressed by a long index, stored in pages so it can exceed 2^31 entries.
+ */
+public class PagedIntArray {
+    public static final int PAGE_BITS = 16;
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final int[][] pages;
+    private final long size;
+
+    public PagedIntArray(long size) {
+        this.size = size;
+        int numPages = (int) ((size + PAGE_MASK) >>> PAGE_BITS);
+        this.pages = new int[numPages][];
+        for (int i = 0; i < numPages; i++) {
+            pages[i] = new int[i == numPages - 1 ? (int) (size - ((long) i << PAGE_BITS)) : PAGE_SIZE];
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public int get(long index) {
+        return pages[(int) (index >>> PAGE_BITS)][(int) (index & PAGE_MASK)];
+    }
+
+    public void set(long index, int value) {
+        pages[(int) (index >>> PAGE_BITS)][(int) (index & PAGE_MASK)] = value;
+    }
+
+    public void fill(int value) {
+        for (int[] page : pages) Arrays.fill(page, value);
+    }
+
+    /**
+     * copies <code>length</code> values of <code>source</code> to this array starting at <code>index</code>
+     */
+    public void copyFrom(int[] source, int length, long index) {
+        int offset = 0;
+        while (offset < length) {
+            int[] page = pages[(int) (index >>> PAGE_BITS)];
+            int pageOffset = (int) (index & PAGE_MASK);
+            int count = Math.min(length - offset, page.length - pageOffset);
+            System.arraycopy(source, offset, page, pageOffset, count);
+            offset += count;
+            index += count;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package apoc.algo.graph;
+
+import apoc.algo.algorithms.PagedIntArray;
+import apoc.algo.pagerank.PageRankEngine;
+import org.neo4j.graphdb.Direction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Algorithms running directly on the arrays of a {@link GraphSnapshot}, all results are indexed by algo id.
+ */
+public class GraphAlgorithms {
+    private final GraphSnapshot graph;
+    private final ExecutorService pool;
+    private final int concurrency;
+
+    public GraphAlgorithms(GraphSnapshot graph, ExecutorService pool, int concurrency) {
+        this.graph = graph;
+        this.pool = pool;
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /**
+     * Pull-based PageRank, see {@link PageRankEngine}.
+     * @param sources algo ids for personalized PageRank, null or empty for all nodes
+     */
+    public double[] pageRank(int maxIterations, double dampingFactor, double tolerance, int[] sources) {
+        return new PageRankEngine(graph, pool, concurrency).compute(maxIterations, dampingFactor, tolerance, sources);
+    }
+
+    /**
+     * Weakly connected components by union-find over the outgoing adjacency.
+     * @return for each node the smallest algo id of its component
+     */
+    public int[] unionFind() {
+        int n = graph.nodeCount();
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) parent[i] = i;
+        long[] offsets = graph.outOffsets;
+        PagedIntArray targets = graph.outTargets;
+        for (int node = 0; node < n; node++) {
+            for (long j = offsets[node]; j < offsets[node + 1]; j++) {
+                int a = find(parent, node), b = find(parent, targets.get(j));
+                if (a < b) parent[b] = a;
+                else if (b < a) parent[a] = b;
+            }
+        }
+        for (int i = 0; i < n; i++) parent[i] = find(parent, i);
+        return parent;
+    }
+
+    private static int find(int[] parent, int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+
+    /**
+     * Label propagation over the undirected adjacency, see {@link LabelPropagationEngine}.
+     * @return for each node the algo id its label originated from
+     */
+    public int[] labelPropagation(int iterations) {
+        int n = graph.nodeCount();
+        int[] labels = new int[n];
+        for (int i = 0; i < n; i++) labels[i] = i;
+        return new LabelPropagationEngine(graph, pool, concurrency)
+                .compute(iterations, labels, null, null, graph.direction != Direction.BOTH);
+    }
+
+    /**
+     * Brandes betweenness on the unweighted outgoing adjacency, the sources are partitioned across the pool
+     * and each worker accumulates into its own array.
+     */
+    public double[] betweenness() {
+        int n = graph.nodeCount();
+        List<double[]> partials = mapPartitions(n, (from, to) -> {
+            double[] centrality = new double[n];
+            BrandesState state = new BrandesState(n);
+            for (int source = from; source < to; source++) {
+                state.accumulate(graph, source, centrality);
+            }
+            return centrality;
+        });
+        double[] result = new double[n];
+        for (double[] partial : partials) {
+            for (int i = 0; i < n; i++) result[i] += partial[i];
+        }
+        if (graph.direction == Direction.BOTH) {
+            for (int i = 0; i < n; i++) result[i] /= 2;
+        }
+        return result;
+    }
+
+    private static class BrandesState {
+        final int[] stack, queue, distance;
+        final double[] pathCount, dependency;
+
+        BrandesState(int n) {
+            stack = new int[n];
+            queue = new int[n];
+            distance = new int[n];
+            pathCount = new double[n];
+            dependency = new double[n];
+            Arrays.fill(distance, -1);
+        }
+
+        void accumulate(GraphSnapshot graph, int source, double[] centrality) {
+            long[] offsets = graph.outOffsets;
+            PagedIntArray targets = graph.outTargets;
+            int head = 0, tail = 0, top = 0;
+            queue[tail++] = source;
+            distance[source] = 0;
+            pathCount[source] = 1;
+            while (head < tail) {
+                int node = queue[head++];
+                stack[top++] = node;
+                for (long j = offsets[node]; j < offsets[node + 1]; j++) {
+                    int next = targets.get(j);
+                    if (distance[next] < 0) {
+                        distance[next] = distance[node] + 1;
+                        queue[tail++] = next;
+                    }
+                    if (distance[next] == distance[node] + 1) {
+                        pathCount[next] += pathCount[node];
+                    }
+                }
+            }
+            // walk back in order of decreasing distance, predecessors are the in-neighbours one level closer
+            long[] inOffsets = graph.inOffsets;
+            PagedIntArray inSources = graph.inSources;
+            while (top > 0) {
+                int node = stack[--top];
+                for (long j = inOffsets[node]; j < inOffsets[node + 1]; j++) {
+                    int previous = inSources.get(j);
+                    if (distance[previous] >= 0 && distance[previous] == distance[node] - 1) {
+                        dependency[previous] += pathCount[previous] / pathCount[node] * (1 + dependency[node]);
+                    }
+                }
+                if (node != source) centrality[node] += dependency[node];
+            }
+            for (int i = 0; i < tail; i++) {
+                int node = queue[i];
+                distance[node] = -1;
+                pathCount[node] = 0;
+                dependency[node] = 0;
+            }
+        }
+    }
+
+    /**
+     * Closeness, (reachable - 1) / sum of distances along the outgoing adjacency, 0 for isolated nodes.
+     */
+    public double[] closeness() {
+        int n = graph.nodeCount();
+        double[] result = new double[n];
+        long[] offsets = graph.outOffsets;
+        PagedIntArray targets = graph.outTargets;
+        forEachPartition(n, (from, to) -> {
+            int[] distance = new int[n];
+            int[] queue = new int[n];
+            Arrays.fill(distance, -1);
+            for (int source = from; source < to; source++) {
+                int head = 0, tail = 0;
+                long sum = 0;
+                queue[tail++] = source;
+                distance[source] = 0;
+                while (head < tail) {
+                    int node = queue[head++];
+                    sum += distance[node];
+                    for (long j = offsets[node]; j < offsets[node + 1]; j++) {
+                        int next = targets.get(j);
+                        if (distance[next] < 0) {
+                            distance[next] = distance[node] + 1;
+                            queue[tail++] = next;
+                        }
+                    }
+                }
+                result[source] = sum == 0 ? 0 : (double) (tail - 1) / sum;
+                for (int i = 0; i < tail; i++) distance[queue[i]] = -1;
+            }
+        });
+        return result;
+    }
+
+    interface RangeTask {
+        void run(int from, int to);
+    }
+
+    interface RangeFunction<T> {
+        T apply(int from, int to);
+    }
+
+    private void forEachPartition(int n, RangeTask task) {
+        mapPartitions(n, (from, to) -> {
+            task.run(from, to);
+            return null;
+        });
+    }
+
+    private <T> List<T> mapPartitions(int n, RangeFunction<T> task) {
+        int size = Math.max(1, (n + concurrency - 1) / concurrency);
+        List<Future<T>> futures = new ArrayList<>();
+        for (int from = 0; from < n; from += size) {
+            int start = from, end = Math.min(n, from + size);
+            futures.add(pool.submit(() -> task.apply(start, end)));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (Exception e) {
+                throw new RuntimeException("Error running algorithm on graph " + graph.name + ": " + e.getMessage(), e);
+            }
+        }
+        return results;
+    }
+}
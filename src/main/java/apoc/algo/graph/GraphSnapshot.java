@@ -0,0 +1,109 @@
+package apoc.algo.graph;
+
+import apoc.algo.algorithms.IdMap;
+import apoc.algo.algorithms.PagedDoubleArray;
+import apoc.algo.algorithms.PagedIntArray;
+import org.neo4j.graphdb.Direction;
+
+import java.util.List;
+
+/**
+ * Immutable compressed sparse row (CSR) projection of (a part of) the graph.
+ *
+ * Nodes are densely numbered with int algo ids in ascending node id order,
+ * for each algo id the outgoing and incoming neighbours are stored consecutively
+ * in one paged target array (so it can hold more than 2^31 relationships), starting at the node's offset.
+ * For {@link Direction#BOTH} the relationships are undirected and both adjacencies are the same.
+ */
+public class GraphSnapshot {
+    public final String name;
+    public final List<String> labels;
+    public final List<String> types;
+    public final Direction direction;
+    public final String weightProperty;
+    public final long loadMillis;
+
+    private final IdMap idMap;
+
+    final long[] outOffsets;
+    final PagedIntArray outTargets;
+    final PagedDoubleArray outWeights;
+
+    final long[] inOffsets;
+    final PagedIntArray inSources;
+    final PagedDoubleArray inWeights;
+
+    GraphSnapshot(String name, List<String> labels, List<String> types, Direction direction, String weightProperty, long loadMillis,
+                  IdMap idMap,
+                  long[] outOffsets, PagedIntArray outTargets, PagedDoubleArray outWeights,
+                  long[] inOffsets, PagedIntArray inSources, PagedDoubleArray inWeights) {
+        this.name = name;
+        this.labels = labels;
+        this.types = types;
+        this.direction = direction;
+        this.weightProperty = weightProperty;
+        this.loadMillis = loadMillis;
+        this.idMap = idMap;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.outWeights = outWeights;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+        this.inWeights = inWeights;
+    }
+
+    public int nodeCount() {
+        return idMap.size();
+    }
+
+    public long relationshipCount() {
+        return outTargets.size();
+    }
+
+    public boolean isWeighted() {
+        return outWeights != null;
+    }
+
+    public long toNodeId(int algoId) {
+        return idMap.toNodeId(algoId);
+    }
+
+    /**
+     * @return the algo id of the node or -1 if it is not part of the snapshot
+     */
+    public int toAlgoId(long nodeId) {
+        return idMap.get(nodeId);
+    }
+
+    public int outDegree(int node) {
+        return (int) (outOffsets[node + 1] - outOffsets[node]);
+    }
+
+    public int inDegree(int node) {
+        return (int) (inOffsets[node + 1] - inOffsets[node]);
+    }
+
+    public long[] outOffsets() {
+        return outOffsets;
+    }
+
+    public PagedIntArray outTargets() {
+        return outTargets;
+    }
+
+    public PagedDoubleArray outWeights() {
+        return outWeights;
+    }
+
+    public long[] inOffsets() {
+        return inOffsets;
+    }
+
+    public PagedIntArray inSources() {
+        return inSources;
+    }
+
+    public PagedDoubleArray inWeights() {
+        return inWeights;
+    }
+}
@@ -0,0 +1,234 @@
+package apoc.algo.graph;
+
+import apoc.algo.algorithms.IdMap;
+import apoc.algo.algorithms.PagedDoubleArray;
+import apoc.algo.algorithms.PagedIntArray;
+import apoc.util.Util;
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.collection.primitive.PrimitiveLongSet;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.api.ReadOperations;
+import org.neo4j.kernel.api.exceptions.EntityNotFoundException;
+import org.neo4j.kernel.impl.api.store.RelationshipIterator;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static org.neo4j.kernel.api.StatementConstants.NO_SUCH_LABEL;
+import static org.neo4j.kernel.api.StatementConstants.NO_SUCH_PROPERTY_KEY;
+import static org.neo4j.kernel.api.StatementConstants.NO_SUCH_RELATIONSHIP_TYPE;
+
+/**
+ * Builds a {@link GraphSnapshot} with parallel scans of the store.
+ *
+ * The node ids are read once, then contiguous ranges of algo ids are handed to the pool,
+ * each worker expands its nodes in its own transaction into local buffers which are finally
+ * concatenated into the CSR arrays. The reverse adjacency is computed in memory.
+ */
+public class GraphSnapshotLoader {
+    static final int MIN_NODES_PER_TASK = 10_000;
+    // keeps the per task buffers well below the maximum array size
+    static final int MAX_NODES_PER_TASK = 1 << 20;
+
+    private final GraphDatabaseAPI db;
+    private final ExecutorService pool;
+    private final int concurrency;
+    private final ThreadToStatementContextBridge ctx;
+
+    public GraphSnapshotLoader(GraphDatabaseAPI db, ExecutorService pool, int concurrency) {
+        this.db = db;
+        this.pool = pool;
+        this.concurrency = Math.max(1, concurrency);
+        this.ctx = db.getDependencyResolver().resolveDependency(ThreadToStatementContextBridge.class);
+    }
+
+    public GraphSnapshot load(String name, List<String> labels, List<String> types, Direction direction, String weightProperty, double defaultWeight) {
+        long start = System.currentTimeMillis();
+        labels = labels == null ? Collections.emptyList() : labels;
+        types = types == null ? Collections.emptyList() : types;
+
+        int[] typeIds;
+        int weightKey;
+        long[] nodeIds;
+        try (Transaction tx = db.beginTx()) {
+            ReadOperations ops = ctx.get().readOperations();
+            nodeIds = loadNodeIds(ops, labels);
+            typeIds = typeIds(ops, types);
+            weightKey = weightProperty == null ? NO_SUCH_PROPERTY_KEY : ops.propertyKeyGetForName(weightProperty);
+            tx.success();
+        }
+        int nodeCount = nodeIds.length;
+        IdMap algoIds = new IdMap(nodeCount);
+        for (long nodeId : nodeIds) {
+            algoIds.getOrCreate(nodeId);
+        }
+
+        boolean weighted = weightProperty != null;
+        long[] offsets = new long[nodeCount + 1];
+        PagedIntArray targets;
+        PagedDoubleArray weights;
+        if (typeIds == null) {
+            targets = new PagedIntArray(0);
+            weights = weighted ? new PagedDoubleArray(0) : null;
+        } else {
+            int[] degrees = new int[nodeCount];
+            int batchSize = Math.min(MAX_NODES_PER_TASK, Math.max(MIN_NODES_PER_TASK, (nodeCount + concurrency - 1) / concurrency));
+            List<Future<Chunk>> futures = new ArrayList<>();
+            for (int from = 0; from < nodeCount; from += batchSize) {
+                Chunk chunk = new Chunk(from, Math.min(nodeCount, from + batchSize), weighted);
+                futures.add(Util.inTxFuture(pool, db, () -> chunk.load(ctx.get().readOperations(), nodeIds, algoIds, typeIds, direction, weightKey, defaultWeight, degrees)));
+            }
+            List<Chunk> chunks = new ArrayList<>(futures.size());
+            for (Future<Chunk> future : futures) {
+                try {
+                    chunks.add(future.get());
+                } catch (Exception e) {
+                    throw new RuntimeException("Error loading graph " + name + ": " + e.getMessage(), e);
+                }
+            }
+            long total = 0;
+            for (int i = 0; i < nodeCount; i++) {
+                offsets[i] = total;
+                total += degrees[i];
+            }
+            offsets[nodeCount] = total;
+            targets = new PagedIntArray(total);
+            weights = weighted ? new PagedDoubleArray(total) : null;
+            for (Chunk chunk : chunks) {
+                long pos = offsets[chunk.from];
+                targets.copyFrom(chunk.targets, chunk.size, pos);
+                if (weighted) weights.copyFrom(chunk.weights, chunk.size, pos);
+            }
+        }
+
+        long[] inOffsets = offsets;
+        PagedIntArray inSources = targets;
+        PagedDoubleArray inWeights = weights;
+        if (direction != Direction.BOTH) {
+            inOffsets = new long[nodeCount + 1];
+            inSources = new PagedIntArray(targets.size());
+            inWeights = weighted ? new PagedDoubleArray(targets.size()) : null;
+            transpose(offsets, targets, weights, inOffsets, inSources, inWeights);
+        }
+        return new GraphSnapshot(name, labels, types, direction, weightProperty, System.currentTimeMillis() - start,
+                algoIds, offsets, targets, weights, inOffsets, inSources, inWeights);
+    }
+
+    private long[] loadNodeIds(ReadOperations ops, List<String> labels) {
+        if (labels.isEmpty()) {
+            return toArray(ops.nodesGetAll(), ops.nodesGetCount());
+        }
+        PrimitiveLongSet ids = Primitive.longSet();
+        for (String label : labels) {
+            int labelId = ops.labelGetForName(label);
+            if (labelId == NO_SUCH_LABEL) continue;
+            PrimitiveLongIterator it = ops.nodesGetForLabel(labelId);
+            while (it.hasNext()) ids.add(it.next());
+        }
+        return toArray(ids.iterator(), ids.size());
+    }
+
+    private static long[] toArray(PrimitiveLongIterator it, long sizeHint) {
+        long[] ids = new long[(int) Math.max(16, sizeHint)];
+        int count = 0;
+        while (it.hasNext()) {
+            if (count == ids.length) ids = Arrays.copyOf(ids, count * 2);
+            ids[count++] = it.next();
+        }
+        ids = Arrays.copyOf(ids, count);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * @return the ids of the existing types, an empty array for all types, null if none of the given types exists
+     */
+    private static int[] typeIds(ReadOperations ops, List<String> types) {
+        if (types.isEmpty()) return new int[0];
+        int[] ids = new int[types.size()];
+        int count = 0;
+        for (String type : types) {
+            int id = ops.relationshipTypeGetForName(type);
+            if (id != NO_SUCH_RELATIONSHIP_TYPE) ids[count++] = id;
+        }
+        return count == 0 ? null : Arrays.copyOf(ids, count);
+    }
+
+    static void transpose(long[] offsets, PagedIntArray targets, PagedDoubleArray weights, long[] inOffsets, PagedIntArray inSources, PagedDoubleArray inWeights) {
+        int nodeCount = offsets.length - 1;
+        for (long j = 0; j < targets.size(); j++) {
+            inOffsets[targets.get(j) + 1]++;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            inOffsets[i + 1] += inOffsets[i];
+        }
+        long[] pos = Arrays.copyOf(inOffsets, nodeCount);
+        for (int source = 0; source < nodeCount; source++) {
+            for (long j = offsets[source]; j < offsets[source + 1]; j++) {
+                long idx = pos[targets.get(j)]++;
+                inSources.set(idx, source);
+                if (inWeights != null) inWeights.set(idx, weights.get(j));
+            }
+        }
+    }
+
+    /**
+     * Adjacency of a contiguous range of algo ids, the degrees are written directly into the shared degrees array.
+     */
+    private static class Chunk {
+        final int from, to;
+        int[] targets = new int[1024];
+        double[] weights;
+        int size;
+
+        Chunk(int from, int to, boolean weighted) {
+            this.from = from;
+            this.to = to;
+            this.weights = weighted ? new double[1024] : null;
+        }
+
+        Chunk load(ReadOperations ops, long[] nodeIds, IdMap algoIds, int[] typeIds, Direction direction, int weightKey, double defaultWeight, int[] degrees) throws EntityNotFoundException {
+            for (int node = from; node < to; node++) {
+                long nodeId = nodeIds[node];
+                int before = size;
+                RelationshipIterator rels = typeIds.length == 0 ? ops.nodeGetRelationships(nodeId, direction) : ops.nodeGetRelationships(nodeId, direction, typeIds);
+                while (rels.hasNext()) {
+                    long relId = rels.next();
+                    rels.relationshipVisit(relId, (id, type, start, end) -> {
+                        int other = algoIds.get(start == nodeId ? end : start);
+                        if (other == IdMap.NOT_MAPPED) return;
+                        add(other, weightKey == NO_SUCH_PROPERTY_KEY ? defaultWeight : weight(ops, id, weightKey, defaultWeight));
+                    });
+                }
+                degrees[node] = size - before;
+            }
+            return this;
+        }
+
+        private static double weight(ReadOperations ops, long relId, int weightKey, double defaultWeight) {
+            try {
+                Object value = ops.relationshipGetProperty(relId, weightKey);
+                return value instanceof Number ? ((Number) value).doubleValue() : defaultWeight;
+            } catch (EntityNotFoundException e) {
+                return defaultWeight;
+            }
+        }
+
+        private void add(int target, double weight) {
+            if (size == targets.length) {
+                targets = Arrays.copyOf(targets, size * 2);
+                if (weights != null) weights = Arrays.copyOf(weights, size * 2);
+            }
+            if (weights != null) weights[size] = weight;
+            targets[size++] = target;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package apoc.algo.graph;
+
+import apoc.algo.algorithms.PagedDoubleArray;
+import apoc.algo.algorithms.PagedIntArray;
+import apoc.algo.pagerank.PageRankEngine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Weighted label propagation over the adjacency of a {@link GraphSnapshot}.
+ *
+ * The nodes are split into one contiguous partition per thread. Within its partition a thread sees the labels
+ * it already updated in the current iteration, the labels of other partitions are read from the previous iteration,
+ * so the result only depends on the input and the concurrency. A node takes the label with the highest vote,
+ * on ties it keeps its current label if that is among the best, otherwise it takes the smallest one.
+ * Iteration stops early when no label changed.
+ */
+public class LabelPropagationEngine {
+    private final GraphSnapshot graph;
+    private final ExecutorService pool;
+    private final int[] partitions;
+
+    private int iterations;
+
+    public LabelPropagationEngine(GraphSnapshot graph, ExecutorService pool, int concurrency) {
+        this.graph = graph;
+        this.pool = pool;
+        this.partitions = PageRankEngine.partition(graph.outOffsets(), Math.max(1, concurrency));
+    }
+
+    /**
+     * @param labels initial label per algo id, non-negative
+     * @param nodeWeights weight of the vote of each node, null for 1
+     * @param active algo ids of the nodes that may change their label, null for all
+     * @param undirected also vote over the incoming adjacency
+     * @return the final label per algo id
+     */
+    public int[] compute(int maxIterations, int[] labels, double[] nodeWeights, BitSet active, boolean undirected) {
+        int n = graph.nodeCount();
+        int[] current = labels.clone();
+        int[] next = new int[n];
+        iterations = 0;
+        while (iterations < maxIterations) {
+            int[] previous = current, updated = next;
+            List<Future<Boolean>> futures = new ArrayList<>(partitions.length - 1);
+            for (int p = 0; p + 1 < partitions.length; p++) {
+                int from = partitions[p], to = partitions[p + 1];
+                futures.add(pool.submit(() -> {
+                    System.arraycopy(previous, from, updated, from, to - from);
+                    Votes votes = new Votes(maxDegree(from, to, undirected));
+                    boolean changed = false;
+                    for (int node = from; node < to; node++) {
+                        if (active != null && !active.get(node)) continue;
+                        votes.clear();
+                        vote(node, graph.outOffsets(), graph.outTargets(), graph.outWeights(), previous, updated, from, to, nodeWeights, votes);
+                        if (undirected) {
+                            vote(node, graph.inOffsets(), graph.inSources(), graph.inWeights(), previous, updated, from, to, nodeWeights, votes);
+                        }
+                        int label = votes.best(updated[node]);
+                        if (label != updated[node]) {
+                            updated[node] = label;
+                            changed = true;
+                        }
+                    }
+                    return changed;
+                }));
+            }
+            boolean changed = false;
+            for (Future<Boolean> future : futures) {
+                try {
+                    changed |= future.get();
+                } catch (Exception e) {
+                    throw new RuntimeException("Error computing label propagation: " + e.getMessage(), e);
+                }
+            }
+            iterations++;
+            current = updated;
+            next = previous;
+            if (!changed) break;
+        }
+        return current;
+    }
+
+    private static void vote(int node, long[] offsets, PagedIntArray targets, PagedDoubleArray weights,
+                             int[] previous, int[] updated, int from, int to, double[] nodeWeights, Votes votes) {
+        for (long j = offsets[node]; j < offsets[node + 1]; j++) {
+            int other = targets.get(j);
+            int label = other >= from && other < to ? updated[other] : previous[other];
+            double weight = weights == null ? 1 : weights.get(j);
+            votes.add(label, nodeWeights == null ? weight : weight * nodeWeights[other]);
+        }
+    }
+
+    private int maxDegree(int from, int to, boolean undirected) {
+        int max = 0;
+        for (int node = from; node < to; node++) {
+            max = Math.max(max, graph.outDegree(node) + (undirected ? graph.inDegree(node) : 0));
+        }
+        return max;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Open addressing map from label to summed vote weight, sized for the highest degree of a partition.
+     */
+    private static class Votes {
+        private final int[] keys;
+        private final double[] values;
+        private final int[] used;
+        private final int mask;
+        private int size;
+
+        Votes(int maxDegree) {
+            int capacity = Integer.highestOneBit(Math.max(2, maxDegree) * 2 - 1) << 1;
+            keys = new int[capacity];
+            values = new double[capacity];
+            used = new int[maxDegree];
+            mask = capacity - 1;
+            Arrays.fill(keys, -1);
+        }
+
+        void add(int label, double weight) {
+            int slot = (label * 0x9E3779B9) >>> 1 & mask;
+            while (keys[slot] != -1 && keys[slot] != label) slot = (slot + 1) & mask;
+            if (keys[slot] == -1) {
+                keys[slot] = label;
+                values[slot] = 0;
+                used[size++] = slot;
+            }
+            values[slot] += weight;
+        }
+
+        int best(int current) {
+            int best = current;
+            double bestWeight = 0;
+            for (int i = 0; i < size; i++) {
+                int slot = used[i];
+                double weight = values[slot];
+                if (weight > bestWeight || (weight == bestWeight && weight > 0 && best != current && keys[slot] < best)) {
+                    best = keys[slot];
+                    bestWeight = weight;
+                } else if (weight == bestWeight && weight > 0 && keys[slot] == current) {
+                    best = current;
+                }
+            }
+            return best;
+        }
+
+        void clear() {
+            for (int i = 0; i < size; i++) keys[used[i]] = -1;
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package apoc.algo.graph;
+
+import apoc.algo.algorithms.AlgorithmInterface;
+
+/**
+ * Exposes per algo id scores computed on a {@link GraphSnapshot} to {@link apoc.algo.algorithms.AlgoUtils#writeBackResults}.
+ */
+public class SnapshotResult implements AlgorithmInterface {
+    private final GraphSnapshot graph;
+    private final double[] scores;
+    private final String property;
+
+    public SnapshotResult(GraphSnapshot graph, double[] scores, String property) {
+        this.graph = graph;
+        this.scores = scores;
+        this.property = property;
+    }
+
+    public double score(int algoId) {
+        return scores[algoId];
+    }
+
+    @Override
+    public double getResult(long node) {
+        int algoId = graph.toAlgoId(node);
+        return algoId == -1 ? 0 : scores[algoId];
+    }
+
+    @Override
+    public long numberOfNodes() {
+        return graph.nodeCount();
+    }
+
+    @Override
+    public String getPropertyName() {
+        return property;
+    }
+
+    @Override
+    public long getMappedNode(int algoId) {
+        return graph.toNodeId(algoId);
+    }
+}
@@ -43,7 +43,7 @@ public class BatchRunnable implements Runnable, OpsRunner {
             for (int i = 0; i < offset; i++) {
                 if (ids[i] == -1L) break;
                 try {
-                    run(ops, (int) ids[i]);
+                    run(ops, ids[i]);
                 } catch (EntityNotFoundException e) {
                     notFound++;
                 }
@@ -56,7 +56,7 @@ public class BatchRunnable implements Runnable, OpsRunner {
     }
 
     @Override
-    public void run(ReadOperations ops, int node) throws EntityNotFoundException {
-        runner.run(ops, node);
+    public void run(ReadOperations ops, long id) throws EntityNotFoundException {
+        runner.run(ops, id);
     }
 }
\ No newline at end of file
@@ -8,11 +8,11 @@ import org.neo4j.kernel.internal.GraphDatabaseAPI;
 
 public class NodeCounter
 {
-    public int getNodeCount( GraphDatabaseService db )
+    public long getNodeCount( GraphDatabaseService db )
     {
 //        Result result = db.execute( "MATCH (n) RETURN max(id(n)) AS maxId" );
 //        return ((Number) result.next().get( "maxId" )).intValue() + 1;
-        return (int) getNeoStores(db).getNodeStore().getHighestPossibleIdInUse() + 1;
+        return getNeoStores(db).getNodeStore().getHighestPossibleIdInUse() + 1;
     }
 
     public NeoStores getNeoStores(GraphDatabaseService db) {
@@ -22,10 +22,10 @@ public class NodeCounter
         return storeAccess.getRawNeoStores();
     }
 
-    public int getRelationshipCount( GraphDatabaseService db )
+    public long getRelationshipCount( GraphDatabaseService db )
     {
 //        Result result = db.execute( "MATCH ()-[r]->() RETURN max(id(r)) AS maxId" );
 //        return ((Number) result.next().get( "maxId" )).intValue() + 1;
-        return (int) getNeoStores(db).getRelationshipStore().getHighestPossibleIdInUse() + 1;
+        return getNeoStores(db).getRelationshipStore().getHighestPossibleIdInUse() + 1;
     }
 }
@@ -5,5 +5,5 @@ import org.neo4j.kernel.api.exceptions.EntityNotFoundException;
 
 public interface OpsRunner
 {
-    void run(ReadOperations ops, int node ) throws EntityNotFoundException;
+    void run(ReadOperations ops, long id ) throws EntityNotFoundException;
 }
@@ -51,7 +51,7 @@ public class PageRankArrayStorageParallelCypher implements PageRank, AlgorithmIn
         return algorithm.getMappedNode(algoId);
     }
 
-    private int getNodeIndex(int node) {
+    private int getNodeIndex(long node) {
         return algorithm.getAlgoNodeId(node);
     }
 
@@ -185,9 +185,9 @@ public class PageRankArrayStorageParallelCypher implements PageRank, AlgorithmIn
     public double getResult(long node)
     {
         double val = 0;
-        int logicalIndex = getNodeIndex((int)node);
+        int logicalIndex = getNodeIndex(node);
 
-        if (logicalIndex >= 0 && pageRanksAtomic.length() >= logicalIndex) {
+        if (logicalIndex >= 0 && pageRanksAtomic.length() > logicalIndex) {
             val = toFloat(pageRanksAtomic.get(logicalIndex));
         }
         return val;
@@ -1,34 +1,32 @@
 package apoc.algo.pagerank;
 
-import java.util.Arrays;
-import java.util.BitSet;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.atomic.AtomicIntegerArray;
-import java.util.function.IntPredicate;
 
+import apoc.Pools;
 import apoc.algo.algorithms.AlgoUtils;
 import apoc.algo.algorithms.AlgorithmInterface;
-import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import apoc.algo.graph.GraphSnapshot;
+import apoc.algo.graph.GraphSnapshotLoader;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.RelationshipType;
-import org.neo4j.kernel.api.ReadOperations;
-import org.neo4j.kernel.impl.api.RelationshipVisitor;
-import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 
 import static apoc.algo.pagerank.PageRankArrayStorageParallelCypher.WRITE_BATCH;
-import static apoc.algo.pagerank.PageRankUtils.*;
 
+/**
+ * Loads the incoming adjacency once with parallel store scans and runs the {@link PageRankEngine} on it.
+ */
 public class PageRankArrayStorageParallelSPI implements PageRank, AlgorithmInterface
 {
-    public static final int ONE_MINUS_ALPHA_INT = toInt( ONE_MINUS_ALPHA );
     private final GraphDatabaseAPI db;
-    private final int nodeCount;
     private final ExecutorService pool;
-    private final int relCount;
-    private AtomicIntegerArray dst;
+    private final int concurrency;
+    private GraphSnapshot graph;
+    private double[] ranks;
 
     private PageRankStatistics stats = new PageRankStatistics();
 
@@ -38,8 +36,7 @@ public class PageRankArrayStorageParallelSPI implements PageRank, AlgorithmInter
     {
         this.pool = pool;
         this.db = (GraphDatabaseAPI) db;
-        this.nodeCount = new NodeCounter().getNodeCount( db );
-        this.relCount = new NodeCounter().getRelationshipCount( db );
+        this.concurrency = Pools.getNoThreadsInDefaultPool();
     }
 
     @Override
@@ -47,92 +44,53 @@ public class PageRankArrayStorageParallelSPI implements PageRank, AlgorithmInter
             int iterations,
             RelationshipType... relationshipTypes )
     {
-        stats.iterations = iterations;
-        long start = System.currentTimeMillis();
-        final int[] src = new int[nodeCount];
-        dst = new AtomicIntegerArray( nodeCount );
-        final int[] degrees = computeDegrees(ctx(this.db));
-        stats.readNodeMillis = System.currentTimeMillis() - start;
-        stats.nodes = nodeCount;
-        start = System.currentTimeMillis();
-
-        final ReadOperations ops = ctx(this.db).get().readOperations();
-        final IntPredicate isValidRelationshipType = relationshipTypeArrayToIntPredicate( ops, relationshipTypes );
-        final RelationshipVisitor<RuntimeException> visitor = isValidRelationshipType == null ?
-                ( relId, relTypeId, startNode, endNode ) -> dst.addAndGet((int) endNode, src[(int) startNode] ) :
-                ( relId, relTypeId, startNode, endNode ) -> {
-                    if ( isValidRelationshipType.test( relTypeId ) )
-                    {
-                        dst.addAndGet( (int) endNode, src[(int) startNode] );
-                    }
-                };
-
-        PrimitiveLongIterator rels = ops.relationshipsGetAll();
-        List<BatchRunnable> runners = prepareOperations(rels, relCount, db, (readOps, id) -> readOps.relationshipVisit(id, visitor));
-        stats.readRelationshipMillis = System.currentTimeMillis() - start;
-        stats.relationships = relCount;
-
-        start = System.currentTimeMillis();
-        for ( int iteration = 0; iteration < iterations; iteration++ )
-        {
-            startIteration( src, dst, degrees );
-            //PrimitiveLongIterator rels = ops.relationshipsGetAll();
-            //runOperations( pool, rels, relCount, ctx, (readOps, id) -> readOps.relationshipVisit( id, visitor ) );
-            runOperations(pool, runners);
-        }
-        stats.computeMillis = System.currentTimeMillis() - start;
+        compute( iterations, ALPHA, PageRankEngine.DEFAULT_TOLERANCE, null, relationshipTypes );
     }
 
-    private IntPredicate relationshipTypeArrayToIntPredicate(
-            ReadOperations ops,
+    /**
+     * @param sourceNodes node ids for personalized PageRank, null or empty for all nodes
+     */
+    public void compute(
+            int maxIterations,
+            double dampingFactor,
+            double tolerance,
+            List<Long> sourceNodes,
             RelationshipType... relationshipTypes )
     {
-        if ( 0 == relationshipTypes.length )
-        {
-            return null;
-        }
-        else
+        List<String> types = new ArrayList<>( relationshipTypes.length );
+        for ( RelationshipType relationshipType : relationshipTypes )
         {
-            BitSet relationshipTypeSet = new BitSet( relationshipTypes.length );
-            for ( RelationshipType relationshipType : relationshipTypes )
-            {
-                int relTypeId = ops.relationshipTypeGetForName(relationshipType.name());
-                if (relTypeId >= 0) relationshipTypeSet.set(relTypeId);
-            }
-            return relationshipTypeSet::get;
+            types.add( relationshipType.name() );
         }
-    }
+        graph = new GraphSnapshotLoader( db, pool, concurrency )
+                .load( "pagerank", Collections.emptyList(), types, Direction.OUTGOING, null, 1 );
+        stats.readRelationshipMillis = graph.loadMillis;
+        stats.nodes = graph.nodeCount();
+        stats.relationships = graph.relationshipCount();
 
-    private void startIteration( int[] src, AtomicIntegerArray dst, int[] degrees )
-    {
-        for ( int node = 0; node < this.nodeCount; node++ )
-        {
-            if ( degrees[node] == -1 )
-            { continue; }
-            src[node] = toInt( ALPHA * toFloat( dst.getAndSet( node, ONE_MINUS_ALPHA_INT ) ) / degrees[node] );
-
-        }
+        long start = System.currentTimeMillis();
+        PageRankEngine engine = new PageRankEngine( graph, pool, concurrency );
+        ranks = engine.compute( maxIterations, dampingFactor, tolerance, toAlgoIds( sourceNodes ) );
+        stats.iterations = engine.getIterations();
+        stats.computeMillis = System.currentTimeMillis() - start;
     }
 
-    private int[] computeDegrees( final ThreadToStatementContextBridge ctx )
+    private int[] toAlgoIds( List<Long> nodeIds )
     {
-        final int[] degree = new int[nodeCount];
-        Arrays.fill( degree, -1 );
-        PrimitiveLongIterator it = ctx.get().readOperations().nodesGetAll();
-        int totalCount = nodeCount;
-        runOperations( pool, it, totalCount, db , (ops,id) -> degree[id] = ops.nodeGetDegree( id, Direction.OUTGOING ) );
-        return degree;
+        if ( nodeIds == null ) return null;
+        return nodeIds.stream().mapToInt( graph::toAlgoId ).filter( id -> id >= 0 ).toArray();
     }
 
     public double getResult( long node )
     {
-        return dst != null ? toFloat( dst.get( (int) node ) ) : 0;
+        if ( ranks == null ) return 0;
+        int algoId = graph.toAlgoId( node );
+        return algoId < 0 ? 0 : ranks[algoId];
     }
 
-
     public long numberOfNodes()
     {
-        return nodeCount;
+        return graph == null ? 0 : graph.nodeCount();
     }
 
     public String getPropertyName()
@@ -147,7 +105,7 @@ public class PageRankArrayStorageParallelSPI implements PageRank, AlgorithmInter
 
     @Override
     public long getMappedNode(int algoId) {
-        return (int) algoId;
+        return graph.toNodeId( algoId );
     }
 
     public void writeResultsToDB() {
@@ -0,0 +1,130 @@
+package apoc.algo.pagerank;
+
+import apoc.algo.algorithms.PagedIntArray;
+import apoc.algo.graph.GraphSnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Pull-based PageRank over the incoming adjacency of a {@link GraphSnapshot}.
+ *
+ * The nodes are split into one contiguous partition per thread with roughly the same number of incoming
+ * relationships, each thread only writes the ranks of its own partition, so plain double arrays suffice.
+ * Iteration stops after <code>maxIterations</code> or when the L1 norm of the rank changes per node drops below the tolerance.
+ * With source nodes the random jump only goes back to those nodes (personalized PageRank).
+ */
+public class PageRankEngine {
+    public static final double DEFAULT_TOLERANCE = 0.0001;
+
+    private final GraphSnapshot graph;
+    private final ExecutorService pool;
+    private final int[] partitions;
+
+    private int iterations;
+    private double delta;
+
+    public PageRankEngine(GraphSnapshot graph, ExecutorService pool, int concurrency) {
+        this.graph = graph;
+        this.pool = pool;
+        this.partitions = partition(graph.inOffsets(), Math.max(1, concurrency));
+    }
+
+    /**
+     * @param sources algo ids of the nodes for personalized PageRank, null or empty for all nodes
+     * @return the rank per algo id
+     */
+    public double[] compute(int maxIterations, double dampingFactor, double tolerance, int[] sources) {
+        int n = graph.nodeCount();
+        double[] base = new double[n];
+        if (sources == null || sources.length == 0) {
+            Arrays.fill(base, 1 - dampingFactor);
+        } else {
+            for (int source : sources) base[source] = 1 - dampingFactor;
+        }
+        double[] rank = base.clone();
+        double[] next = new double[n];
+        double[] contribution = new double[n];
+        double[] nextContribution = new double[n];
+        for (int node = 0; node < n; node++) contribution[node] = contribution(node, rank[node]);
+
+        long[] inOffsets = graph.inOffsets();
+        PagedIntArray inSources = graph.inSources();
+        iterations = 0;
+        delta = 0;
+        while (iterations < maxIterations) {
+            double[] current = rank, updated = next, pull = contribution, push = nextContribution;
+            List<Future<Double>> futures = new ArrayList<>(partitions.length - 1);
+            for (int p = 0; p + 1 < partitions.length; p++) {
+                int from = partitions[p], to = partitions[p + 1];
+                futures.add(pool.submit(() -> {
+                    double change = 0;
+                    for (int node = from; node < to; node++) {
+                        double sum = 0;
+                        for (long j = inOffsets[node]; j < inOffsets[node + 1]; j++) {
+                            sum += pull[inSources.get(j)];
+                        }
+                        double value = base[node] + dampingFactor * sum;
+                        change += Math.abs(value - current[node]);
+                        updated[node] = value;
+                        push[node] = contribution(node, value);
+                    }
+                    return change;
+                }));
+            }
+            delta = 0;
+            for (Future<Double> future : futures) {
+                try {
+                    delta += future.get();
+                } catch (Exception e) {
+                    throw new RuntimeException("Error computing page rank: " + e.getMessage(), e);
+                }
+            }
+            iterations++;
+            rank = updated;
+            next = current;
+            contribution = push;
+            nextContribution = pull;
+            if (n == 0 || delta / n < tolerance) break;
+        }
+        return rank;
+    }
+
+    private double contribution(int node, double rank) {
+        int degree = graph.outDegree(node);
+        return degree == 0 ? 0 : rank / degree;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return L1 norm of the rank changes in the last iteration
+     */
+    public double getDelta() {
+        return delta;
+    }
+
+    /**
+     * @param offsets adjacency offsets of the relationships to balance
+     * @return partition boundaries, so that every partition covers roughly the same number of nodes plus relationships
+     */
+    public static int[] partition(long[] offsets, int concurrency) {
+        int n = offsets.length - 1;
+        long total = n + offsets[n];
+        long perPartition = Math.max(1, (total + concurrency - 1) / concurrency);
+        int[] bounds = new int[concurrency + 1];
+        int count = 1;
+        long work = 0;
+        for (int node = 0; node < n && count < concurrency; node++) {
+            work += 1 + offsets[node + 1] - offsets[node];
+            if (work >= perPartition * count) bounds[count++] = node + 1;
+        }
+        bounds[count++] = n;
+        return Arrays.copyOf(bounds, count);
+    }
+}
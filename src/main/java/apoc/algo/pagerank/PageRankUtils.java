@@ -43,10 +43,10 @@ public class PageRankUtils
         return total;
     }
 
-    public static void runOperations(ExecutorService pool, final PrimitiveLongIterator it, int totalCount,
+    public static void runOperations(ExecutorService pool, final PrimitiveLongIterator it, long totalCount,
                                      final GraphDatabaseAPI api, OpsRunner runner )
     {
-        List<Future> futures = new ArrayList<>( totalCount / BATCH_SIZE + 1);
+        List<Future> futures = new ArrayList<>( (int) (totalCount / BATCH_SIZE) + 1);
         while ( it.hasNext() )
         {
             futures.add( pool.submit( new BatchRunnable( api, it, BATCH_SIZE, runner ) ) );
@@ -62,7 +62,7 @@ public class PageRankUtils
         PageRankUtils.waitForTasks( futures );
     }
 
-    public static List<BatchRunnable> prepareOperations(final PrimitiveLongIterator it, int totalCount,
+    public static List<BatchRunnable> prepareOperations(final PrimitiveLongIterator it, long totalCount,
                                                         final GraphDatabaseAPI api, OpsRunner runner )
     {
         List<BatchRunnable> runners = new ArrayList<>( (int) (totalCount / BATCH_SIZE) + 1);
@@ -1,22 +0,0 @@
-package apoc.algo.wcc;
-
-public class CCVar {
-	
-	private String id;
-	private String type;
-	
-	public CCVar(String id,String type){
-		this.id=id;
-		this.type=type;
-	}
-
-	public String getId() {
-		return id;
-	}
-
-	public String getType() {
-		return type;
-	}
-	
-
-}
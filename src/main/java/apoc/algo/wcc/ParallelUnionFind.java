@@ -0,0 +1,170 @@
+package apoc.algo.wcc;
+
+import apoc.algo.algorithms.IdMap;
+import apoc.algo.pagerank.NodeCounter;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.api.ReadOperations;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
+import org.neo4j.kernel.impl.store.RecordCursor;
+import org.neo4j.kernel.impl.store.RelationshipStore;
+import org.neo4j.kernel.impl.store.record.RecordLoad;
+import org.neo4j.kernel.impl.store.record.RelationshipRecord;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.neo4j.kernel.api.StatementConstants.NO_SUCH_RELATIONSHIP_TYPE;
+
+/**
+ * Weakly connected components by union-find.
+ *
+ * The relationship store is scanned in chunks of record ids on the pool, every relationship unions
+ * its start and end node in a shared parent array, which is updated lock-free with compare-and-set,
+ * always linking the larger root to the smaller one. Only committed relationships are seen.
+ */
+public class ParallelUnionFind {
+    static final int CHUNK_SIZE = 100_000;
+
+    private final GraphDatabaseAPI db;
+    private final ExecutorService pool;
+    private IdMap idMap;
+    private AtomicIntegerArray parent;
+    private long relationships;
+
+    public ParallelUnionFind(GraphDatabaseAPI db, ExecutorService pool) {
+        this.db = db;
+        this.pool = pool;
+    }
+
+    /**
+     * @param types relationship types to follow, all if empty
+     */
+    public ParallelUnionFind compute(List<String> types) {
+        BitSet typeIds = loadNodes(types);
+        int nodeCount = idMap.size();
+        parent = new AtomicIntegerArray(nodeCount);
+        for (int i = 0; i < nodeCount; i++) parent.set(i, i);
+        if (typeIds != null && typeIds.isEmpty()) return this;
+
+        RelationshipStore store = new NodeCounter().getNeoStores(db).getRelationshipStore();
+        long highId = store.getHighestPossibleIdInUse() + 1;
+        List<Future<Long>> futures = new ArrayList<>((int) (highId / CHUNK_SIZE) + 1);
+        for (long from = 0; from < highId; from += CHUNK_SIZE) {
+            long start = from, end = Math.min(highId, from + CHUNK_SIZE);
+            futures.add(pool.submit(() -> scan(store, start, end, typeIds)));
+        }
+        for (Future<Long> future : futures) {
+            try {
+                relationships += future.get();
+            } catch (Exception e) {
+                throw new RuntimeException("Error computing connected components: " + e.getMessage(), e);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return the ids of the given types, null for all types
+     */
+    private BitSet loadNodes(List<String> types) {
+        ThreadToStatementContextBridge ctx = db.getDependencyResolver().resolveDependency(ThreadToStatementContextBridge.class);
+        try (Transaction tx = db.beginTx()) {
+            ReadOperations ops = ctx.get().readOperations();
+            idMap = new IdMap((int) Math.min(Integer.MAX_VALUE, ops.nodesGetCount()));
+            PrimitiveLongIterator it = ops.nodesGetAll();
+            while (it.hasNext()) idMap.getOrCreate(it.next());
+            BitSet typeIds = null;
+            if (types != null && !types.isEmpty()) {
+                typeIds = new BitSet();
+                for (String type : types) {
+                    int id = ops.relationshipTypeGetForName(type);
+                    if (id != NO_SUCH_RELATIONSHIP_TYPE) typeIds.set(id);
+                }
+            }
+            tx.success();
+            return typeIds;
+        }
+    }
+
+    private long scan(RelationshipStore store, long from, long to, BitSet typeIds) {
+        long count = 0;
+        RelationshipRecord record = store.newRecord();
+        try (RecordCursor<RelationshipRecord> cursor = store.newRecordCursor(record).acquire(from, RecordLoad.CHECK)) {
+            for (long id = from; id < to; id++) {
+                if (!cursor.next(id) || !record.inUse()) continue;
+                if (typeIds != null && !typeIds.get(record.getType())) continue;
+                int start = idMap.get(record.getFirstNode()), end = idMap.get(record.getSecondNode());
+                if (start == IdMap.NOT_MAPPED || end == IdMap.NOT_MAPPED) continue;
+                union(start, end);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int find(int node) {
+        int p = parent.get(node);
+        while (p != node) {
+            int grandParent = parent.get(p);
+            // path halving, losing this race only costs a longer path next time
+            if (grandParent != p) parent.compareAndSet(node, p, grandParent);
+            node = grandParent;
+            p = parent.get(node);
+        }
+        return node;
+    }
+
+    private void union(int a, int b) {
+        while (true) {
+            a = find(a);
+            b = find(b);
+            if (a == b) return;
+            if (a < b) {
+                int t = a;
+                a = b;
+                b = t;
+            }
+            if (parent.compareAndSet(a, a, b)) return;
+        }
+    }
+
+    public int nodeCount() {
+        return idMap.size();
+    }
+
+    public long relationshipCount() {
+        return relationships;
+    }
+
+    public long getMappedNode(int algoId) {
+        return idMap.toNodeId(algoId);
+    }
+
+    /**
+     * @return algo id of the component's root, which is its smallest member
+     */
+    public int componentOf(int algoId) {
+        return find(algoId);
+    }
+
+    /**
+     * @return node id of the smallest member of the node's component
+     */
+    public long componentId(int algoId) {
+        return idMap.toNodeId(find(algoId));
+    }
+
+    public int componentCount() {
+        int count = 0;
+        for (int i = 0; i < idMap.size(); i++) {
+            if (parent.get(i) == i) count++;
+        }
+        return count;
+    }
+}
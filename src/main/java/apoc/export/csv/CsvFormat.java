@@ -2,35 +2,209 @@ package apoc.export.csv;
 
 import apoc.export.util.*;
 import apoc.result.ProgressInfo;
+import apoc.util.JsonUtil;
+import au.com.bytecode.opencsv.CSVReader;
 import au.com.bytecode.opencsv.CSVWriter;
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongLongMap;
 import org.neo4j.cypher.export.SubGraph;
 import org.neo4j.graphdb.*;
 
+import java.io.IOException;
 import java.io.Reader;
+import java.lang.reflect.Array;
 import java.io.Writer;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static apoc.export.util.MetaInformation.collectPropTypesForNodes;
 import static apoc.export.util.MetaInformation.collectPropTypesForRelationships;
 import static apoc.export.util.MetaInformation.getLabelsString;
+import static java.util.Arrays.asList;
 
 /**
  * @author mh
  * @since 22.11.16
  */
 public class CsvFormat implements Format {
+    private static final char NO_ESCAPE = '\0';
+    private static final Set<String> SPECIAL_COLUMNS = new HashSet<>(asList("_id", "_labels", "_start", "_end", "_type"));
+    private static final Set<String> IMPORT_TYPES = new HashSet<>(asList("long", "int", "short", "byte", "double", "float", "boolean", "char", "character", "string"));
     private final GraphDatabaseService db;
 
     public CsvFormat(GraphDatabaseService db) {
         this.db = db;
     }
 
+    /**
+     * Reads the layout written by {@link #writeAll}: nodes with <code>_id</code> and <code>_labels</code>,
+     * relationships with <code>_start</code>, <code>_end</code> and <code>_type</code>, typed columns like <code>age:long</code>
+     * and array columns like <code>kids:string[]</code> with JSON lists, untyped columns are strings. Exported ids are mapped to the ids of the created nodes in an off-heap primitive map,
+     * relationships to nodes that were not in the file are skipped.
+     */
     @Override
     public ProgressInfo load(Reader reader, Reporter reporter, ExportConfig config) throws Exception {
-        return null;
+        try (CSVReader csv = new CSVReader(reader, config.getDelimChar(), ExportConfig.QUOTECHAR, NO_ESCAPE)) {
+            String[] header = csv.readNext();
+            if (header == null) return reporter.getTotal();
+            load(csv, new ImportColumns(header), reporter, config);
+        }
+        return reporter.getTotal();
+    }
+
+    private void load(CSVReader csv, ImportColumns columns, Reporter reporter, ExportConfig config) throws Exception {
+        try (PrimitiveLongLongMap ids = Primitive.offHeapLongLongMap();
+             BatchTransaction tx = new BatchTransaction(db, config.getBatchSize(), reporter)) {
+            String[] row;
+            while ((row = csv.readNext()) != null) {
+                if (!columns.value(row, columns.id).isEmpty()) {
+                    Node node = db.createNode();
+                    for (String label : columns.value(row, columns.labels).split(":")) {
+                        if (!label.isEmpty()) node.addLabel(Label.label(label));
+                    }
+                    setProperties(node, row, columns.nodeProperties, reporter);
+                    ids.put(Long.parseLong(columns.value(row, columns.id)), node.getId());
+                    reporter.update(1, 0, 0);
+                } else if (!columns.value(row, columns.start).isEmpty()) {
+                    long start = ids.get(Long.parseLong(columns.value(row, columns.start)));
+                    long end = ids.get(Long.parseLong(columns.value(row, columns.end)));
+                    if (start == -1 || end == -1) continue;
+                    Relationship rel = db.getNodeById(start).createRelationshipTo(db.getNodeById(end), RelationshipType.withName(columns.value(row, columns.type)));
+                    setProperties(rel, row, columns.relProperties, reporter);
+                    reporter.update(0, 1, 0);
+                } else {
+                    continue;
+                }
+                tx.increment();
+            }
+        }
+    }
+
+    private void setProperties(PropertyContainer pc, String[] row, ImportColumn[] columns, Reporter reporter) {
+        for (ImportColumn column : columns) {
+            if (column.index >= row.length || row[column.index].isEmpty()) continue;
+            pc.setProperty(column.name, column.convert(row[column.index]));
+            reporter.update(0, 0, 1);
+        }
     }
 
+    private static class ImportColumns {
+        final int id, labels, start, end, type;
+        final ImportColumn[] nodeProperties, relProperties;
+
+        ImportColumns(String[] header) {
+            Map<String, Integer> special = new HashMap<>();
+            List<ImportColumn> properties = new ArrayList<>(header.length);
+            for (int i = 0; i < header.length; i++) {
+                ImportColumn column = new ImportColumn(header[i], i);
+                if (SPECIAL_COLUMNS.contains(column.name)) special.put(column.name, i);
+                else properties.add(column);
+            }
+            this.id = special.getOrDefault("_id", -1);
+            this.labels = special.getOrDefault("_labels", -1);
+            this.start = special.getOrDefault("_start", -1);
+            this.end = special.getOrDefault("_end", -1);
+            this.type = special.getOrDefault("_type", -1);
+            // node properties come before the relationship columns, relationship properties after them
+            int relColumns = IntStream.of(start, end, type).filter(i -> i != -1).min().orElse(header.length);
+            this.nodeProperties = properties.stream().filter(c -> c.index < relColumns).toArray(ImportColumn[]::new);
+            this.relProperties = properties.stream().filter(c -> c.index > relColumns).toArray(ImportColumn[]::new);
+        }
+
+        String value(String[] row, int index) {
+            return index == -1 || index >= row.length || row[index] == null ? "" : row[index];
+        }
+    }
+
+    private static class ImportColumn {
+        final String name, type;
+        final boolean array;
+        final int index;
+
+        ImportColumn(String header, int index) {
+            int colon = header.lastIndexOf(':');
+            String type = colon == -1 ? null : header.substring(colon + 1);
+            boolean array = type != null && type.endsWith("[]");
+            if (array) type = type.substring(0, type.length() - 2);
+            // the special columns are written with the markers :id and :label instead of a property type
+            if (type != null && (IMPORT_TYPES.contains(type) || SPECIAL_COLUMNS.contains(header.substring(0, colon)))) {
+                this.name = header.substring(0, colon);
+                this.type = type;
+                this.array = array;
+            } else {
+                this.name = header;
+                this.type = "string";
+                this.array = false;
+            }
+            this.index = index;
+        }
+
+        Object convert(String value) {
+            if (array) {
+                try {
+                    Object values = JsonUtil.OBJECT_MAPPER.readValue(value, Object.class);
+                    // char arrays are exported as a JSON string
+                    if (isChar() && values instanceof String) return ((String) values).toCharArray();
+                    return toArray((List<Object>) values);
+                } catch (IOException | RuntimeException e) {
+                    throw new RuntimeException("Can't read array of " + type + " from column " + name + ": " + value, e);
+                }
+            }
+            switch (type) {
+                case "long": return Long.parseLong(value);
+                case "int": return Integer.parseInt(value);
+                case "short": return Short.parseShort(value);
+                case "byte": return Byte.parseByte(value);
+                case "double": return Double.parseDouble(value);
+                case "float": return Float.parseFloat(value);
+                case "boolean": return Boolean.parseBoolean(value);
+                case "char":
+                case "character": return toChar(value);
+                default: return value;
+            }
+        }
+
+        private boolean isChar() {
+            return type.equals("char") || type.equals("character");
+        }
+
+        private char toChar(String value) {
+            if (value.length() != 1) throw new RuntimeException("Can't read char from column " + name + ": " + value);
+            return value.charAt(0);
+        }
+
+        private Object toArray(List<Object> values) {
+            Class<?> componentType;
+            switch (type) {
+                case "long": componentType = long.class; break;
+                case "int": componentType = int.class; break;
+                case "short": componentType = short.class; break;
+                case "byte": componentType = byte.class; break;
+                case "double": componentType = double.class; break;
+                case "float": componentType = float.class; break;
+                case "boolean": componentType = boolean.class; break;
+                case "char":
+                case "character": componentType = char.class; break;
+                default: return values.stream().map(String::valueOf).toArray(String[]::new);
+            }
+            Object array = Array.newInstance(componentType, values.size());
+            for (int i = 0; i < values.size(); i++) {
+                Object value = values.get(i);
+                if (componentType == boolean.class) Array.setBoolean(array, i, (Boolean) value);
+                else if (componentType == char.class) Array.setChar(array, i, toChar(String.valueOf(value)));
+                else if (componentType == long.class) Array.setLong(array, i, ((Number) value).longValue());
+                else if (componentType == int.class) Array.setInt(array, i, ((Number) value).intValue());
+                else if (componentType == short.class) Array.setShort(array, i, ((Number) value).shortValue());
+                else if (componentType == byte.class) Array.setByte(array, i, ((Number) value).byteValue());
+                else if (componentType == double.class) Array.setDouble(array, i, ((Number) value).doubleValue());
+                else Array.setFloat(array, i, ((Number) value).floatValue());
+            }
+            return array;
+        }
+    }
+
+
     @Override
     public ProgressInfo dump(SubGraph graph, Writer writer, Reporter reporter, ExportConfig config) throws Exception {
         try (Transaction tx = db.beginTx()) {
@@ -96,7 +270,9 @@ public class CsvFormat implements Format {
         Collections.addAll(result,starters);
         for (Map.Entry<String, Class> entry : propTypes.entrySet()) {
             String type = MetaInformation.typeFor(entry.getValue(), null);
-            if (type==null || type.equals("string") || !useTypes) result.add(entry.getKey());
+            if (type==null || !useTypes) result.add(entry.getKey());
+            else if (entry.getValue().isArray()) result.add(entry.getKey()+":"+ type + "[]");
+            else if (type.equals("string")) result.add(entry.getKey());
             else result.add(entry.getKey()+":"+ type);
         }
         if (!useTypes) return result.stream().map( s -> s.split(":")[0]).collect(Collectors.toList());
@@ -8,11 +8,14 @@ import au.com.bytecode.opencsv.CSVWriter;
 import org.neo4j.cypher.export.DatabaseSubGraph;
 import org.neo4j.cypher.export.SubGraph;
 import org.neo4j.graphdb.*;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.procedure.Context;
+import org.neo4j.procedure.Mode;
 import org.neo4j.procedure.Name;
 import org.neo4j.procedure.Procedure;
 
 import java.io.PrintWriter;
+import java.io.Reader;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -27,15 +30,30 @@ import static apoc.export.util.FileUtils.getPrintWriter;
  */
 public class ExportCSV {
     @Context
-    public GraphDatabaseService db;
+    public GraphDatabaseAPI db;
 
-    public ExportCSV(GraphDatabaseService db) {
+    public ExportCSV(GraphDatabaseAPI db) {
         this.db = db;
     }
 
     public ExportCSV() {
     }
 
+    @Procedure(name = "apoc.import.csv", mode = Mode.WRITE)
+    @Description("apoc.import.csv(file,config) - imports nodes and relationships from a csv file written by apoc.export.csv.all/data/graph, config: {batchSize:20000,d:','}")
+    public Stream<ProgressInfo> file(@Name("file") String fileName, @Name("config") Map<String, Object> config) throws Exception {
+        ProgressInfo result =
+        Util.inThread(() -> {
+            ExportConfig exportConfig = new ExportConfig(config);
+            ProgressReporter reporter = new ProgressReporter(null, null, new ProgressInfo(fileName, "file", "csv"));
+            try (Reader reader = FileUtils.readerFor(fileName)) {
+                new CsvFormat(db).load(reader, reporter, exportConfig);
+            }
+            return reporter.getTotal();
+        });
+        return Stream.of(result);
+    }
+
     @Procedure
     @Description("apoc.export.csv.all(file,config) - exports whole database as csv to the provided file")
     public Stream<ProgressInfo> all(@Name("file") String fileName, @Name("config") Map<String, Object> config) throws Exception {
@@ -0,0 +1,279 @@
+package apoc.index;
+
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.kernel.lifecycle.LifeSupport;
+import org.neo4j.logging.Log;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static apoc.util.Util.map;
+
+/**
+ * Applies the index updates of committed transactions in the background for <code>apoc.autoIndex.async</code>.
+ *
+ * Pending updates are coalesced per index and node, a field changed several times before the next rollover
+ * is only written once with its latest state. A rollover applies all pending nodes in one transaction, it happens
+ * when <code>rolloverOps</code> nodes are pending or the oldest pending update waited <code>rolloverMillis</code>.
+ * Committing threads only block when <code>capacity</code> nodes are pending.
+ */
+public class AsyncIndexUpdater implements Runnable {
+    private final GraphDatabaseAPI db;
+    private final Log log;
+    private final int capacity;
+    private final long rolloverOps;
+    private final long rolloverMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition ready = lock.newCondition();
+    private final Condition applied = lock.newCondition();
+    private LinkedHashMap<NodeKey, PendingNode> pending = new LinkedHashMap<>();
+    private int pendingUpdates;
+    private volatile boolean running = true;
+    private boolean flushRequested;
+    private long takenBatches, finishedBatches;
+    private Thread thread;
+
+    private final long started = System.currentTimeMillis();
+    private long enqueued, coalesced, appliedNodes, appliedUpdates, batches, lastBatchMillis, lastBatchLagMillis;
+
+    public AsyncIndexUpdater(GraphDatabaseAPI db, Log log, int capacity, long rolloverOps, long rolloverMillis) {
+        this.db = db;
+        this.log = log;
+        this.capacity = Math.max(1, capacity);
+        this.rolloverOps = Math.max(1, rolloverOps);
+        this.rolloverMillis = Math.max(1, rolloverMillis);
+    }
+
+    public void start() {
+        thread = new Thread(this, "apoc-index-async");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("started background thread for async index updates");
+    }
+
+    /**
+     * Applies what is pending, waits at most the given time for that.
+     */
+    public void stop(long timeoutMillis) {
+        running = false;
+        signal();
+        if (thread == null) return;
+        try {
+            thread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Starts a rollover of the pending updates now and waits at most the given time until they are applied.
+     * @return true if everything enqueued before the call was applied (or failed and was logged) in time
+     */
+    public boolean flush(long timeoutMillis) {
+        lock.lock();
+        try {
+            long target = takenBatches;
+            if (!pending.isEmpty()) {
+                flushRequested = true;
+                ready.signal();
+                target++;
+            }
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (finishedBatches < target) {
+                long now = System.currentTimeMillis();
+                if (now >= deadline) return false;
+                applied.await(deadline - now, TimeUnit.MILLISECONDS);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void enqueue(Collection<IndexUpdate> updates) {
+        lock.lock();
+        try {
+            for (IndexUpdate update : updates) {
+                NodeKey key = new NodeKey(update.index.getName(), update.node.getId());
+                PendingNode node = pending.get(key);
+                while (node == null && pending.size() >= capacity && running) {
+                    ready.signal();
+                    notFull.await();
+                    node = pending.get(key);
+                }
+                if (node == null) {
+                    pending.put(key, node = new PendingNode());
+                }
+                enqueued++;
+                if (node.add(update)) {
+                    pendingUpdates++;
+                } else {
+                    coalesced++;
+                }
+            }
+            if (pending.size() >= rolloverOps) ready.signal();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while queueing %d async index updates", updates.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                Collection<PendingNode> batch = take();
+                if (batch.isEmpty()) {
+                    if (!running || !db.getDependencyResolver().resolveDependency(LifeSupport.class).isRunning()) {
+                        log.info("system shutdown detected, terminating indexing background thread");
+                        break;
+                    }
+                    continue;
+                }
+                apply(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            log.info("stopping background thread for async index updates");
+        }
+    }
+
+    // waits until a rollover is due, returns an empty batch if there was none within rolloverMillis
+    private Collection<PendingNode> take() throws InterruptedException {
+        lock.lock();
+        try {
+            long deadline = System.currentTimeMillis() + rolloverMillis;
+            while (running && !flushRequested && pending.size() < rolloverOps) {
+                long now = System.currentTimeMillis();
+                long due = pending.isEmpty() ? deadline : pending.values().iterator().next().firstEnqueued + rolloverMillis;
+                if (now >= due) break;
+                ready.await(due - now, TimeUnit.MILLISECONDS);
+            }
+            flushRequested = false;
+            if (pending.isEmpty()) return Collections.emptyList();
+            takenBatches++;
+            Collection<PendingNode> batch = pending.values();
+            pending = new LinkedHashMap<>();
+            pendingUpdates = 0;
+            notFull.signalAll();
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void apply(Collection<PendingNode> batch) {
+        long start = System.currentTimeMillis();
+        long oldest = batch.iterator().next().firstEnqueued;
+        int updates = 0;
+        try (Transaction tx = db.beginTx()) {
+            for (PendingNode node : batch) {
+                for (IndexUpdate update : node.fields.values()) {
+                    update.apply();
+                    updates++;
+                }
+            }
+            tx.success();
+        } catch (Exception e) {
+            log.error("Error applying " + batch.size() + " async index updates", e);
+            finished(false, batch.size(), updates, start, oldest);
+            return;
+        }
+        long end = finished(true, batch.size(), updates, start, oldest);
+        log.info("background indexing thread doing tx rollover, nodes " + batch.size() + ", updates " + updates + ", millis since first update " + (end - oldest));
+    }
+
+    // counts the batch as finished for flush(), and as applied on success
+    private long finished(boolean success, int nodes, int updates, long start, long oldest) {
+        long end = System.currentTimeMillis();
+        lock.lock();
+        try {
+            finishedBatches++;
+            applied.signalAll();
+            if (!success) return end;
+            batches++;
+            appliedNodes += nodes;
+            appliedUpdates += updates;
+            lastBatchMillis = end - start;
+            lastBatchLagMillis = end - oldest;
+            return end;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void signal() {
+        lock.lock();
+        try {
+            ready.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> metrics() {
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            long lag = pending.isEmpty() ? 0 : now - pending.values().iterator().next().firstEnqueued;
+            double seconds = Math.max(1, now - started) / 1000d;
+            return map("pendingNodes", (long) pending.size(), "pendingUpdates", (long) pendingUpdates, "capacity", (long) capacity,
+                    "lagMillis", lag, "enqueued", enqueued, "coalesced", coalesced,
+                    "appliedNodes", appliedNodes, "appliedUpdates", appliedUpdates, "batches", batches,
+                    "lastBatchMillis", lastBatchMillis, "lastBatchLagMillis", lastBatchLagMillis,
+                    "updatesPerSecond", appliedUpdates / seconds);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class NodeKey {
+        final String index;
+        final long node;
+
+        NodeKey(String index, long node) {
+            this.index = index;
+            this.node = node;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            NodeKey that = (NodeKey) o;
+            return node == that.node && index.equals(that.index);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * index.hashCode() + Long.hashCode(node);
+        }
+    }
+
+    private static class PendingNode {
+        final long firstEnqueued = System.currentTimeMillis();
+        // in order of the last change, the last one determines the search field
+        final LinkedHashMap<String, IndexUpdate> fields = new LinkedHashMap<>();
+
+        /**
+         * @return false if the update was merged into a pending one of the same field
+         */
+        boolean add(IndexUpdate update) {
+            IndexUpdate previous = fields.remove(update.key);
+            fields.put(update.key, previous == null ? update : previous.merge(update));
+            return previous == null;
+        }
+    }
+}
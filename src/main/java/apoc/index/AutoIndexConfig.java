@@ -0,0 +1,135 @@
+package apoc.index;
+
+import apoc.util.Util;
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveIntObjectMap;
+import org.neo4j.collection.primitive.PrimitiveIntSet;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.index.Index;
+import org.neo4j.kernel.api.Statement;
+import org.neo4j.kernel.api.TokenWriteOperations;
+import org.neo4j.kernel.api.exceptions.KernelException;
+
+import java.util.*;
+
+/**
+ * Immutable lookup of the manual indexes with <code>autoUpdate</code> enabled, by label id and property key id.
+ * Changes create a new instance that is swapped in as a whole, readers on the commit path never see a partial update.
+ */
+public class AutoIndexConfig {
+    public static final AutoIndexConfig EMPTY = new AutoIndexConfig(Collections.emptyMap());
+
+    private final Map<String, IndexDefinition> definitions;
+    private final PrimitiveIntObjectMap<LabelFields> labels = Primitive.intObjectMap();
+    private final PrimitiveIntSet keys = Primitive.intSet();
+
+    private AutoIndexConfig(Map<String, IndexDefinition> definitions) {
+        this.definitions = definitions;
+        for (IndexDefinition definition : definitions.values()) {
+            for (int i = 0; i < definition.labelIds.length; i++) {
+                int labelId = definition.labelIds[i];
+                LabelFields fields = labels.get(labelId);
+                if (fields == null) labels.put(labelId, fields = new LabelFields());
+                for (int j = 0; j < definition.keyIds[i].length; j++) {
+                    int keyId = definition.keyIds[i][j];
+                    fields.add(keyId, definition.labels[i] + "." + definition.keys[i][j], definition.index);
+                    keys.add(keyId);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a new config with the index added, replaced, or removed if it has no <code>autoUpdate</code>
+     */
+    public AutoIndexConfig with(String name, Index<Node> index, Map<String, String> config, Statement statement) {
+        Map<String, IndexDefinition> changed = new LinkedHashMap<>(definitions);
+        changed.remove(name);
+        if (Util.toBoolean(config.get("autoUpdate"))) {
+            changed.put(name, new IndexDefinition(index, config, statement.tokenWriteOperations()));
+        }
+        return new AutoIndexConfig(changed);
+    }
+
+    public AutoIndexConfig without(String name) {
+        if (!definitions.containsKey(name)) return this;
+        Map<String, IndexDefinition> changed = new LinkedHashMap<>(definitions);
+        changed.remove(name);
+        return new AutoIndexConfig(changed);
+    }
+
+    public boolean isEmpty() {
+        return definitions.isEmpty();
+    }
+
+    public boolean isIndexedKey(int keyId) {
+        return keys.contains(keyId);
+    }
+
+    /**
+     * @return the indexed properties of the label, null if there are none
+     */
+    public LabelFields forLabel(int labelId) {
+        return labels.get(labelId);
+    }
+
+    public static class LabelFields {
+        private final PrimitiveIntObjectMap<Field> fields = Primitive.intObjectMap();
+
+        private void add(int keyId, String indexKey, Index<Node> index) {
+            Field field = fields.get(keyId);
+            if (field == null) fields.put(keyId, field = new Field(indexKey));
+            field.indexes.add(index);
+        }
+
+        /**
+         * @return the indexes of the property, null if it is not indexed for this label
+         */
+        public Field field(int keyId) {
+            return fields.get(keyId);
+        }
+    }
+
+    public static class Field {
+        /** the field name in the index, <code>Label.property</code> */
+        public final String indexKey;
+        public final List<Index<Node>> indexes = new ArrayList<>(1);
+
+        private Field(String indexKey) {
+            this.indexKey = indexKey;
+        }
+    }
+
+    private static class IndexDefinition {
+        final Index<Node> index;
+        final String[] labels;
+        final String[][] keys;
+        final int[] labelIds;
+        final int[][] keyIds;
+
+        IndexDefinition(Index<Node> index, Map<String, String> config, TokenWriteOperations tokens) {
+            this.index = index;
+            this.labels = names(config.get("labels"));
+            this.keys = new String[labels.length][];
+            this.labelIds = new int[labels.length];
+            this.keyIds = new int[labels.length][];
+            try {
+                for (int i = 0; i < labels.length; i++) {
+                    labelIds[i] = tokens.labelGetOrCreateForName(labels[i]);
+                    keys[i] = names(config.get("keysForLabel:" + labels[i]));
+                    keyIds[i] = new int[keys[i].length];
+                    for (int j = 0; j < keys[i].length; j++) {
+                        keyIds[i][j] = tokens.propertyKeyGetOrCreateForName(keys[i][j]);
+                    }
+                }
+            } catch (KernelException e) {
+                throw new RuntimeException("Error resolving labels and properties of index " + index.getName() + ": " + e.getMessage(), e);
+            }
+        }
+
+        private static String[] names(String value) {
+            if (value == null || value.isEmpty()) return new String[0];
+            return value.split(":");
+        }
+    }
+}
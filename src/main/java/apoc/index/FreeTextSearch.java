@@ -1,13 +1,13 @@
 package apoc.index;
 
-import apoc.ApocKernelExtensionFactory;
+import apoc.Pools;
 import apoc.util.Util;
 import org.neo4j.kernel.KernelApi;
 import org.neo4j.procedure.*;
+import apoc.result.MapResult;
 import apoc.result.WeightedNodeResult;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.search.Sort;
-import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.index.Index;
@@ -15,7 +15,6 @@ import org.neo4j.graphdb.index.IndexHits;
 import org.neo4j.index.impl.lucene.legacy.LuceneDataSource;
 import org.neo4j.index.impl.lucene.legacy.LuceneIndexImplementation;
 import org.neo4j.index.lucene.QueryContext;
-import org.neo4j.index.lucene.ValueContext;
 import org.neo4j.kernel.impl.util.JobScheduler;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.logging.Log;
@@ -58,11 +57,28 @@ public class FreeTextSearch {
         if (structure.isEmpty()) {
             throw new IllegalArgumentException("No structure given.");
         }
+        Map<String, Object> indexOptions = new HashMap<>(options);
+        int batchSize = (int) Util.toLong(indexOptions.getOrDefault("batchSize", IndexPopulator.DEFAULT_BATCH_SIZE));
+        indexOptions.remove("batchSize");
         return async(executor(), "Creating index '" + index + "'", result -> {
-            populate(index(index, structure, options ), structure, result);
+            populate(index, index(index, structure, indexOptions), structure, batchSize, result);
         });
     }
 
+    @Procedure(mode = Mode.READ)
+    @Description("apoc.index.populationStatus('name') YIELD index, state, total, indexed, progress, elapsedMillis, error - progress of running and finished apoc.index.addAllNodes calls, all of them for an empty name")
+    public Stream<IndexPopulator.PopulationStatus> populationStatus(@Name(value = "index", defaultValue = "") String index) {
+        return IndexPopulator.status(index);
+    }
+
+    @Procedure(mode = Mode.READ)
+    @Description("apoc.index.autoUpdateMetrics() YIELD value - queue depth, lag and throughput of the asynchronous index updates, nothing if apoc.autoIndex.async is disabled")
+    public Stream<MapResult> autoUpdateMetrics() {
+        IndexUpdateTransactionEventHandler.LifeCycle lifeCycle = IndexUpdateTransactionEventHandler.lifeCycle(db);
+        Map<String, Object> metrics = lifeCycle == null ? null : lifeCycle.asyncMetrics();
+        return metrics == null ? Stream.empty() : Stream.of(new MapResult(metrics));
+    }
+
     /**
      * Create (or recreate) a free text search index.
      * <p>
@@ -140,43 +156,9 @@ public class FreeTextSearch {
         }, 0), false);
     }
 
-    private void populate(Index<Node> index, Map<String, List<String>> config, Consumer<IndexStats> result) {
-        Map<String, String[]> structure = convertStructure(config);
-        Map<LabelProperty, Counter> stats = new HashMap<>();
-        Transaction tx = db.beginTx();
-        try {
-            int batch = 0;
-            for (Node node : db.getAllNodes()) {
-                boolean indexed = false;
-                for (Label label : node.getLabels()) {
-                    String[] keys = structure.get(label.name());
-                    if (keys == null) continue;
-                    indexed = true;
-                    Map<String, Object> properties = keys.length == 0 ? node.getAllProperties() : node.getProperties(keys);
-                    for (Map.Entry<String, Object> entry : properties.entrySet()) {
-                        Object value = entry.getValue();
-                        index.add(node, KEY, value.toString());
-                        if (value instanceof Number) {
-                            value = ValueContext.numeric(((Number) value).doubleValue());
-                        }
-                        index.add(node, label.name() + "." + entry.getKey(), value);
-                        stats.computeIfAbsent(new LabelProperty(label.name(), entry.getKey()), x -> new Counter()).count++;
-                    }
-                }
-                if (indexed) {
-                    if (++batch == 50_000) {
-                        batch = 0;
-                        tx.success();
-                        tx.close();
-                        tx = db.beginTx();
-                    }
-                }
-            }
-            tx.success();
-        } finally {
-            tx.close();
-        }
-        stats.forEach((key,counter) -> result.accept(key.stats(counter)));
+    private void populate(String name, Index<Node> index, Map<String, List<String>> config, int batchSize, Consumer<IndexStats> result) {
+        new IndexPopulator(db, Pools.DEFAULT, batchSize).populate(name, index, convertStructure(config))
+                .forEach((label, counts) -> counts.forEach((property, count) -> result.accept(new IndexStats(label, property, count))));
     }
 
     private Map<String, String[]> convertStructure(Map<String, List<String>> config) {
@@ -210,23 +192,15 @@ public class FreeTextSearch {
             log.info("Creating or updating index '%s' with config '%s'", index, config );
             Index<Node> nodeIndex = db.index().forNodes(index, config);
 
-            resetIndexUpdateConfiguration();
+            IndexUpdateTransactionEventHandler.LifeCycle lifeCycle = IndexUpdateTransactionEventHandler.lifeCycle(db);
+            if (lifeCycle != null) {
+                lifeCycle.indexChanged(index, config);
+            }
             tx.success();
             return nodeIndex;
         }
     }
 
-    private void resetIndexUpdateConfiguration() {
-        try {
-            ApocKernelExtensionFactory.ApocLifecycle apocLifecycle = db.getDependencyResolver().resolveDependency(ApocKernelExtensionFactory.ApocLifecycle.class);
-            if (apocLifecycle != null) {
-                apocLifecycle.getIndexUpdateLifeCycle().resetConfiguration();
-            }
-        } catch (Exception e) {
-            log.error("failed to reset index update configuration", e);
-        }
-    }
-
     private void updateConfigFromParameters(Map<String, String> config, Map<String, List<String>> structure) {
         Iterator<String> it = config.keySet().iterator();
         while (it.hasNext()) {
@@ -263,35 +237,4 @@ public class FreeTextSearch {
     private static String escape(String key) {
         return key.replace("$", "$$").replace(":", "$");
     }
-
-    private static class LabelProperty {
-        private final String label, property;
-
-        LabelProperty(String label, String property) {
-            this.label = label;
-            this.property = property;
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            LabelProperty that = (LabelProperty) o;
-            return Objects.equals(label, that.label) &&
-                    Objects.equals(property, that.property);
-        }
-
-        @Override
-        public int hashCode() {
-            return Objects.hash(label, property);
-        }
-
-        IndexStats stats(Counter counter) {
-            return new IndexStats(label, property, counter.count);
-        }
-    }
-
-    private static class Counter {
-        long count;
-    }
 }
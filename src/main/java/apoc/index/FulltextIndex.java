@@ -60,7 +60,12 @@ public class FulltextIndex {
     @Procedure(mode = Mode.WRITE)
     public Stream<IndexInfo> forNodes(@Name("name") String name, @Name("config") Map<String,String> config) {
         Index<Node> index = getNodeIndex(name, config);
-        return Stream.of(new IndexInfo(NODE, name, db.index().getConfiguration(index)));
+        Map<String, String> indexConfig = db.index().getConfiguration(index);
+        IndexUpdateTransactionEventHandler.LifeCycle lifeCycle = IndexUpdateTransactionEventHandler.lifeCycle(db);
+        if (lifeCycle != null) {
+            lifeCycle.indexChanged(name, indexConfig);
+        }
+        return Stream.of(new IndexInfo(NODE, name, indexConfig));
     }
 
     private Index<Node> getNodeIndex(@Name("name") String name, @Name("config") Map<String, String> config) {
@@ -89,6 +94,10 @@ public class FulltextIndex {
             Index<Node> index = mgr.forNodes(name);
             indexInfos.add(new IndexInfo(NODE, name, mgr.getConfiguration(index)));
             index.delete();
+            IndexUpdateTransactionEventHandler.LifeCycle lifeCycle = IndexUpdateTransactionEventHandler.lifeCycle(db);
+            if (lifeCycle != null) {
+                lifeCycle.indexRemoved(name);
+            }
         }
         if (mgr.existsForRelationships(name)) {
             RelationshipIndex index = mgr.forRelationships(name);
@@ -0,0 +1,174 @@
+package apoc.index;
+
+import apoc.util.Util;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.index.Index;
+import org.neo4j.index.lucene.ValueContext;
+import org.neo4j.kernel.api.ReadOperations;
+import org.neo4j.kernel.api.StatementConstants;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static apoc.index.FreeTextSearch.KEY;
+
+/**
+ * Populates a free text index from the label scan store instead of walking all nodes.
+ *
+ * The node ids of each label are read in ascending order and cut into batches of consecutive ids, every batch is
+ * indexed by a worker of the pool in its own transaction. Each label only adds its own fields, so a node with several
+ * indexed labels is handled once per label, exactly like a single threaded scan would do.
+ * The progress of running and finished populations is kept per index name.
+ */
+public class IndexPopulator {
+    public static final int DEFAULT_BATCH_SIZE = 10_000;
+
+    private static final Map<String, Progress> PROGRESS = new ConcurrentHashMap<>();
+
+    private final GraphDatabaseAPI db;
+    private final ExecutorService pool;
+    private final int batchSize;
+
+    public IndexPopulator(GraphDatabaseAPI db, ExecutorService pool, int batchSize) {
+        this.db = db;
+        this.pool = pool;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * @param structure the properties to index per label, an empty array for all properties
+     * @return the number of indexed properties per label and property name
+     */
+    public Map<String, Map<String, Long>> populate(String name, Index<Node> index, Map<String, String[]> structure) {
+        Progress progress = new Progress(name);
+        PROGRESS.put(name, progress);
+        try {
+            Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+            List<Future<Map<String, Map<String, Long>>>> futures = new ArrayList<>();
+            try (Transaction tx = db.beginTx()) {
+                ReadOperations ops = db.getDependencyResolver().resolveDependency(ThreadToStatementContextBridge.class).get().readOperations();
+                Map<String, Integer> labelIds = new LinkedHashMap<>();
+                for (String label : structure.keySet()) {
+                    int labelId = ops.labelGetForName(label);
+                    if (labelId == StatementConstants.NO_SUCH_LABEL) continue;
+                    labelIds.put(label, labelId);
+                    progress.total.addAndGet(ops.countsForNode(labelId));
+                }
+                for (Map.Entry<String, Integer> entry : labelIds.entrySet()) {
+                    String label = entry.getKey();
+                    String[] keys = structure.get(label);
+                    PrimitiveLongIterator it = ops.nodesGetForLabel(entry.getValue());
+                    long[] batch = new long[batchSize];
+                    int size = 0;
+                    while (it.hasNext()) {
+                        batch[size++] = it.next();
+                        if (size == batchSize) {
+                            futures.add(submit(index, label, keys, batch, size, progress));
+                            batch = new long[batchSize];
+                            size = 0;
+                        }
+                    }
+                    if (size > 0) futures.add(submit(index, label, keys, batch, size, progress));
+                }
+                tx.success();
+            }
+            for (Future<Map<String, Map<String, Long>>> future : futures) {
+                future.get().forEach((label, counts) -> {
+                    Map<String, Long> merged = stats.computeIfAbsent(label, l -> new LinkedHashMap<>());
+                    counts.forEach((key, count) -> merged.merge(key, count, Long::sum));
+                });
+            }
+            progress.finish(null);
+            return stats;
+        } catch (Exception e) {
+            progress.finish(e);
+            throw new RuntimeException("Error populating index " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    private Future<Map<String, Map<String, Long>>> submit(Index<Node> index, String label, String[] keys, long[] nodeIds, int size, Progress progress) {
+        return Util.inTxFuture(pool, db, () -> {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                Node node;
+                try {
+                    node = db.getNodeById(nodeIds[i]);
+                } catch (NotFoundException deleted) {
+                    continue;
+                }
+                Map<String, Object> properties = keys.length == 0 ? node.getAllProperties() : node.getProperties(keys);
+                for (Map.Entry<String, Object> entry : properties.entrySet()) {
+                    Object value = entry.getValue();
+                    index.add(node, KEY, value.toString());
+                    if (value instanceof Number) {
+                        value = ValueContext.numeric(((Number) value).doubleValue());
+                    }
+                    index.add(node, label + "." + entry.getKey(), value);
+                    counts.merge(entry.getKey(), 1L, Long::sum);
+                }
+            }
+            progress.indexed.addAndGet(size);
+            return Collections.singletonMap(label, counts);
+        });
+    }
+
+    public static Stream<PopulationStatus> status(String name) {
+        if (name == null || name.isEmpty()) return PROGRESS.values().stream().map(Progress::status);
+        Progress progress = PROGRESS.get(name);
+        return progress == null ? Stream.empty() : Stream.of(progress.status());
+    }
+
+    private static class Progress {
+        final String index;
+        final long started = System.currentTimeMillis();
+        final AtomicLong total = new AtomicLong();
+        final AtomicLong indexed = new AtomicLong();
+        volatile String state = "RUNNING";
+        volatile String error;
+        volatile long finished;
+
+        Progress(String index) {
+            this.index = index;
+        }
+
+        void finish(Exception e) {
+            finished = System.currentTimeMillis();
+            error = e == null ? null : e.getMessage();
+            state = e == null ? "DONE" : "FAILED";
+        }
+
+        PopulationStatus status() {
+            long end = finished == 0 ? System.currentTimeMillis() : finished;
+            return new PopulationStatus(index, state, total.get(), indexed.get(), end - started, error);
+        }
+    }
+
+    public static class PopulationStatus {
+        public final String index;
+        public final String state;
+        public final long total;
+        public final long indexed;
+        public final double progress;
+        public final long elapsedMillis;
+        public final String error;
+
+        public PopulationStatus(String index, String state, long total, long indexed, long elapsedMillis, String error) {
+            this.index = index;
+            this.state = state;
+            this.total = total;
+            this.indexed = indexed;
+            this.progress = total == 0 ? 1d : Math.min(1d, (double) indexed / total);
+            this.elapsedMillis = elapsedMillis;
+            this.error = error;
+        }
+    }
+}
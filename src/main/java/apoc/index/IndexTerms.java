@@ -0,0 +1,214 @@
+package apoc.index;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.NumericUtils;
+import org.apache.lucene.util.StringHelper;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Reads the distinct values of a Lucene schema index from its terms, lazily and in index order:
+ * numbers ascending, then strings, then booleans.
+ * Counts only include live documents, nodes deleted since the last segment merge are not counted.
+ */
+public class IndexTerms {
+    public static final String NUMBER = "number", STRING = "string", BOOL = "bool";
+
+    private final IndexReader reader;
+    private final Bits liveDocs;
+
+    public IndexTerms(IndexReader reader) {
+        this.reader = reader;
+        this.liveDocs = MultiFields.getLiveDocs(reader);
+    }
+
+    public static class Term {
+        public final Object value;
+        public final long count;
+
+        Term(Object value, long count) {
+            this.value = value;
+            this.count = count;
+        }
+    }
+
+    public static class Bucket {
+        public final String type;
+        public final long bucket;
+        public final Object min;
+        public Object max;
+        public long count;
+        public long distinct;
+
+        Bucket(String type, long bucket, Object min) {
+            this.type = type;
+            this.bucket = bucket;
+            this.min = min;
+        }
+    }
+
+    /**
+     * @param prefix only strings starting with it, all values of all types if null
+     */
+    public Iterator<Term> values(String prefix) {
+        if (prefix != null) return strings(prefix);
+        return concat(Arrays.asList(this::numbers, () -> strings(null), this::booleans));
+    }
+
+    public Iterator<Term> numbers() {
+        return new TermIterator(NUMBER, null, IndexTerms::number);
+    }
+
+    public Iterator<Term> strings(String prefix) {
+        return new TermIterator(STRING, prefix == null ? null : new BytesRef(prefix), BytesRef::utf8ToString);
+    }
+
+    public Iterator<Term> booleans() {
+        return new TermIterator(BOOL, null, term -> Boolean.valueOf(term.utf8ToString()));
+    }
+
+    /**
+     * Equi-depth histogram of the numbers and of the strings, each split into at most <code>buckets</code> buckets
+     * with about the same number of nodes. A value is never split across buckets.
+     */
+    public List<Bucket> histogram(int buckets) {
+        List<Bucket> result = new ArrayList<>();
+        histogram(NUMBER, this::numbers, buckets, result);
+        histogram(STRING, () -> strings(null), buckets, result);
+        return result;
+    }
+
+    private static void histogram(String type, Supplier<Iterator<Term>> terms, int buckets, List<Bucket> result) {
+        long total = 0;
+        for (Iterator<Term> it = terms.get(); it.hasNext(); ) total += it.next().count;
+        if (total == 0) return;
+        buckets = Math.max(1, buckets);
+        long seen = 0;
+        int index = 0, emitted = 0;
+        Bucket bucket = null;
+        for (Iterator<Term> it = terms.get(); it.hasNext(); ) {
+            Term term = it.next();
+            if (bucket == null) result.add(bucket = new Bucket(type, emitted++, term.value));
+            bucket.max = term.value;
+            bucket.count += term.count;
+            bucket.distinct++;
+            seen += term.count;
+            // upper boundary of the current bucket in number of nodes
+            if (seen >= total * (index + 1) / buckets && index < buckets - 1) {
+                bucket = null;
+                while (index < buckets - 1 && seen >= total * (index + 1) / buckets) index++;
+            }
+        }
+    }
+
+    private static Object number(BytesRef term) {
+        double value = NumericUtils.sortableLongToDouble(NumericUtils.prefixCodedToLong(term));
+        // integral values are indexed as doubles too, return them as they were most likely stored
+        if (value == Math.rint(value) && Math.abs(value) < (1L << 53)) return (long) value;
+        return value;
+    }
+
+    private static <T> Iterator<T> concat(List<Supplier<Iterator<T>>> iterators) {
+        return new Iterator<T>() {
+            int pos = 0;
+            Iterator<T> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && pos < iterators.size()) current = iterators.get(pos++).get();
+                return current.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return current.next();
+            }
+        };
+    }
+
+    private class TermIterator implements Iterator<Term> {
+        private final String field;
+        private final BytesRef prefix;
+        private final Function<BytesRef, Object> decode;
+        private TermsEnum terms;
+        private PostingsEnum postings;
+        private Term next;
+        private boolean started;
+
+        TermIterator(String field, BytesRef prefix, Function<BytesRef, Object> decode) {
+            this.field = field;
+            this.prefix = prefix;
+            this.decode = decode;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) return true;
+            try {
+                BytesRef term;
+                while ((term = nextTerm()) != null) {
+                    long count = count();
+                    if (count > 0) {
+                        next = new Term(decode.apply(term), count);
+                        return true;
+                    }
+                }
+                return false;
+            } catch (IOException e) {
+                throw new RuntimeException("Error reading terms of index field " + field, e);
+            }
+        }
+
+        @Override
+        public Term next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Term term = next;
+            next = null;
+            return term;
+        }
+
+        private BytesRef nextTerm() throws IOException {
+            BytesRef term;
+            if (!started) {
+                started = true;
+                Terms fieldTerms = MultiFields.getTerms(reader, field);
+                if (fieldTerms == null) return null;
+                terms = fieldTerms.iterator();
+                if (prefix != null) {
+                    term = terms.seekCeil(prefix) == TermsEnum.SeekStatus.END ? null : terms.term();
+                } else {
+                    term = terms.next();
+                }
+            } else {
+                term = terms == null ? null : terms.next();
+            }
+            if (term == null) return done();
+            // numeric fields also contain lower precision terms, they sort after the full precision ones
+            if (field.equals(NUMBER) && term.bytes[term.offset] != NumericUtils.SHIFT_START_LONG) return done();
+            if (prefix != null && !StringHelper.startsWith(term, prefix)) return done();
+            return term;
+        }
+
+        private BytesRef done() {
+            terms = null;
+            return null;
+        }
+
+        private long count() throws IOException {
+            if (liveDocs == null) return terms.docFreq();
+            postings = terms.postings(postings, PostingsEnum.NONE);
+            long count = 0;
+            for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+                if (liveDocs.get(doc)) count++;
+            }
+            return count;
+        }
+    }
+}
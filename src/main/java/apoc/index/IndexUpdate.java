@@ -0,0 +1,44 @@
+package apoc.index;
+
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.index.Index;
+
+/**
+ * A change of one indexed field of a node: optionally remove the field (and the node's entries in the search field),
+ * then optionally add the new value to both of them.
+ */
+public class IndexUpdate {
+    public final Index<Node> index;
+    public final Node node;
+    public final String key;
+    public final boolean remove;
+    public final boolean add;
+    public final Object value;
+
+    public IndexUpdate(Index<Node> index, Node node, String key, boolean remove, boolean add, Object value) {
+        this.index = index;
+        this.node = node;
+        this.key = key;
+        this.remove = remove;
+        this.add = add;
+        this.value = value;
+    }
+
+    /**
+     * @return a single update with the same effect as applying this one and then the later one
+     */
+    public IndexUpdate merge(IndexUpdate later) {
+        return new IndexUpdate(index, node, key, remove || later.remove, later.add, later.value);
+    }
+
+    public void apply() {
+        if (remove) {
+            index.remove(node, key);
+            index.remove(node, FreeTextSearch.KEY);
+        }
+        if (add) {
+            index.add(node, key, value);
+            index.add(node, FreeTextSearch.KEY, value);
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package apoc.index;
 
 import apoc.ApocConfiguration;
+import apoc.ApocKernelExtensionFactory;
 import apoc.Pools;
 import apoc.util.Util;
 import org.apache.commons.lang3.time.StopWatch;
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveIntIterator;
+import org.neo4j.collection.primitive.PrimitiveLongObjectMap;
+import org.neo4j.collection.primitive.PrimitiveLongSet;
 import org.neo4j.graphdb.*;
 import org.neo4j.graphdb.event.LabelEntry;
 import org.neo4j.graphdb.event.PropertyEntry;
@@ -12,51 +17,50 @@ import org.neo4j.graphdb.event.TransactionEventHandler;
 import org.neo4j.graphdb.index.Index;
 import org.neo4j.graphdb.index.IndexManager;
 import org.neo4j.kernel.KernelApi;
-import org.neo4j.helpers.collection.Iterables;
+import org.neo4j.kernel.api.KernelTransaction;
+import org.neo4j.kernel.api.ReadOperations;
+import org.neo4j.kernel.api.exceptions.EntityNotFoundException;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
-import org.neo4j.kernel.lifecycle.LifeSupport;
 import org.neo4j.logging.Log;
 
 import java.util.*;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import static org.neo4j.helpers.collection.Iterables.stream;
-import static org.neo4j.helpers.collection.Iterators.*;
 
 /**
  * a transaction event handler that updates manual indexes based on configuration in graph properties
  * based on configuration the updates are process synchronously via {@link #beforeCommit(TransactionData)} or async via
- * {@link #afterCommit(TransactionData, Collection<Consumer<Void>)}
+ * {@link #afterCommit(TransactionData, Collection)} and the {@link AsyncIndexUpdater}
  * @author Stefan Armbruster
  */
-public class IndexUpdateTransactionEventHandler extends TransactionEventHandler.Adapter<Collection<Consumer<Void>>> {
+public class IndexUpdateTransactionEventHandler extends TransactionEventHandler.Adapter<Collection<IndexUpdate>> {
 
     private final GraphDatabaseService graphDatabaseService;
     private final boolean async;
 
-    private final BlockingQueue<Consumer<Void>> indexCommandQueue ;
+    private AsyncIndexUpdater asyncUpdater;
     private final boolean stopWatchEnabled;
     private final Log log;
-    private Map<String, Map<String, Collection<Index<Node>>>> indexesByLabelAndProperty;
+    private final ThreadToStatementContextBridge ctx;
+    private volatile AutoIndexConfig config;
     private ScheduledFuture<?> configUpdateFuture = null;
 
-    public IndexUpdateTransactionEventHandler(GraphDatabaseAPI graphDatabaseService, Log log, boolean async, int queueCapacity, boolean stopWatchEnabled) {
+    public IndexUpdateTransactionEventHandler(GraphDatabaseAPI graphDatabaseService, Log log, boolean async, boolean stopWatchEnabled) {
         this.graphDatabaseService = graphDatabaseService;
         this.log = log;
         this.async = async;
-        this.indexCommandQueue = new LinkedBlockingQueue<>(queueCapacity);
         this.stopWatchEnabled = stopWatchEnabled;
+        this.ctx = graphDatabaseService.getDependencyResolver().resolveDependency(ThreadToStatementContextBridge.class);
     }
 
-    public BlockingQueue<Consumer<Void>> getIndexCommandQueue() {
-        return indexCommandQueue;
+    public AsyncIndexUpdater getAsyncUpdater() {
+        return asyncUpdater;
     }
 
     @FunctionalInterface
@@ -81,43 +85,39 @@ public class IndexUpdateTransactionEventHandler extends TransactionEventHandler.
     }
 
     @Override
-    public Collection<Consumer<Void>> beforeCommit(TransactionData data) throws Exception {
+    public Collection<IndexUpdate> beforeCommit(TransactionData data) throws Exception {
 
-        return (Collection<Consumer<Void>>) logDuration("beforeCommit", () -> {
-            getIndexesByLabelAndProperty();
-            Collection<Consumer<Void>> state = async ? new LinkedList<>() : null;
+        return (Collection<IndexUpdate>) logDuration("beforeCommit", () -> {
+            final AutoIndexConfig config = getConfiguration();
+            Collection<IndexUpdate> state = async ? new ArrayList<>() : null;
+            if (config.isEmpty()) {
+                return state;
+            }
+            final ReadOperations ops = ctx.get().readOperations();
+
+            // computed once per transaction, so all the checks below are constant time
+            final PrimitiveLongSet createdNodeIds = nodeIds(data.createdNodes());
+            final PrimitiveLongSet deletedNodeIds = nodeIds(data.deletedNodes());
+
+            // group property changes by node, so labels are read once per node; removed properties of deleted nodes are skipped
+            final PrimitiveLongObjectMap<NodeChanges> changesByNode = Primitive.longObjectMap();
+            groupByNode(ops, config, data.assignedNodeProperties(), false, deletedNodeIds, changesByNode);
+            groupByNode(ops, config, data.removedNodeProperties(), true, deletedNodeIds, changesByNode);
+            changesByNode.visitEntries((nodeId, changes) -> {
+                iterateNodePropertyChanges(ops, config, changes, (index, node, key, value, oldValue) ->
+                        indexUpdate(state, value == null
+                                ? new IndexUpdate(index, node, key, true, false, null)
+                                : new IndexUpdate(index, node, key, oldValue != null, true, value)));
+                return false;
+            });
 
-            iterateNodePropertyChange(stream(data.assignedNodeProperties()),false, (index, node, key, value, oldValue) -> indexUpdate(state, aVoid -> {
-                if (oldValue != null) {
-                    index.remove(node, key);
-                    index.remove(node, FreeTextSearch.KEY);
-                }
-                index.add(node, key, value);
-                index.add(node, FreeTextSearch.KEY, value);
-            }));
-
-            // filter out removedNodeProperties from node deletions
-            iterateNodePropertyChange(stream(data.removedNodeProperties()).filter(nodePropertyEntry -> !contains(data.deletedNodes().iterator(), nodePropertyEntry.entity())), true, (index, node, key, value, oldValue) -> indexUpdate(state, aVoid -> {
-                index.remove(node, key);
-                index.remove(node, FreeTextSearch.KEY);
-            }));
-
-            // performance tweak: converted create/deleted nodes to a set, so we can apply `contains` on it fast
-            final Set<Node> createdNodes = Iterables.asSet(data.createdNodes());
-            final Set<Node> deletedNodes = Iterables.asSet(data.deletedNodes());
-            iterateLabelChanges(
-                    stream(data.assignedLabels()).filter( labelEntry -> !createdNodes.contains( labelEntry.node() ) ),
-                    (index, node, key, value, ignore) -> indexUpdate(state, aVoid -> {
-                        index.add(node, key, value);
-                        index.add(node, FreeTextSearch.KEY, value);
-                    }));
-
-            iterateLabelChanges(
-                    stream(data.removedLabels()).filter( labelEntry -> !deletedNodes.contains( labelEntry.node() ) ),
-                    (index, node, key, value, ignore) -> indexUpdate(state, aVoid -> {
-                        index.remove(node, key);
-                        index.remove(node, FreeTextSearch.KEY);
-                    }));
+            iterateLabelChanges(ops, config,
+                    stream(data.assignedLabels()).filter( labelEntry -> !createdNodeIds.contains( labelEntry.node().getId() ) ),
+                    (index, node, key, value, ignore) -> indexUpdate(state, new IndexUpdate(index, node, key, false, true, value)));
+
+            iterateLabelChanges(ops, config,
+                    stream(data.removedLabels()).filter( labelEntry -> !deletedNodeIds.contains( labelEntry.node().getId() ) ),
+                    (index, node, key, value, ignore) -> indexUpdate(state, new IndexUpdate(index, node, key, true, false, null)));
 
             return state;
 
@@ -127,112 +127,197 @@ public class IndexUpdateTransactionEventHandler extends TransactionEventHandler.
     }
 
     @Override
-    public void afterCommit(TransactionData data, Collection<Consumer<Void>> state) {
+    public void afterCommit(TransactionData data, Collection<IndexUpdate> state) {
         logDuration("afterCommit", () -> {
-            if (async) {
-                for (Consumer<Void> consumer: state) {
-                    try {
-                        indexCommandQueue.put(consumer);
-                    } catch (InterruptedException e) {
-                        throw new RuntimeException(e);
-                    }
-                }
+            if (async && asyncUpdater != null && !state.isEmpty()) {
+                asyncUpdater.enqueue(state);
             }
             return null;
         });
     }
 
-    private void iterateNodePropertyChange(Stream<PropertyEntry<Node>> stream, boolean propertyRemoved,
+    static PrimitiveLongSet nodeIds(Iterable<Node> nodes) {
+        PrimitiveLongSet ids = Primitive.longSet();
+        for (Node node : nodes) {
+            ids.add(node.getId());
+        }
+        return ids;
+    }
+
+    private static void groupByNode(ReadOperations ops, AutoIndexConfig config, Iterable<PropertyEntry<Node>> entries, boolean removed,
+                                    PrimitiveLongSet deletedNodeIds, PrimitiveLongObjectMap<NodeChanges> changesByNode) {
+        for (PropertyEntry<Node> entry : entries) {
+            int keyId = ops.propertyKeyGetForName(entry.key());
+            if (!config.isIndexedKey(keyId)) continue;
+            long nodeId = entry.entity().getId();
+            if (deletedNodeIds.contains(nodeId)) continue;
+            NodeChanges changes = changesByNode.get(nodeId);
+            if (changes == null) {
+                changesByNode.put(nodeId, changes = new NodeChanges(entry.entity()));
+            }
+            changes.add(keyId, removed ? null : entry.value(), entry.previouslyCommitedValue());
+        }
+    }
+
+    /**
+     * calls the function for the assigned and removed properties of a single node, a removed property is passed with a null value
+     */
+    private void iterateNodePropertyChanges(ReadOperations ops, AutoIndexConfig config, NodeChanges changes,
           IndexFunction<Index<Node>, Node, String, Object, Object> function) {
-        stream.forEach(nodePropertyEntry -> {
-            final Node entity = nodePropertyEntry.entity();
-            final String key = nodePropertyEntry.key();
-            final Object value = propertyRemoved ? null : nodePropertyEntry.value();
-            entity.getLabels().forEach(label -> {
-                final String labelName = label.name();
-                final Map<String, Collection<Index<Node>>> propertyIndexMap = indexesByLabelAndProperty.get(labelName);
-                if (propertyIndexMap!=null) {
-                    final Collection<Index<Node>> indices = propertyIndexMap.get(key);
-                    if (indices!= null) {
-                        for (Index<Node> index : indices) {
-                            String indexKey = labelName + "." + key;
-                            function.apply(index, entity, indexKey, value, nodePropertyEntry.previouslyCommitedValue());
-                        }
-                    }
+        PrimitiveIntIterator labelIds = nodeGetLabels(ops, changes.node.getId());
+        while (labelIds.hasNext()) {
+            AutoIndexConfig.LabelFields fields = config.forLabel(labelIds.next());
+            if (fields == null) continue;
+            for (int i = 0; i < changes.size; i++) {
+                AutoIndexConfig.Field field = fields.field(changes.keyIds[i]);
+                if (field == null) continue;
+                for (Index<Node> index : field.indexes) {
+                    function.apply(index, changes.node, field.indexKey, changes.values[i], changes.oldValues[i]);
                 }
-            });
-        });
+            }
+        }
     }
 
-    private void iterateLabelChanges(Stream<LabelEntry> stream, IndexFunction<Index<Node>, Node, String, Object, Void> function) {
+    private void iterateLabelChanges(ReadOperations ops, AutoIndexConfig config, Stream<LabelEntry> stream,
+          IndexFunction<Index<Node>, Node, String, Object, Void> function) {
         stream.forEach(labelEntry -> {
-            final String labelName = labelEntry.label().name();
-            final Map<String, Collection<Index<Node>>> propertyIndicesMap = indexesByLabelAndProperty.get(labelName);
-            if (propertyIndicesMap != null) {
+            final AutoIndexConfig.LabelFields fields = config.forLabel(ops.labelGetForName(labelEntry.label().name()));
+            if (fields != null) {
                 final Node entity = labelEntry.node();
-                for (String key : entity.getPropertyKeys()) {
-                    Collection<Index<Node>> indices = propertyIndicesMap.get(key);
-                    if (indices != null) {
-                        for (Index<Node> index : indices) {
-                            Object value = entity.getProperty(key);
-                            String indexKey = labelName + "." + key;
-                            function.apply(index, entity, indexKey, value, null);
+                try {
+                    PrimitiveIntIterator keyIds = ops.nodeGetPropertyKeys(entity.getId());
+                    while (keyIds.hasNext()) {
+                        int keyId = keyIds.next();
+                        AutoIndexConfig.Field field = fields.field(keyId);
+                        if (field != null) {
+                            Object value = ops.nodeGetProperty(entity.getId(), keyId);
+                            for (Index<Node> index : field.indexes) {
+                                function.apply(index, entity, field.indexKey, value, null);
+                            }
                         }
                     }
+                } catch (EntityNotFoundException e) {
+                    throw new NotFoundException(e);
                 }
             }
         });
     }
 
+    private static PrimitiveIntIterator nodeGetLabels(ReadOperations ops, long nodeId) {
+        try {
+            return ops.nodeGetLabels(nodeId);
+        } catch (EntityNotFoundException e) {
+            throw new NotFoundException(e);
+        }
+    }
+
+    private static class NodeChanges {
+        final Node node;
+        int size;
+        int[] keyIds = new int[2];
+        Object[] values = new Object[2];
+        Object[] oldValues = new Object[2];
+
+        NodeChanges(Node node) {
+            this.node = node;
+        }
+
+        void add(int keyId, Object value, Object oldValue) {
+            if (size == keyIds.length) {
+                keyIds = Arrays.copyOf(keyIds, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+                oldValues = Arrays.copyOf(oldValues, size * 2);
+            }
+            keyIds[size] = keyId;
+            values[size] = value;
+            oldValues[size] = oldValue;
+            size++;
+        }
+    }
+
     /**
      * in async mode add the index action to a collection for consumption in {@link #afterCommit(TransactionData, Collection)}, in sync mode, run it directly
      */
-    private Void indexUpdate(Collection<Consumer<Void>> state, Consumer<Void> indexAction) {
+    private Void indexUpdate(Collection<IndexUpdate> state, IndexUpdate update) {
         if (state==null) {  // sync
-            indexAction.accept(null);
+            update.apply();
         } else { // async
-            state.add(indexAction);
+            state.add(update);
         }
         return null;
     }
 
-    public Map<String, Map<String, Collection<Index<Node>>>> getIndexesByLabelAndProperty() {
-        if (indexesByLabelAndProperty == null ) {
-            indexesByLabelAndProperty = initIndexConfiguration();
-        }
-        return indexesByLabelAndProperty;
+    public AutoIndexConfig getConfiguration() {
+        AutoIndexConfig current = config;
+        return current == null ? resetConfiguration() : current;
     }
 
-    public void resetConfiguration() {
-        indexesByLabelAndProperty = null;
-    }
-
-    // might be run from a scheduler, so we need to make sure we have a transaction
-    private synchronized Map<String, Map<String, Collection<Index<Node>>>> initIndexConfiguration() {
-        Map<String, Map<String, Collection<Index<Node>>>> indexesByLabelAndProperty = new HashMap<>();
+    /**
+     * Reads the configuration of all manual indexes, used on startup and by the periodic refresh.
+     */
+    public synchronized AutoIndexConfig resetConfiguration() {
+        AutoIndexConfig result = AutoIndexConfig.EMPTY;
         try (Transaction tx = graphDatabaseService.beginTx() ) {
-
             final IndexManager indexManager = graphDatabaseService.index();
             for (String indexName : indexManager.nodeIndexNames()) {
-
-                final Index<Node> index = indexManager.forNodes(indexName);
-
                 Map<String, String> indexConfig = KernelApi.getIndexConfiguration(indexName, graphDatabaseService);
-
                 if (Util.toBoolean(indexConfig.get("autoUpdate"))) {
-                    String labels = indexConfig.getOrDefault("labels", "");
-                    for (String label : labels.split(":")) {
-                        Map<String, Collection<Index<Node>>> propertyKeyToIndexMap = indexesByLabelAndProperty.computeIfAbsent(label, s -> new HashMap<>());
-                        String[] keysForLabel = indexConfig.getOrDefault("keysForLabel:" + label, "").split(":");
-                        for (String property : keysForLabel) {
-                            propertyKeyToIndexMap.computeIfAbsent(property, s -> new ArrayList<>()).add(index);
-                        }
-                    }
+                    result = result.with(indexName, indexManager.forNodes(indexName), indexConfig, ctx.get());
                 }
             }
             tx.success();
         }
-        return indexesByLabelAndProperty;
+        return config = result;
+    }
+
+    /**
+     * Called by the procedures that create or change a node index, within their transaction.
+     * The config is swapped after that transaction commits, the index is looked up again in a new transaction then,
+     * index instances handed to procedures are bound to the procedure's transaction.
+     */
+    public void indexChanged(String name, Map<String, String> indexConfig) {
+        afterCommit(() -> Util.inTx((GraphDatabaseAPI) graphDatabaseService, () -> {
+            synchronized (this) {
+                return config = getConfiguration().with(name, graphDatabaseService.index().forNodes(name), indexConfig, ctx.get());
+            }
+        }));
+    }
+
+    public void indexRemoved(String name) {
+        afterCommit(() -> {
+            synchronized (this) {
+                config = getConfiguration().without(name);
+            }
+        });
+    }
+
+    // runs the config change once the transaction bound to this thread committed, not at all if it rolls back
+    private void afterCommit(Runnable change) {
+        KernelTransaction tx = ctx.getKernelTransactionBoundToThisThread(false);
+        if (tx == null) {
+            change.run();
+            return;
+        }
+        tx.registerCloseListener(txId -> {
+            if (txId == KernelTransaction.ROLLBACK) return;
+            try {
+                change.run();
+            } catch (RuntimeException e) {
+                log.warn("Error applying changed auto index configuration, it is picked up by the next refresh", e);
+            }
+        });
+    }
+
+    /**
+     * @return the auto index life cycle of the database, null if the APOC kernel extension is not loaded
+     */
+    static LifeCycle lifeCycle(GraphDatabaseService db) {
+        try {
+            ApocKernelExtensionFactory.ApocLifecycle apocLifecycle = ((GraphDatabaseAPI) db).getDependencyResolver().resolveDependency(ApocKernelExtensionFactory.ApocLifecycle.class);
+            return apocLifecycle == null ? null : apocLifecycle.getIndexUpdateLifeCycle();
+        } catch (RuntimeException notRegistered) {
+            return null;
+        }
     }
 
     public static class LifeCycle {
@@ -250,89 +335,87 @@ public class IndexUpdateTransactionEventHandler extends TransactionEventHandler.
             if (enabled) {
                 boolean async = ApocConfiguration.isEnabled("autoIndex.async");
                 boolean stopWatchEnabled = ApocConfiguration.isEnabled("autoIndex.tx_handler_stopwatch");
-                int queueCapacity = Integer.parseInt(ApocConfiguration.get("autoIndex.queue_capacity", "100000"));
-                indexUpdateTransactionEventHandler = new IndexUpdateTransactionEventHandler(db, log, async, queueCapacity, stopWatchEnabled);
+                indexUpdateTransactionEventHandler = new IndexUpdateTransactionEventHandler(db, log, async, stopWatchEnabled);
                 if (async) {
-                    startIndexTrackingThread(db, indexUpdateTransactionEventHandler.getIndexCommandQueue(),
+                    indexUpdateTransactionEventHandler.startAsyncUpdater(
+                            Integer.parseInt(ApocConfiguration.get("autoIndex.queue_capacity", "100000")),
                             Long.parseLong(ApocConfiguration.get("autoIndex.async_rollover_opscount", "50000")),
-                            Long.parseLong(ApocConfiguration.get("autoIndex.async_rollover_millis", "5000")),
-                            log
+                            Long.parseLong(ApocConfiguration.get("autoIndex.async_rollover_millis", "5000"))
                     );
                 }
                 db.registerTransactionEventHandler(indexUpdateTransactionEventHandler);
-                long indexConfigUpdateInternal = Util.toLong(ApocConfiguration.get("autoIndex.configUpdateInterval",10l));
-                if (indexConfigUpdateInternal > 0) {
-                    indexUpdateTransactionEventHandler.startPeriodicIndexConfigChangeUpdates(indexConfigUpdateInternal);
+                // picks up index changes made without the APOC procedures, e.g. on other cluster members
+                long indexConfigUpdateInterval = Util.toLong(ApocConfiguration.get("autoIndex.configUpdateInterval", 10L));
+                if (indexConfigUpdateInterval > 0) {
+                    indexUpdateTransactionEventHandler.startPeriodicIndexConfigChangeUpdates(indexConfigUpdateInterval);
                 }
             }
         }
-        private void startIndexTrackingThread(GraphDatabaseAPI db, BlockingQueue<Consumer<Void>> indexCommandQueue, long opsCountRollover, long millisRollover, Log log) {
-            new Thread(() -> {
-                Transaction tx = db.beginTx();
-                int opsCount = 0;
-                long lastCommit = System.currentTimeMillis();
-                try {
-                    while (true) {
-                        Consumer<Void> indexCommand = indexCommandQueue.poll(millisRollover, TimeUnit.MILLISECONDS);
-                        long now = System.currentTimeMillis();
-                        if ((opsCount>0) && ((now - lastCommit > millisRollover) || (opsCount >= opsCountRollover))) {
-                            tx.success();
-                            tx.close();
-                            tx = db.beginTx();
-                            log.info("background indexing thread doing tx rollover, opscount " + opsCount + ", millis since last rollover " + (now-lastCommit));
-                            lastCommit = now;
-                            opsCount = 0;
-                        }
-                        if (indexCommand == null) {
-                            boolean running = db.getDependencyResolver().resolveDependency(LifeSupport.class).isRunning();
-                            if (running) {
-                                // in case we couldn't get anything from queue, we'll update lastcommit to prevent too early commits
-                                if (opsCount==0) {
-                                    lastCommit = now;
-                                }
-                            } else {
-                                // check if a database shutdown is already in progress, if so, terminate this thread
-                                log.info("system shutdown detected, terminating indexing background thread");
-                                break;
-                            }
-                        } else {
-                            opsCount++;
-                            indexCommand.accept(null);
-                        }
-                    }
-                } catch (InterruptedException e) {
-                    log.error(e.getMessage(), e);
-                    throw new RuntimeException(e);
-                } finally {
-                    tx.success();
-                    tx.close();
-                    log.info("stopping background thread for async index updates");
-                }
-            }).start();
-            log.info("started background thread for async index updates");
-        }
 
         public void stop() {
             if (indexUpdateTransactionEventHandler!=null) {
                 db.unregisterTransactionEventHandler(indexUpdateTransactionEventHandler);
                 indexUpdateTransactionEventHandler.stopPeriodicIndexConfigChangeUpdates();
+                indexUpdateTransactionEventHandler.stopAsyncUpdater();
             }
         }
 
+        public Map<String, Object> asyncMetrics() {
+            AsyncIndexUpdater updater = indexUpdateTransactionEventHandler == null ? null : indexUpdateTransactionEventHandler.getAsyncUpdater();
+            return updater == null ? null : updater.metrics();
+        }
+
+        /**
+         * Applies the pending async index updates now, waits at most the given time for that.
+         * @return false if they were not applied in time, true as well if updates are synchronous
+         */
+        public boolean flushAsyncUpdates(long timeoutMillis) {
+            AsyncIndexUpdater updater = indexUpdateTransactionEventHandler == null ? null : indexUpdateTransactionEventHandler.getAsyncUpdater();
+            return updater == null || updater.flush(timeoutMillis);
+        }
+
         public void resetConfiguration() {
             if (indexUpdateTransactionEventHandler!=null) {
                 indexUpdateTransactionEventHandler.resetConfiguration();
             }
         }
+
+        public void indexChanged(String name, Map<String, String> config) {
+            if (indexUpdateTransactionEventHandler!=null) {
+                indexUpdateTransactionEventHandler.indexChanged(name, config);
+            }
+        }
+
+        public void indexRemoved(String name) {
+            if (indexUpdateTransactionEventHandler!=null) {
+                indexUpdateTransactionEventHandler.indexRemoved(name);
+            }
+        }
+    }
+
+    private void startAsyncUpdater(int capacity, long rolloverOps, long rolloverMillis) {
+        asyncUpdater = new AsyncIndexUpdater((GraphDatabaseAPI) graphDatabaseService, log, capacity, rolloverOps, rolloverMillis);
+        asyncUpdater.start();
     }
 
-    private void startPeriodicIndexConfigChangeUpdates(long indexConfigUpdateInternal) {
-        configUpdateFuture = Pools.SCHEDULED.scheduleAtFixedRate(() ->
-                indexesByLabelAndProperty = initIndexConfiguration(), indexConfigUpdateInternal, indexConfigUpdateInternal, TimeUnit.SECONDS);
+    private void stopAsyncUpdater() {
+        if (asyncUpdater != null) {
+            asyncUpdater.stop(10_000);
+        }
+    }
+
+    private void startPeriodicIndexConfigChangeUpdates(long indexConfigUpdateInterval) {
+        configUpdateFuture = Pools.SCHEDULED.scheduleAtFixedRate(() -> {
+            try {
+                resetConfiguration();
+            } catch (RuntimeException e) {
+                log.warn("Error refreshing the auto index configuration", e);
+            }
+        }, indexConfigUpdateInterval, indexConfigUpdateInterval, TimeUnit.SECONDS);
     }
 
     private void stopPeriodicIndexConfigChangeUpdates() {
-        if (configUpdateFuture!=null) {
+        if (configUpdateFuture != null) {
             configUpdateFuture.cancel(true);
         }
     }
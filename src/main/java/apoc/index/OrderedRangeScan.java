@@ -0,0 +1,298 @@
+package apoc.index;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.NumericUtils;
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Value ordered range scan over a Lucene schema index.
+ *
+ * Instead of collecting all matching documents, every segment walks the terms of the value field in order
+ * starting at the lower bound, the node ids of a term are sorted, and the segments are merged lazily,
+ * so the scan stops as soon as <code>limit</code> nodes were returned. The order is by value, then node id,
+ * which allows keyset pagination by passing the value and node id of the last returned node as <code>after</code>.
+ *
+ * Terms can only be read forward. A descending scan over numbers reads windows of growing size from the upper bound down,
+ * a descending scan over strings reads the whole range but only keeps the last <code>limit</code> nodes.
+ */
+public class OrderedRangeScan {
+    private static final String NUMBER = "number", STRING = "string", ID = "id";
+
+    private final IndexSearcher searcher;
+    private final boolean numeric;
+    private final String field;
+
+    public OrderedRangeScan(IndexSearcher searcher, boolean numeric) {
+        this.searcher = searcher;
+        this.numeric = numeric;
+        this.field = numeric ? NUMBER : STRING;
+    }
+
+    /**
+     * @param min lower bound, inclusive, null for none
+     * @param max upper bound, inclusive, null for none
+     * @param after value of the last node of the previous page, null for the first page
+     * @param afterId node id of the last node of the previous page
+     * @param limit maximum number of nodes, 0 or less for all
+     */
+    public PrimitiveLongIterator scan(Object min, Object max, boolean descending, Object after, long afterId, long limit) {
+        BytesRef lower = term(min), upper = term(max), afterTerm = term(after);
+        if (descending) {
+            if (afterTerm != null && (upper == null || afterTerm.compareTo(upper) < 0)) upper = afterTerm;
+        } else {
+            if (afterTerm != null && (lower == null || afterTerm.compareTo(lower) > 0)) lower = afterTerm;
+        }
+        Skip skip = afterTerm == null ? null : new Skip(afterTerm, afterId, descending);
+        PrimitiveLongIterator result;
+        if (!descending) {
+            result = ids(new Merged(lower, upper, skip));
+        } else if (numeric && limit > 0) {
+            result = new Windows(lower, upper, skip, limit);
+        } else {
+            result = lastOf(new Merged(lower, upper, skip), limit);
+        }
+        return limit > 0 ? PrimitiveLongCollections.limit(result, (int) Math.min(limit, Integer.MAX_VALUE)) : result;
+    }
+
+    private BytesRef term(Object value) {
+        if (value == null) return null;
+        if (numeric) return numericTerm(NumericUtils.doubleToSortableLong(((Number) value).doubleValue()));
+        return new BytesRef(value.toString());
+    }
+
+    private static BytesRef numericTerm(long sortable) {
+        BytesRefBuilder builder = new BytesRefBuilder();
+        NumericUtils.longToPrefixCoded(sortable, 0, builder);
+        return builder.toBytesRef();
+    }
+
+    private static PrimitiveLongIterator ids(Iterator<Hit> hits) {
+        return new PrimitiveLongCollections.PrimitiveLongBaseIterator() {
+            @Override
+            protected boolean fetchNext() {
+                return hits.hasNext() && next(hits.next().nodeId);
+            }
+        };
+    }
+
+    // forward scan that only keeps the last nodes, returned in reverse order
+    private static PrimitiveLongIterator lastOf(Iterator<Hit> hits, long limit) {
+        ArrayDeque<Long> last = new ArrayDeque<>();
+        while (hits.hasNext()) {
+            last.addFirst(hits.next().nodeId);
+            if (limit > 0 && last.size() > limit) last.removeLast();
+        }
+        Iterator<Long> it = last.iterator();
+        return new PrimitiveLongCollections.PrimitiveLongBaseIterator() {
+            @Override
+            protected boolean fetchNext() {
+                return it.hasNext() && next(it.next());
+            }
+        };
+    }
+
+    private static class Hit {
+        BytesRef term;
+        long nodeId;
+    }
+
+    private static class Skip {
+        final BytesRef term;
+        final long nodeId;
+        final boolean descending;
+
+        Skip(BytesRef term, long nodeId, boolean descending) {
+            this.term = term;
+            this.nodeId = nodeId;
+            this.descending = descending;
+        }
+
+        boolean skip(BytesRef term, long nodeId) {
+            return this.term.bytesEquals(term) && (descending ? nodeId >= this.nodeId : nodeId <= this.nodeId);
+        }
+    }
+
+    /**
+     * The terms of one segment from the lower to the upper bound, with the live node ids of the current term sorted.
+     */
+    private class Cursor {
+        final TermsEnum terms;
+        final Bits liveDocs;
+        final NumericDocValues ids;
+        final BytesRef upper;
+        PostingsEnum postings;
+        BytesRef term;
+        long[] nodeIds = new long[8];
+        int count, pos;
+
+        Cursor(LeafReader reader, Terms terms, BytesRef lower, BytesRef upper) throws IOException {
+            this.terms = terms.iterator();
+            this.liveDocs = reader.getLiveDocs();
+            this.ids = reader.getNumericDocValues(ID);
+            this.upper = upper;
+            if (lower == null) {
+                term = this.terms.next();
+            } else {
+                term = this.terms.seekCeil(lower) == TermsEnum.SeekStatus.END ? null : this.terms.term();
+            }
+            load();
+        }
+
+        // reads the node ids of the current term, moves on to the next term if they are all deleted
+        private void load() throws IOException {
+            while (term != null) {
+                if (numeric && term.bytes[term.offset] != NumericUtils.SHIFT_START_LONG) term = null; // lower precision terms follow
+                else if (upper != null && term.compareTo(upper) > 0) term = null;
+                if (term == null || ids == null) {
+                    term = null;
+                    return;
+                }
+                postings = terms.postings(postings, PostingsEnum.NONE);
+                count = 0;
+                pos = 0;
+                for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+                    if (liveDocs != null && !liveDocs.get(doc)) continue;
+                    if (count == nodeIds.length) nodeIds = Arrays.copyOf(nodeIds, count * 2);
+                    nodeIds[count++] = ids.get(doc);
+                }
+                if (count > 0) {
+                    Arrays.sort(nodeIds, 0, count);
+                    return;
+                }
+                term = terms.next();
+            }
+        }
+
+        boolean advance() throws IOException {
+            if (++pos < count) return true;
+            term = terms.next();
+            load();
+            return term != null;
+        }
+
+        long nodeId() {
+            return nodeIds[pos];
+        }
+    }
+
+    /**
+     * Lazy merge of the segment cursors in value and node id order.
+     */
+    private class Merged implements Iterator<Hit> {
+        private final PriorityQueue<Cursor> queue = new PriorityQueue<>((a, b) -> {
+            int cmp = a.term.compareTo(b.term);
+            return cmp != 0 ? cmp : Long.compare(a.nodeId(), b.nodeId());
+        });
+        private final Skip skip;
+        private final Hit hit = new Hit();
+        private boolean ready;
+
+        Merged(BytesRef lower, BytesRef upper, Skip skip) {
+            this.skip = skip;
+            if (lower == null || upper == null || lower.compareTo(upper) <= 0) {
+                try {
+                    for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                        Terms terms = leaf.reader().terms(field);
+                        if (terms == null) continue;
+                        Cursor cursor = new Cursor(leaf.reader(), terms, lower, upper);
+                        if (cursor.term != null) queue.add(cursor);
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException("Error scanning index", e);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (!ready && !queue.isEmpty()) {
+                    Cursor cursor = queue.poll();
+                    hit.term = BytesRef.deepCopyOf(cursor.term);
+                    hit.nodeId = cursor.nodeId();
+                    if (cursor.advance()) queue.add(cursor);
+                    ready = skip == null || !skip.skip(hit.term, hit.nodeId);
+                }
+                return ready;
+            } catch (IOException e) {
+                throw new RuntimeException("Error scanning index", e);
+            }
+        }
+
+        @Override
+        public Hit next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            ready = false;
+            return hit;
+        }
+    }
+
+    /**
+     * Descending numeric scan, reads windows of the sortable long value space from the upper bound down,
+     * each window twice as large as the previous one.
+     */
+    private class Windows extends PrimitiveLongCollections.PrimitiveLongBaseIterator {
+        private final long lowest;
+        private final Skip skip;
+        private long high, size;
+        private boolean done;
+        private long[] window = new long[0];
+        private int pos;
+
+        Windows(BytesRef lower, BytesRef upper, Skip skip, long limit) {
+            this.skip = skip;
+            long min = Long.MAX_VALUE, max = Long.MIN_VALUE, docs = 0;
+            try {
+                for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                    Terms terms = leaf.reader().terms(field);
+                    if (terms == null) continue;
+                    Long leafMin = NumericUtils.getMinLong(terms), leafMax = NumericUtils.getMaxLong(terms);
+                    if (leafMin == null || leafMax == null) continue;
+                    min = Math.min(min, leafMin);
+                    max = Math.max(max, leafMax);
+                    docs += leaf.reader().numDocs();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Error scanning index", e);
+            }
+            this.lowest = lower == null ? min : Math.max(min, NumericUtils.prefixCodedToLong(lower));
+            this.high = upper == null ? max : Math.min(max, NumericUtils.prefixCodedToLong(upper));
+            this.done = docs == 0 || high < lowest;
+            // start with the share of the value range expected to hold the limit if values were evenly spread
+            double expected = ((double) high - (double) lowest) * limit / Math.max(1, docs);
+            this.size = (long) Math.max(1, Math.min(expected, Long.MAX_VALUE / 4));
+        }
+
+        @Override
+        protected boolean fetchNext() {
+            while (pos == window.length) {
+                if (done) return false;
+                long low = high - size;
+                if (low > high || low <= lowest) {
+                    low = lowest;
+                    done = true;
+                }
+                List<Long> ids = new ArrayList<>();
+                Merged hits = new Merged(numericTerm(low), numericTerm(high), skip);
+                while (hits.hasNext()) ids.add(hits.next().nodeId);
+                window = new long[ids.size()];
+                for (int i = 0; i < window.length; i++) window[i] = ids.get(window.length - 1 - i);
+                pos = 0;
+                if (!done) {
+                    high = low - 1;
+                    size = size > Long.MAX_VALUE / 4 ? size : size * 2;
+                }
+            }
+            return next(window[pos++]);
+        }
+    }
+}
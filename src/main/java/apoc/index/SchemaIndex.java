@@ -6,10 +6,6 @@ import org.neo4j.procedure.Description;
 import apoc.result.ListResult;
 import apoc.result.NodeResult;
 import apoc.util.Util;
-import org.apache.lucene.index.Fields;
-import org.apache.lucene.index.MultiFields;
-import org.apache.lucene.index.Terms;
-import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.Sort;
 import org.neo4j.collection.primitive.PrimitiveLongIterator;
 import org.neo4j.kernel.api.KernelTransaction;
@@ -59,7 +55,6 @@ public class SchemaIndex {
             relationship = relationship.substring(0, relationship.length() - 1);
         }
         RelationshipType type = RelationshipType.withName(relationship);
-        System.out.println(distinctTerms(label, key));
         List<Node> result = new ArrayList<>((int) limit);
         boolean reverse = false;
 //        SortField sortField = new SortField("number" /*string*/, SortField.Type.STRING, reverse);
@@ -83,12 +78,14 @@ public class SchemaIndex {
     }
 
     @Procedure
-    @Description("apoc.index.orderedRange(label,key,min,max,sort-relevance,limit) yield node - schema range scan which keeps index order and adds limit, values can be null, boundaries are inclusive")
-    public Stream<NodeResult> orderedRange(@Name("label") String label, @Name("key") String key, @Name("min") Object min, @Name("max") Object max, @Name("relevance") boolean relevance, @Name("limit") long limit) throws SchemaRuleNotFoundException, IndexNotFoundKernelException {
+    @Description("apoc.index.orderedRange(label,key,min,max,sort-relevance,limit,{order:'ASC'/'DESC',after:value,afterId:nodeId}) yield node - schema range scan which keeps index order and adds limit, values can be null, boundaries are inclusive. With order or after in the config nodes are returned sorted by value and node id, continue from the last value and node id with after and afterId")
+    public Stream<NodeResult> orderedRange(@Name("label") String label, @Name("key") String key, @Name("min") Object min, @Name("max") Object max, @Name("relevance") boolean relevance, @Name("limit") long limit, @Name(value = "config", defaultValue = "{}") Map<String, Object> config) throws SchemaRuleNotFoundException, IndexNotFoundKernelException {
 
         SortedIndexReader sortedIndexReader = getSortedIndexReader(label, key, limit, getSort(min, max, relevance));
 
-        PrimitiveLongIterator it = queryForRange(sortedIndexReader, min, max);
+        PrimitiveLongIterator it = config != null && (config.containsKey("order") || config.containsKey("after")) ?
+                scanOrdered(sortedIndexReader, min, max, limit, config) :
+                queryForRange(sortedIndexReader, min, max);
 //        return Util.toLongStream(it).mapToObj(id -> new NodeResult(new VirtualNode(id, db)));
         return Util.toLongStream(it).mapToObj(id -> new NodeResult(db.getNodeById(id)));
     }
@@ -104,6 +101,17 @@ public class SchemaIndex {
 */
     }
 
+    private PrimitiveLongIterator scanOrdered(SortedIndexReader sortedIndexReader, Object min, Object max, long limit, Map<String, Object> config) {
+        String order = config.getOrDefault("order", "ASC").toString().trim().toUpperCase();
+        if (!order.equals("ASC") && !order.equals("DESC")) {
+            throw new IllegalArgumentException("Unknown order " + order + ", use ASC or DESC");
+        }
+        Object after = config.get("after");
+        boolean numeric = (min == null || min instanceof Number) && (max == null || max instanceof Number) && (after == null || after instanceof Number);
+        long afterId = config.containsKey("afterId") ? Util.toLong(config.get("afterId")) : (order.equals("DESC") ? Long.MIN_VALUE : Long.MAX_VALUE);
+        return new OrderedRangeScan(sortedIndexReader.getIndexSearcher(), numeric).scan(min, max, order.equals("DESC"), after, afterId, limit);
+    }
+
     private PrimitiveLongIterator queryForRange(SortedIndexReader sortedIndexReader, Object min, Object max) {
         if ((min == null || min instanceof Number) && (max == null || max instanceof Number)) {
             return sortedIndexReader.rangeSeekByNumberInclusive((Number) min, (Number) max);
@@ -151,52 +159,40 @@ public class SchemaIndex {
     }
 
     @Procedure("apoc.schema.properties.distinct")
-    @Description("apoc.schema.properties.distinct(label, key) - quickly returns all distinct values for a given key")
-    public Stream<ListResult> distinct(@Name("label") String label, @Name("key") String key) throws SchemaRuleNotFoundException, IndexNotFoundKernelException, IOException {
-        List<Object> values = distinctTerms(label, key);
+    @Description("apoc.schema.properties.distinct(label, key, {limit:0, prefix:''}) - quickly returns the distinct string, numeric and boolean values for a given key, at most limit values if it is greater than 0, only strings starting with prefix if given")
+    public Stream<ListResult> distinct(@Name("label") String label, @Name("key") String key, @Name(value = "config", defaultValue = "{}") Map<String, Object> config) throws SchemaRuleNotFoundException, IndexNotFoundKernelException, IOException {
+        List<Object> values = new ArrayList<>();
+        distinctTerms(label, key, config).forEachRemaining(term -> values.add(term.value));
         return Stream.of(new ListResult(values));
     }
 
-    private List<Object> distinctTerms(@Name("label") String label, @Name("key") String key) throws SchemaRuleNotFoundException, IndexNotFoundKernelException, IOException {
-        KernelStatement stmt = (KernelStatement) tx.acquireStatement();
-        ReadOperations reads = stmt.readOperations();
+    private Iterator<IndexTerms.Term> distinctTerms(String label, String key, Map<String, Object> config) throws SchemaRuleNotFoundException, IndexNotFoundKernelException {
+        SortedIndexReader sortedIndexReader = getSortedIndexReader(label, key, 0, Sort.INDEXORDER);
+        Object prefix = config == null ? null : config.get("prefix");
+        long limit = config == null ? 0 : Util.toLong(config.getOrDefault("limit", 0));
+        Iterator<IndexTerms.Term> terms = new IndexTerms(sortedIndexReader.getIndexSearcher().getIndexReader()).values(prefix == null ? null : prefix.toString());
+        if (limit <= 0) return terms;
+        return new Iterator<IndexTerms.Term>() {
+            long returned = 0;
 
-        IndexDescriptor descriptor = reads.indexGetForLabelAndPropertyKey(reads.labelGetForName(label), reads.propertyKeyGetForName(key));
-        SimpleIndexReader reader = (SimpleIndexReader) stmt.getStoreStatement().getIndexReader(descriptor);
-        SortedIndexReader sortedIndexReader = new SortedIndexReader(reader, 0, Sort.INDEXORDER);
-
-        Fields fields = MultiFields.getFields(sortedIndexReader.getIndexSearcher().getIndexReader());
-
-        Set<Object> values = new LinkedHashSet<>(100);
-        TermsEnum termsEnum;
-        Terms terms = fields.terms("string");
-        if (terms != null) {
-            termsEnum = terms.iterator();
-            while ((termsEnum.next()) != null) {
-                values.add(termsEnum.term().utf8ToString());
+            public boolean hasNext() {
+                return returned < limit && terms.hasNext();
             }
-        }
-        /*
-        terms = fields.terms("number");
-        if (terms != null) {
-            termsEnum = terms.iterator();
-            while ((termsEnum.next()) != null) {
-                BytesRef value = termsEnum.term();
-                System.out.println("value = " + NumericUtils.prefixCodedToLong(value));
-//                values.add(value.isEmpty() ? null : Double.parseDouble(value));
+
+            public IndexTerms.Term next() {
+                returned++;
+                return terms.next();
             }
-        }
-        */
-        return new ArrayList<>(values);
+        };
     }
 
     public static class PropertyValueCount {
         public String label;
         public String key;
-        public String value;
+        public Object value;
         public long count;
 
-        public PropertyValueCount(String label, String key, String value, long count) {
+        public PropertyValueCount(String label, String key, Object value, long count) {
             this.label = label;
             this.key = key;
             this.value = value;
@@ -205,44 +201,59 @@ public class SchemaIndex {
     }
 
     @Procedure("apoc.schema.properties.distinctCount")
-    @Description("apoc.schema.properties.distinctCount([label], [key]) YIELD label, key, value, count - quickly returns all distinct values and counts for a given key")
-    public Stream<PropertyValueCount> distinctCount(@Name(value = "label", defaultValue = "") String labelName, @Name(value = "key", defaultValue = "") String keyName) throws SchemaRuleNotFoundException, IndexNotFoundKernelException, IOException {
-        Iterable<IndexDefinition> labels = (labelName.isEmpty()) ? db.schema().getIndexes(Label.label(labelName)) : db.schema().getIndexes(Label.label(labelName));
+    @Description("apoc.schema.properties.distinctCount([label], [key], {limit:0, prefix:''}) YIELD label, key, value, count - quickly returns the distinct values and counts for a given key, streamed in index order, limit and prefix apply per key")
+    public Stream<PropertyValueCount> distinctCount(@Name(value = "label", defaultValue = "") String labelName, @Name(value = "key", defaultValue = "") String keyName, @Name(value = "config", defaultValue = "{}") Map<String, Object> config) throws SchemaRuleNotFoundException, IndexNotFoundKernelException, IOException {
+        Iterable<IndexDefinition> labels = (labelName.isEmpty()) ? db.schema().getIndexes() : db.schema().getIndexes(Label.label(labelName));
         return StreamSupport.stream(labels.spliterator(), false).flatMap(
                 index -> {
                     Iterable<String> keys = keyName.isEmpty() ? index.getPropertyKeys() : Collections.singletonList(keyName);
                     return StreamSupport.stream(keys.spliterator(), false).flatMap(key -> {
                         String label = index.getLabel().name();
-                        return distinctTermsCount(label, key).
-                                entrySet().stream().map(e -> new PropertyValueCount(label, key, e.getKey(), e.getValue()));
+                        return stream(distinctTermsCount(label, key, config)).map(term -> new PropertyValueCount(label, key, term.value, term.count));
                     });
                 }
         );
     }
 
-    private Map<String, Integer> distinctTermsCount(@Name("label") String label, @Name("key") String key) {
+    private Iterator<IndexTerms.Term> distinctTermsCount(String label, String key, Map<String, Object> config) {
         try {
-            KernelStatement stmt = (KernelStatement) tx.acquireStatement();
-            ReadOperations reads = stmt.readOperations();
-
-            IndexDescriptor descriptor = reads.indexGetForLabelAndPropertyKey(reads.labelGetForName(label), reads.propertyKeyGetForName(key));
-            SimpleIndexReader reader = (SimpleIndexReader) stmt.getStoreStatement().getIndexReader(descriptor);
-            SortedIndexReader sortedIndexReader = new SortedIndexReader(reader, 0, Sort.INDEXORDER);
-
-            Fields fields = MultiFields.getFields(sortedIndexReader.getIndexSearcher().getIndexReader());
-
-            Map<String, Integer> values = new HashMap<>();
-            TermsEnum termsEnum;
-            Terms terms = fields.terms("string");
-            if (terms != null) {
-                termsEnum = terms.iterator();
-                while ((termsEnum.next()) != null) {
-                    values.put(termsEnum.term().utf8ToString(), termsEnum.docFreq());
-                }
-            }
-            return values;
+            return distinctTerms(label, key, config);
         } catch (Exception e) {
             throw new RuntimeException("Error collecting distinct terms of label: " + label + " and key: " + key, e);
         }
     }
+
+    public static class HistogramBucket {
+        public String label;
+        public String key;
+        public String type;
+        public long bucket;
+        public Object min;
+        public Object max;
+        public long count;
+        public long distinct;
+
+        public HistogramBucket(String label, String key, IndexTerms.Bucket bucket) {
+            this.label = label;
+            this.key = key;
+            this.type = bucket.type;
+            this.bucket = bucket.bucket;
+            this.min = bucket.min;
+            this.max = bucket.max;
+            this.count = bucket.count;
+            this.distinct = bucket.distinct;
+        }
+    }
+
+    @Procedure("apoc.schema.properties.histogram")
+    @Description("apoc.schema.properties.histogram(label, key, buckets=10) YIELD label, key, type, bucket, min, max, count, distinct - equi-depth histogram of the numeric and of the string values for a given key, computed from the index")
+    public Stream<HistogramBucket> histogram(@Name("label") String label, @Name("key") String key, @Name(value = "buckets", defaultValue = "10") long buckets) throws SchemaRuleNotFoundException, IndexNotFoundKernelException {
+        SortedIndexReader sortedIndexReader = getSortedIndexReader(label, key, 0, Sort.INDEXORDER);
+        IndexTerms terms = new IndexTerms(sortedIndexReader.getIndexSearcher().getIndexReader());
+        return terms.histogram((int) Math.min(buckets, Integer.MAX_VALUE)).stream().map(bucket -> new HistogramBucket(label, key, bucket));
+    }
+
+    private static <T> Stream<T> stream(Iterator<T> iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+    }
 }
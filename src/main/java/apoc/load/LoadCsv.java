@@ -10,10 +10,11 @@ import org.neo4j.procedure.Description;
 import org.neo4j.procedure.Name;
 import org.neo4j.procedure.Procedure;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
 import java.util.function.Consumer;
-import java.util.regex.Pattern;
+import java.util.function.Function;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -28,11 +29,9 @@ public class LoadCsv {
     public GraphDatabaseService db;
 
     @Procedure
-    @Description("apoc.load.csv('url',{config}) YIELD lineNo, list, map - load CSV fom URL as stream of values,\n config contains any of: {skip:1,limit:5,header:false,sep:'TAB',ignore:['tmp'],arraySep:';',mapping:{years:{type:'int',arraySep:'-',array:false,name:'age',ignore:false}}")
+    @Description("apoc.load.csv('url',{config}) YIELD lineNo, list, map - load CSV fom URL as stream of values,\n config contains any of: {skip:1,limit:5,header:false,sep:'TAB',ignore:['tmp'],arraySep:';',mapping:{years:{type:'int',arraySep:'-',array:false,name:'age',ignore:false}},parallel:false,ordered:true,chunkSize:4194304}")
     public Stream<CSVResult> csv(@Name("url") String url, @Name("config") Map<String, Object> config) {
         try {
-            CountingReader reader = FileUtils.readerFor(url);
-
             char separator = separator(config, "sep", DEFAULT_SEP);
             char arraySep = separator(config, "arraySep", DEFAULT_ARRAY_SEP);
             long skip = longValue(config, "skip", 0L);
@@ -41,11 +40,23 @@ public class LoadCsv {
 
             List<String> ignore = value(config, "ignore", Collections.emptyList());
             Map<String, Mapping> mappings = createMapping(value(config, "mapping", Collections.emptyMap()), arraySep, ignore);
+            boolean checkIgnore = !ignore.isEmpty() || mappings.values().stream().anyMatch( m -> m.ignore);
 
+            if (booleanValue(config, "parallel", false)) {
+                FileUtils.checkReadAllowed(url);
+                File file = ParallelCsvReader.localFile(FileUtils.changeFileUrlIfImportDirectoryConstrained(url));
+                if (file != null) {
+                    ParallelCsvReader csv = new ParallelCsvReader(file, separator, longValue(config, "chunkSize", ParallelCsvReader.DEFAULT_CHUNK_SIZE));
+                    Columns columns = new Columns(hasHeader ? ignoreColumns(csv.header(), ignore, mappings) : null, checkIgnore, mappings);
+                    return csv.stream(hasHeader, skip, limit, booleanValue(config, "ordered", true),
+                            (row, lineNo) -> new CSVResult(columns, row, lineNo));
+                }
+            }
+
+            CountingReader reader = FileUtils.readerFor(url);
             CSVReader csv = new CSVReader(reader, separator);
             String[] header = getHeader(hasHeader, csv, ignore, mappings);
-            boolean checkIgnore = !ignore.isEmpty() || mappings.values().stream().anyMatch( m -> m.ignore);
-            return StreamSupport.stream(new CSVSpliterator(csv, header, url, skip, limit, checkIgnore,mappings), false);
+            return StreamSupport.stream(new CSVSpliterator(csv, new Columns(header, checkIgnore, mappings), url, skip, limit), false);
         } catch (IOException e) {
             throw new RuntimeException("Can't read CSV from URL " + cleanUrl(url), e);
         }
@@ -68,7 +79,7 @@ public class LoadCsv {
         final boolean array;
         final boolean ignore;
         final char arraySep;
-        private final String arrayPattern;
+        private final Function<String, Object> converter;
 
         public Mapping(String name, Map<String, Object> mapping, char arraySep, boolean ignore) {
             this.name = mapping.getOrDefault("name", name).toString();
@@ -76,40 +87,179 @@ public class LoadCsv {
             this.ignore = (Boolean) mapping.getOrDefault("ignore", ignore);
             this.arraySep = separator(mapping.getOrDefault("arraySep", arraySep).toString(),DEFAULT_ARRAY_SEP);
             this.type = Meta.Types.from(mapping.getOrDefault("type", "STRING").toString());
-            this.arrayPattern = Pattern.compile(String.valueOf(this.arraySep), Pattern.LITERAL).toString();
-
+            this.converter = array ? arrayConverter(typeConverter(type, this.arraySep), this.arraySep) : typeConverter(type, this.arraySep);
         }
 
         public Object convert(String value) {
-            return array ? convertArray(value) : convertType(value);
+            return converter.apply(value);
         }
 
-        private Object convertArray(String value) {
-            String[] values = value.split(arrayPattern);
-            List<Object> result = new ArrayList<>(values.length);
-            for (String v : values) {
-                result.add(convertType(v));
+        // resolved once per load instead of per value
+        private static Function<String, Object> typeConverter(Meta.Types type, char arraySep) {
+            switch (type) {
+                case INTEGER: return Long::valueOf;
+                case FLOAT: return Double::valueOf;
+                case BOOLEAN: return Boolean::valueOf;
+                case NULL: return value -> null;
+                case LIST: return value -> split(value, arraySep, v -> v);
+                default: return value -> value;
             }
+        }
+
+        private static Function<String, Object> arrayConverter(Function<String, Object> element, char arraySep) {
+            return value -> split(value, arraySep, element);
+        }
+
+        // like String.split with a literal separator, trailing empty elements are dropped too
+        static List<Object> split(String value, char sep, Function<String, Object> element) {
+            List<Object> result = new ArrayList<>();
+            int start = 0, end = value.length();
+            while (end > 0 && value.charAt(end - 1) == sep) end--;
+            if (end == 0) return value.isEmpty() ? Collections.singletonList(element.apply(value)) : result;
+            for (int i = start; i < end; i++) {
+                if (value.charAt(i) == sep) {
+                    result.add(element.apply(value.substring(start, i)));
+                    start = i + 1;
+                }
+            }
+            result.add(element.apply(value.substring(start, end)));
             return result;
         }
+    }
 
-        private Object convertType(String value) {
-            if (type == Meta.Types.STRING) return value;
-            switch (type) {
-                case INTEGER: return Long.parseLong(value);
-                case FLOAT: return Double.parseDouble(value);
-                case BOOLEAN: return Boolean.parseBoolean(value);
-                case NULL: return null;
-                case LIST: return asList(value.split(arrayPattern));
-                default: return value;
+    /**
+     * The columns of a load, computed once from the header, the ignored fields and the mappings,
+     * with the keys shared by the maps of all rows.
+     */
+    static class Columns {
+        final boolean raw;
+        final int[] columns;
+        final Mapping[] mappings;
+        final String[] keys;
+        final int[] keyIndexes;
+
+        Columns(String[] header, boolean ignore, Map<String, Mapping> mappings) {
+            this.raw = !ignore && mappings.isEmpty();
+            if (header == null) {
+                this.columns = null;
+                this.mappings = null;
+                this.keys = null;
+                this.keyIndexes = null;
+                return;
+            }
+            int[] columns = new int[header.length];
+            Mapping[] columnMappings = new Mapping[header.length];
+            String[] names = new String[header.length];
+            int count = 0;
+            for (int i = 0; i < header.length; i++) {
+                String name = header[i];
+                if (ignore && name == null) continue;
+                Mapping mapping = mappings.get(name);
+                if (mapping != null && mapping.ignore) continue;
+                columns[count] = i;
+                columnMappings[count] = mapping;
+                names[count++] = mapping == null ? name : mapping.name;
+            }
+            this.columns = Arrays.copyOf(columns, count);
+            this.mappings = Arrays.copyOf(columnMappings, count);
+            // a duplicate name keeps its first position and its last value, like consecutive puts into a LinkedHashMap
+            Map<String, Integer> positions = new LinkedHashMap<>(count * 2);
+            for (int i = 0; i < count; i++) positions.put(names[i], i);
+            this.keys = positions.keySet().toArray(new String[positions.size()]);
+            this.keyIndexes = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) keyIndexes[i] = positions.get(keys[i]);
+        }
+
+        Object[] values(String[] row) {
+            if (raw) return row;
+            Object[] values = new Object[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                String value = columns[i] < row.length ? row[columns[i]] : null;
+                values[i] = mappings[i] == null || value == null ? value : mappings[i].convert(value);
             }
+            return values;
+        }
+    }
+
+    /**
+     * Read-only map view of the converted values of a row, sharing the keys of its {@link Columns}.
+     */
+    static class RowMap extends AbstractMap<String, Object> {
+        private final Columns columns;
+        private final Object[] values;
+
+        RowMap(Columns columns, Object[] values) {
+            this.columns = columns;
+            this.values = values;
+        }
+
+        private Object value(int key) {
+            int index = columns.keyIndexes[key];
+            return index < values.length ? values[index] : null;
+        }
+
+        private int indexOf(Object key) {
+            String[] keys = columns.keys;
+            for (int i = 0; i < keys.length; i++) {
+                if (Objects.equals(keys[i], key)) return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public int size() {
+            return columns.keys.length;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) != -1;
+        }
+
+        @Override
+        public Object get(Object key) {
+            int index = indexOf(key);
+            return index == -1 ? null : value(index);
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public int size() {
+                    return columns.keys.length;
+                }
+
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<Entry<String, Object>>() {
+                        int pos = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return pos < columns.keys.length;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext()) throw new NoSuchElementException();
+                            Entry<String, Object> entry = new SimpleImmutableEntry<>(columns.keys[pos], value(pos));
+                            pos++;
+                            return entry;
+                        }
+                    };
+                }
+            };
         }
     }
 
     private String[] getHeader(boolean hasHeader, CSVReader csv, List<String> ignore, Map<String, Mapping> mapping) throws IOException {
         if (!hasHeader) return null;
-        String[] header = csv.readNext();
-        if (ignore.isEmpty()) return header;
+        return ignoreColumns(csv.readNext(), ignore, mapping);
+    }
+
+    private String[] ignoreColumns(String[] header, List<String> ignore, Map<String, Mapping> mapping) {
+        if (header == null || ignore.isEmpty()) return header;
 
         for (int i = 0; i < header.length; i++) {
             if (ignore.contains(header[i]) || mapping.getOrDefault(header[i], Mapping.EMPTY).ignore) {
@@ -156,63 +306,26 @@ public class LoadCsv {
         public List<Object> list;
         public Map<String, Object> map;
 
-        public CSVResult(String[] header, String[] list, long lineNo, boolean ignore, Map<String, Mapping> mapping) {
+        public CSVResult(Columns columns, String[] row, long lineNo) {
             this.lineNo = lineNo;
-            this.list = createList(header, list, ignore, mapping);
-            this.map = createMap(header, list, ignore, mapping);
-        }
-
-        private List<Object> createList(String[] header, String[] list, boolean ignore, Map<String, Mapping> mappings) {
-            if (!ignore && mappings.isEmpty()) return asList((Object[])list);
-            ArrayList<Object> result = new ArrayList<>(list.length);
-            for (int i = 0; i < header.length; i++) {
-                String name = header[i];
-                if (name == null) continue;
-                Mapping mapping = mappings.get(name);
-                if (mapping != null) {
-                    if (mapping.ignore) continue;
-                    result.add(mapping.convert(list[i]));
-                } else {
-                    result.add(list[i]);
-                }
-            }
-            return result;
-        }
-
-        private Map<String, Object> createMap(String[] header, String[] list, boolean ignore, Map<String, Mapping> mappings) {
-            if (header == null) return null;
-            Map<String, Object> map = new LinkedHashMap<>(header.length, 1f);
-            for (int i = 0; i < header.length; i++) {
-                String name = header[i];
-                if (ignore && name == null) continue;
-                Mapping mapping = mappings.get(name);
-                if (mapping == null) {
-                    map.put(name, list[i]);
-                } else {
-                    if (mapping.ignore) continue;
-                    map.put(mapping.name, mapping.convert(list[i]));
-                }
-            }
-            return map;
+            Object[] values = columns.values(row);
+            this.list = asList(values);
+            this.map = columns.keys == null ? null : new RowMap(columns, values);
         }
     }
 
     private static class CSVSpliterator extends Spliterators.AbstractSpliterator<CSVResult> {
         private final CSVReader csv;
-        private final String[] header;
+        private final Columns columns;
         private final String url;
         private final long limit;
-        private final boolean ignore;
-        private final Map<String, Mapping> mapping;
         long lineNo;
 
-        public CSVSpliterator(CSVReader csv, String[] header, String url, long skip, long limit, boolean ignore, Map<String, Mapping> mapping) throws IOException {
+        public CSVSpliterator(CSVReader csv, Columns columns, String url, long skip, long limit) throws IOException {
             super(Long.MAX_VALUE, Spliterator.ORDERED);
             this.csv = csv;
-            this.header = header;
+            this.columns = columns;
             this.url = url;
-            this.ignore = ignore;
-            this.mapping = mapping;
             this.limit = skip + limit;
             lineNo = skip;
             while (skip-- > 0) {
@@ -225,7 +338,7 @@ public class LoadCsv {
             try {
                 String[] row = csv.readNext();
                 if (row != null && lineNo < limit) {
-                    action.accept(new CSVResult(header, row, lineNo++, ignore,mapping));
+                    action.accept(new CSVResult(columns, row, lineNo++));
                     return true;
                 }
                 return false;
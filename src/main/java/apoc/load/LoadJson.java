@@ -23,20 +23,14 @@ public class LoadJson {
 
     @SuppressWarnings("unchecked")
     @Procedure
-    @Description("apoc.load.jsonArray('url') YIELD value - load array from JSON URL (e.g. web-api) to import JSON as stream of values")
+    @Description("apoc.load.jsonArray('url') YIELD value - load array from JSON URL (e.g. web-api) to import JSON as stream of values, arrays of maps are parsed incrementally")
     public Stream<ObjectResult> jsonArray(@Name("url") String url, @Name(value = "path",defaultValue = "") String path) {
-        Object value = JsonUtil.loadJson(url,null,null,path);
-        if (value instanceof List) {
-            List list = (List) value;
-            if (list.isEmpty()) return Stream.empty();
-            if (list.get(0) instanceof Map) return list.stream().map(ObjectResult::new);
-        }
-        return Stream.of(new ObjectResult(value));
+        return JsonUtil.streamJson(url,null,null,path).map(ObjectResult::new);
         // throw new RuntimeException("Incompatible Type " + (value == null ? "null" : value.getClass()));
     }
 
     @Procedure
-    @Description("apoc.load.json('url') YIELD value -  import JSON as stream of values if the JSON was an array or a single value if it was a map")
+    @Description("apoc.load.json('url') YIELD value -  import JSON as stream of values if the JSON was an array or a single value if it was a map, arrays of maps are parsed incrementally")
     public Stream<MapResult> json(@Name("url") String url, @Name(value = "path",defaultValue = "") String path) {
         return jsonParams(url,null,null, path);
     }
@@ -54,17 +48,15 @@ public class LoadJson {
     public static Stream<MapResult> loadJsonStream(@Name("url") String url, @Name("headers") Map<String, Object> headers, @Name("payload") String payload, String path) {
         headers = null != headers ? headers : new HashMap<>();
         headers.putAll(extractCredentialsIfNeeded(url));
-        Object value = JsonUtil.loadJson(url,headers,payload, path);
-        if (value instanceof Map) {
-            return Stream.of(new MapResult((Map) value));
-        }
-        if (value instanceof List) {
-            if (((List)value).isEmpty()) return Stream.empty();
-            if (((List) value).get(0) instanceof Map)
-                return ((List) value).stream().map((v) -> new MapResult((Map) v));
-            return Stream.of(new MapResult(Collections.singletonMap("result",value)));
-        }
-        throw new RuntimeException("Incompatible Type " + (value == null ? "null" : value.getClass()));
+        return JsonUtil.streamJson(url,headers,payload, path).map(value -> {
+            if (value instanceof Map) {
+                return new MapResult((Map) value);
+            }
+            if (value instanceof List) {
+                return new MapResult(Collections.singletonMap("result",value));
+            }
+            throw new RuntimeException("Incompatible Type " + (value == null ? "null" : value.getClass()));
+        });
     }
 
     private static Map<String, Object> extractCredentialsIfNeeded(String url) {
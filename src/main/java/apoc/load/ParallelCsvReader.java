@@ -0,0 +1,304 @@
+package apoc.load;
+
+import apoc.Pools;
+import au.com.bytecode.opencsv.CSVReader;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads a local, uncompressed CSV file in chunks of about <code>chunkSize</code> bytes that are parsed in parallel on {@link Pools#DEFAULT}.
+ *
+ * Chunks must start at record boundaries, a newline inside a quoted field is not one. A first parallel pass counts the quotes
+ * and newlines of each chunk, the quote parity at the start of a chunk is the sum of the quotes before it, so the first record boundary
+ * and the number of records of every chunk are known before parsing. This assumes quotes inside quoted fields are doubled, as in RFC 4180,
+ * not escaped with a backslash.
+ *
+ * At most a few chunks more than there are threads are parsed ahead of the consumer, results are returned in file order
+ * or, if not <code>ordered</code>, in the order the chunks complete. Line numbers are the same either way.
+ */
+public class ParallelCsvReader implements Closeable {
+    public static final long DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte QUOTE = '"', NEWLINE = '\n';
+
+    public interface RowMapper<T> {
+        T map(String[] row, long lineNo);
+    }
+
+    private final File file;
+    private final char separator;
+    private final long chunkSize;
+    private final Charset charset = Charset.defaultCharset();
+    private final FileChannel channel;
+
+    public ParallelCsvReader(File file, char separator, long chunkSize) throws IOException {
+        this.file = file;
+        this.separator = separator;
+        this.chunkSize = Math.max(BUFFER_SIZE, chunkSize);
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    }
+
+    /**
+     * @return the local file of the url if it can be read in parallel, null otherwise
+     */
+    public static File localFile(String url) {
+        try {
+            String lower = url.toLowerCase();
+            if (lower.endsWith(".gz") || lower.endsWith(".zip")) return null;
+            File file;
+            if (lower.startsWith("file:")) file = new File(new java.net.URL(url).toURI());
+            else if (url.matches("^\\w+:/.+")) return null;
+            else file = new File(url);
+            return file.isFile() && file.canRead() ? file : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public String[] header() throws IOException {
+        long end = endOfFirstRecord();
+        if (end == 0) return null;
+        try (CSVReader csv = reader(0, end)) {
+            return csv.readNext();
+        }
+    }
+
+    /**
+     * @param skipHeader if the first record is the header and not data
+     * @param skip number of data records to skip
+     * @param limit maximum number of data records after the skipped ones
+     */
+    public <T> Stream<T> stream(boolean skipHeader, long skip, long limit, boolean ordered, RowMapper<T> mapper) throws IOException {
+        List<Range> ranges = ranges(skipHeader ? endOfFirstRecord() : 0);
+        long end = limit == Long.MAX_VALUE ? Long.MAX_VALUE : skip + limit;
+        List<Range> needed = new ArrayList<>(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            Range range = ranges.get(i);
+            if (range.firstLine >= end) break;
+            if (i + 1 < ranges.size() && ranges.get(i + 1).firstLine <= skip) continue;
+            needed.add(range);
+        }
+        Iterator<T> rows = new ChunkIterator<>(needed, ordered, range -> parse(range, skip, end, mapper));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(rows, ordered ? Spliterator.ORDERED : 0), false)
+                .onClose(this::closeQuietly);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    private static class Range {
+        final long start, end, firstLine;
+
+        Range(long start, long end, long firstLine) {
+            this.start = start;
+            this.end = end;
+            this.firstLine = firstLine;
+        }
+    }
+
+    private static class ChunkStats {
+        long quotes, evenNewlines, oddNewlines, firstEven = -1, firstOdd = -1;
+    }
+
+    // the byte ranges of the chunks aligned to record boundaries, with the line number of their first record
+    private List<Range> ranges(long dataStart) throws IOException {
+        long length = channel.size();
+        List<Future<ChunkStats>> stats = new ArrayList<>();
+        for (long start = dataStart; start < length; start += chunkSize) {
+            long from = start, to = Math.min(length, start + chunkSize);
+            stats.add(Pools.DEFAULT.submit(() -> scan(from, to)));
+        }
+        List<long[]> boundaries = new ArrayList<>();
+        boundaries.add(new long[]{dataStart, 0});
+        long lines = 0;
+        long parity = 0;
+        for (int i = 0; i < stats.size(); i++) {
+            ChunkStats chunk = get(stats.get(i));
+            if (i > 0) {
+                long first = parity == 0 ? chunk.firstEven : chunk.firstOdd;
+                if (first >= 0) boundaries.add(new long[]{first + 1, lines + 1});
+            }
+            lines += parity == 0 ? chunk.evenNewlines : chunk.oddNewlines;
+            parity = (parity + chunk.quotes) & 1;
+        }
+        List<Range> ranges = new ArrayList<>(boundaries.size());
+        for (int i = 0; i < boundaries.size(); i++) {
+            long end = i + 1 < boundaries.size() ? boundaries.get(i + 1)[0] : length;
+            if (end > boundaries.get(i)[0]) ranges.add(new Range(boundaries.get(i)[0], end, boundaries.get(i)[1]));
+        }
+        return ranges;
+    }
+
+    private ChunkStats scan(long from, long to) throws IOException {
+        ChunkStats stats = new ChunkStats();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] bytes = buffer.array();
+        for (long pos = from; pos < to; ) {
+            buffer.clear();
+            buffer.limit((int) Math.min(BUFFER_SIZE, to - pos));
+            int read = channel.read(buffer, pos);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                byte b = bytes[i];
+                if (b == QUOTE) {
+                    stats.quotes++;
+                } else if (b == NEWLINE) {
+                    if ((stats.quotes & 1) == 0) {
+                        if (stats.firstEven < 0) stats.firstEven = pos + i;
+                        stats.evenNewlines++;
+                    } else {
+                        if (stats.firstOdd < 0) stats.firstOdd = pos + i;
+                        stats.oddNewlines++;
+                    }
+                }
+            }
+            pos += read;
+        }
+        return stats;
+    }
+
+    // position after the newline ending the first record, the file length if there is none
+    private long endOfFirstRecord() throws IOException {
+        long length = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] bytes = buffer.array();
+        long quotes = 0;
+        for (long pos = 0; pos < length; ) {
+            buffer.clear();
+            int read = channel.read(buffer, pos);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                if (bytes[i] == QUOTE) quotes++;
+                else if (bytes[i] == NEWLINE && (quotes & 1) == 0) return pos + i + 1;
+            }
+            pos += read;
+        }
+        return length;
+    }
+
+    private <T> List<T> parse(Range range, long skip, long end, RowMapper<T> mapper) throws IOException {
+        List<T> rows = new ArrayList<>();
+        try (CSVReader csv = reader(range.start, range.end)) {
+            long lineNo = range.firstLine;
+            String[] row;
+            while (lineNo < end && (row = csv.readNext()) != null) {
+                if (lineNo >= skip) rows.add(mapper.map(row, lineNo));
+                lineNo++;
+            }
+        }
+        return rows;
+    }
+
+    private CSVReader reader(long start, long end) {
+        return new CSVReader(new BufferedReader(new InputStreamReader(new RangeInputStream(channel, start, end), charset), BUFFER_SIZE), separator);
+    }
+
+    private <T> T get(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while reading CSV file " + file, e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error reading CSV file " + file + ": " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private interface ChunkParser<T> {
+        List<T> parse(Range range) throws Exception;
+    }
+
+    // keeps a bounded number of chunks in flight ahead of the consumer
+    private class ChunkIterator<T> implements Iterator<T> {
+        private final Iterator<Range> ranges;
+        private final ChunkParser<T> parser;
+        private final boolean ordered;
+        private final Deque<Future<List<T>>> inFlight = new ArrayDeque<>();
+        private final CompletionService<List<T>> completion = new ExecutorCompletionService<>(Pools.DEFAULT);
+        private final int maxInFlight = Pools.getNoThreadsInDefaultPool() + 2;
+        private int pending;
+        private Iterator<T> current = Collections.emptyIterator();
+
+        ChunkIterator(List<Range> ranges, boolean ordered, ChunkParser<T> parser) {
+            this.ranges = ranges.iterator();
+            this.ordered = ordered;
+            this.parser = parser;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                while (pending < maxInFlight && ranges.hasNext()) {
+                    Range range = ranges.next();
+                    Callable<List<T>> task = () -> parser.parse(range);
+                    if (ordered) inFlight.addLast(Pools.DEFAULT.submit(task));
+                    else completion.submit(task);
+                    pending++;
+                }
+                if (pending == 0) {
+                    closeQuietly();
+                    return false;
+                }
+                try {
+                    current = get(ordered ? inFlight.pollFirst() : completion.take()).iterator();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while reading CSV file " + file, e);
+                }
+                pending--;
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return current.next();
+        }
+    }
+
+    private static class RangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long pos;
+
+        RangeInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.pos = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (pos >= end) return -1;
+            int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - pos)), pos);
+            if (read <= 0) return -1;
+            pos += read;
+            return read;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package apoc.load;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.Text;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static javax.xml.stream.XMLStreamConstants.*;
+
+/**
+ * The XPath subset that can be evaluated while reading the document with an {@link XMLStreamReader}:
+ * absolute location paths of element name tests or <code>*</code> on the child (<code>/</code>) and descendant (<code>//</code>) axis,
+ * with predicates on attributes like <code>[@id]</code> or <code>[@id='bk101']</code>, e.g. <code>/catalog/book[@id='bk101']/author</code> or <code>//item</code>.
+ *
+ * Only the subtrees of the matching elements are kept, as small DOM documents, each is returned as soon as its end tag was read,
+ * in document order.
+ */
+class StreamingXPath {
+    private static final Pattern STEP = Pattern.compile("(//|/)(\\*|[A-Za-z_][\\w.\\-]*)((?:\\[@[A-Za-z_][\\w.\\-]*(?:\\s*=\\s*(?:'[^']*'|\"[^\"]*\"))?\\])*)");
+    private static final Pattern PREDICATE = Pattern.compile("\\[@([A-Za-z_][\\w.\\-]*)(?:\\s*=\\s*(?:'([^']*)'|\"([^\"]*)\"))?\\]");
+
+    private final List<Step> steps;
+
+    private StreamingXPath(List<Step> steps) {
+        this.steps = steps;
+    }
+
+    /**
+     * @return null if the path is not in the supported subset
+     */
+    static StreamingXPath compile(String path) {
+        path = path.trim();
+        List<Step> steps = new ArrayList<>();
+        if (path.equals("/")) return new StreamingXPath(steps);
+        Matcher matcher = STEP.matcher(path);
+        int pos = 0;
+        while (pos < path.length()) {
+            if (!matcher.find(pos) || matcher.start() != pos) return null;
+            Map<String, String> predicates = new LinkedHashMap<>();
+            Matcher predicate = PREDICATE.matcher(matcher.group(3));
+            while (predicate.find()) {
+                String value = predicate.group(2) != null ? predicate.group(2) : predicate.group(3);
+                predicates.put(predicate.group(1), value);
+            }
+            steps.add(new Step(matcher.group(1).equals("//"), matcher.group(2), predicates));
+            pos = matcher.end();
+        }
+        return steps.isEmpty() ? null : new StreamingXPath(steps);
+    }
+
+    /**
+     * @param input the source of the reader, closed with it when the selection ends, fails or is closed
+     */
+    Selection select(XMLStreamReader reader, Closeable input, DocumentBuilder builder) {
+        return new Selection(reader, input, builder);
+    }
+
+    private static class Step {
+        final boolean descendant;
+        final String name;
+        final Map<String, String> attributes;
+
+        Step(boolean descendant, String name, Map<String, String> attributes) {
+            this.descendant = descendant;
+            this.name = name;
+            this.attributes = attributes;
+        }
+
+        boolean matches(OpenElement element) {
+            // unprefixed name tests only match elements without namespace, like XPath does
+            if (!name.equals("*") && (!name.equals(element.name) || element.namespaced)) return false;
+            for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+                String value = element.attributes.get(attribute.getKey());
+                if (value == null || attribute.getValue() != null && !attribute.getValue().equals(value)) return false;
+            }
+            return true;
+        }
+    }
+
+    private static class OpenElement {
+        final String name;
+        final boolean namespaced;
+        final Map<String, String> attributes;
+
+        OpenElement(XMLStreamReader reader, boolean withAttributes) {
+            this.name = reader.getLocalName();
+            String uri = reader.getNamespaceURI();
+            this.namespaced = uri != null && !uri.isEmpty();
+            if (withAttributes && reader.getAttributeCount() > 0) {
+                attributes = new HashMap<>();
+                for (int i = 0; i < reader.getAttributeCount(); i++) {
+                    String uri2 = reader.getAttributeNamespace(i);
+                    if (uri2 == null || uri2.isEmpty()) attributes.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                }
+            } else {
+                attributes = Collections.emptyMap();
+            }
+        }
+    }
+
+    // a matching element, its subtree is copied into its own document until its end tag
+    private static class Capture {
+        final Document document;
+        Node current;
+        boolean done;
+
+        Capture(Document document) {
+            this.document = document;
+            this.current = document;
+        }
+    }
+
+    class Selection implements Iterator<Node>, AutoCloseable {
+        private final XMLStreamReader reader;
+        private final Closeable input;
+        private final DocumentBuilder builder;
+        private final boolean withAttributes;
+        private final List<OpenElement> open = new ArrayList<>();
+        // in document order, the first one is returned once it is done
+        private final Deque<Capture> captures = new ArrayDeque<>();
+        private final List<Capture> active = new ArrayList<>();
+        private volatile boolean ended;
+
+        Selection(XMLStreamReader reader, Closeable input, DocumentBuilder builder) {
+            this.reader = reader;
+            this.input = input;
+            this.builder = builder;
+            this.withAttributes = steps.stream().anyMatch(step -> !step.attributes.isEmpty());
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (captures.isEmpty() || !captures.peekFirst().done) {
+                    if (ended) return false;
+                    if (!reader.hasNext()) {
+                        close();
+                        return false;
+                    }
+                    handle(reader.next());
+                }
+                return true;
+            } catch (XMLStreamException e) {
+                close();
+                throw new RuntimeException("Can't read XML: " + e.getMessage(), e);
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        /**
+         * Closes the reader and its input, the XMLStreamReader does not close the input itself.
+         */
+        @Override
+        public synchronized void close() {
+            if (ended) return;
+            ended = true;
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                // ignore
+            }
+            try {
+                input.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+
+        @Override
+        public Node next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return captures.pollFirst().document.getDocumentElement();
+        }
+
+        private void handle(int event) {
+            switch (event) {
+                case START_ELEMENT:
+                    open.add(new OpenElement(reader, withAttributes));
+                    for (Capture capture : active) capture.current = capture.current.appendChild(element(capture.document));
+                    if (matches(steps.size() - 1, open.size() - 1)) {
+                        Capture capture = new Capture(builder.newDocument());
+                        capture.current = capture.current.appendChild(element(capture.document));
+                        captures.addLast(capture);
+                        active.add(capture);
+                    }
+                    break;
+                case END_ELEMENT:
+                    open.remove(open.size() - 1);
+                    for (Iterator<Capture> it = active.iterator(); it.hasNext(); ) {
+                        Capture capture = it.next();
+                        capture.current = capture.current.getParentNode();
+                        if (capture.current == capture.document) {
+                            capture.done = true;
+                            it.remove();
+                        }
+                    }
+                    break;
+                case CHARACTERS:
+                case SPACE:
+                    for (Capture capture : active) {
+                        Node last = capture.current.getLastChild();
+                        if (last instanceof Text && last.getNodeType() == Node.TEXT_NODE) ((Text) last).appendData(reader.getText());
+                        else capture.current.appendChild(capture.document.createTextNode(reader.getText()));
+                    }
+                    break;
+                case CDATA:
+                    for (Capture capture : active) capture.current.appendChild(capture.document.createCDATASection(reader.getText()));
+                    break;
+                case COMMENT:
+                    for (Capture capture : active) capture.current.appendChild(capture.document.createComment(reader.getText()));
+                    break;
+                case PROCESSING_INSTRUCTION:
+                    for (Capture capture : active) capture.current.appendChild(capture.document.createProcessingInstruction(reader.getPITarget(), reader.getPIData()));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        // whether steps[0..step] match the open elements [0..element], backtracking over descendant steps
+        private boolean matches(int step, int element) {
+            if (steps.isEmpty()) return element == 0;
+            if (step < 0) return element < 0;
+            if (element < 0 || !steps.get(step).matches(open.get(element))) return false;
+            if (!steps.get(step).descendant) return matches(step - 1, element - 1);
+            if (step == 0) return true;
+            for (int ancestor = element - 1; ancestor >= 0; ancestor--) {
+                if (matches(step - 1, ancestor)) return true;
+            }
+            return false;
+        }
+
+        private Element element(Document document) {
+            Element element = document.createElementNS(emptyToNull(reader.getNamespaceURI()), qualifiedName(reader.getPrefix(), reader.getLocalName()));
+            for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                String prefix = reader.getNamespacePrefix(i);
+                element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, prefix == null || prefix.isEmpty() ? "xmlns" : "xmlns:" + prefix, reader.getNamespaceURI(i));
+            }
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                element.setAttributeNS(emptyToNull(reader.getAttributeNamespace(i)), qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)), reader.getAttributeValue(i));
+            }
+            return element;
+        }
+    }
+
+    private static String qualifiedName(String prefix, String localName) {
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+}
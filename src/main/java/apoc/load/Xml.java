@@ -3,7 +3,9 @@ package apoc.load;
 import apoc.export.util.FileUtils;
 import apoc.result.MapResult;
 import org.apache.commons.lang3.StringUtils;
-import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.kernel.api.KernelTransaction;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.procedure.Context;
 import org.neo4j.procedure.Description;
 import org.neo4j.procedure.Name;
@@ -21,10 +23,12 @@ import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathFactory;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.*;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static apoc.util.Util.cleanUrl;
 import static javax.xml.stream.XMLStreamConstants.*;
@@ -32,12 +36,18 @@ import static javax.xml.stream.XMLStreamConstants.*;
 public class Xml {
 
     public static final XMLInputFactory FACTORY = XMLInputFactory.newFactory();
+    // not coalescing, to keep text and CDATA apart like the DOM parser does
+    private static final XMLInputFactory STREAM_FACTORY = XMLInputFactory.newFactory();
+    static {
+        String reportCData = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+        if (STREAM_FACTORY.isPropertySupported(reportCData)) STREAM_FACTORY.setProperty(reportCData, true);
+    }
 
     @Context
-    public GraphDatabaseService db;
+    public GraphDatabaseAPI db;
 
     @Procedure
-    @Description("apoc.load.xml('http://example.com/test.xml', 'xPath', false) YIELD value as doc CREATE (p:Person) SET p.name = doc.name load from XML URL (e.g. web-api) to import XML as single nested map with attributes and _type, _text and _childrenx fields.")
+    @Description("apoc.load.xml('http://example.com/test.xml', 'xPath', false) YIELD value as doc CREATE (p:Person) SET p.name = doc.name load from XML URL (e.g. web-api) to import XML as single nested map with attributes and _type, _text and _childrenx fields. Paths like /a/b, //item or /a/b[@id='x'] are evaluated while streaming the document.")
     public Stream<MapResult> xml(@Name("url") String url, @Name(value = "path", defaultValue = "/") String path, @Name(value = "simple", defaultValue = "false") boolean simpleMode) throws Exception {
         return xmlXpathToMapResult(url, simpleMode, path);
     }
@@ -56,6 +66,26 @@ public class Xml {
         documentBuilderFactory.setIgnoringElementContentWhitespace(true);
         DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
 
+        path = StringUtils.isEmpty(path) ? "/" : path;
+        StreamingXPath streamingXPath = StreamingXPath.compile(path);
+        if (streamingXPath != null) {
+            FileUtils.checkReadAllowed(url);
+            InputStream input = new URL(url).openConnection().getInputStream();
+            StreamingXPath.Selection nodes;
+            try {
+                nodes = streamingXPath.select(STREAM_FACTORY.createXMLStreamReader(input), input, documentBuilder);
+            } catch (XMLStreamException | RuntimeException e) {
+                input.close();
+                throw e;
+            }
+            // procedure result streams are not closed by Neo4j, a document that is not read to the end is closed with the caller's transaction
+            KernelTransaction tx = db.getDependencyResolver().resolveDependency(ThreadToStatementContextBridge.class).getKernelTransactionBoundToThisThread(false);
+            if (tx != null) tx.registerCloseListener(txId -> nodes.close());
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(nodes, Spliterator.ORDERED), false)
+                    .flatMap(node -> toMapResults(node, simpleMode).stream())
+                    .onClose(nodes::close);
+        }
+
         FileUtils.checkReadAllowed(url);
         URLConnection urlConnection = new URL(url).openConnection();
         Document doc = documentBuilder.parse(urlConnection.getInputStream());
@@ -64,23 +94,28 @@ public class Xml {
 
         XPath xPath = xPathFactory.newXPath();
 
-        path = StringUtils.isEmpty(path) ? "/" : path;
         XPathExpression xPathExpression = xPath.compile(path);
         NodeList nodeList = (NodeList) xPathExpression.evaluate(doc, XPathConstants.NODESET);
 
         List<MapResult> result = new ArrayList<>();
 
         for (int i = 0; i < nodeList.getLength(); i++) {
-            final Deque<Map<String, Object>> stack = new LinkedList<>();
-
-            handleNode(stack, nodeList.item(i), simpleMode);
-            for (int index = 0; index < stack.size(); index++) {
-                result.add(new MapResult(stack.pollFirst()));
-            }
+            result.addAll(toMapResults(nodeList.item(i), simpleMode));
         }
         return result.stream();
     }
 
+    private List<MapResult> toMapResults(Node node, boolean simpleMode) {
+        List<MapResult> result = new ArrayList<>(1);
+        final Deque<Map<String, Object>> stack = new LinkedList<>();
+
+        handleNode(stack, node, simpleMode);
+        for (int index = 0; index < stack.size(); index++) {
+            result.add(new MapResult(stack.pollFirst()));
+        }
+        return result;
+    }
+
     private Stream<MapResult> xmlToMapResult(@Name("url") String url, boolean simpleMode) {
         try {
             XMLStreamReader reader = getXMLStreamReaderFromUrl(url);
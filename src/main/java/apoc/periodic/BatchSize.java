@@ -0,0 +1,103 @@
+package apoc.periodic;
+
+import apoc.util.Util;
+import org.neo4j.graphdb.QueryExecutionException;
+import org.neo4j.graphdb.TransientFailureException;
+import org.neo4j.kernel.DeadlockDetectedException;
+import org.neo4j.storageengine.api.lock.AcquireLockTimeoutException;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch size of a periodic job, either fixed or adapted AIMD-style to the measured batches:
+ * it doubles while batches commit well below the target time (slow start), then grows by
+ * <code>minBatchSize</code> per batch, and is halved whenever a batch exceeds the target time,
+ * fails on a deadlock or lock timeout, or the heap is nearly full.
+ */
+public class BatchSize {
+    static final String AUTO = "auto";
+    static final double HEAP_PRESSURE = 0.85;
+
+    private final int min;
+    private final int max;
+    private final long targetNanos;
+    private volatile int current;
+    private boolean slowStart = true;
+
+    private BatchSize(int min, int max, int initial, long targetNanos) {
+        this.min = min;
+        this.max = max;
+        this.current = initial;
+        this.targetNanos = targetNanos;
+    }
+
+    public static BatchSize fixed(long size) {
+        int value = (int) Math.max(1, size);
+        return new BatchSize(value, value, value, Long.MAX_VALUE);
+    }
+
+    public static BatchSize adaptive(long min, long max, long targetMillis) {
+        int lower = (int) Math.max(1, min);
+        int upper = (int) Math.max(lower, max);
+        return new BatchSize(lower, upper, lower, TimeUnit.MILLISECONDS.toNanos(targetMillis));
+    }
+
+    /**
+     * @param config with <code>batchSize</code> either a number or <code>'auto'</code>, in which case
+     *               <code>minBatchSize</code>, <code>maxBatchSize</code> and <code>targetBatchTime</code> (ms) are used
+     */
+    public static BatchSize from(Map<String, Object> config, long defaultSize) {
+        Object batchSize = config.getOrDefault("batchSize", defaultSize);
+        if (AUTO.equalsIgnoreCase(String.valueOf(batchSize))) {
+            return adaptive(Util.toLong(config.getOrDefault("minBatchSize", 100)),
+                    Util.toLong(config.getOrDefault("maxBatchSize", 100_000)),
+                    Util.toLong(config.getOrDefault("targetBatchTime", 1000)));
+        }
+        return fixed(Util.toLong(batchSize));
+    }
+
+    public boolean isAdaptive() {
+        return min != max;
+    }
+
+    public int get() {
+        return current;
+    }
+
+    public void committed(long nanos) {
+        if (!isAdaptive()) return;
+        if (nanos > targetNanos || heapPressure()) decrease();
+        else increase(nanos < targetNanos / 2);
+    }
+
+    public void failed(Throwable e) {
+        if (isAdaptive() && isContention(e)) decrease();
+    }
+
+    private synchronized void increase(boolean farBelowTarget) {
+        long next = slowStart && farBelowTarget ? (long) current * 2 : (long) current + min;
+        current = (int) Math.min(max, next);
+    }
+
+    private synchronized void decrease() {
+        slowStart = false;
+        current = Math.max(min, current / 2);
+    }
+
+    static boolean heapPressure() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        return used > runtime.maxMemory() * HEAP_PRESSURE;
+    }
+
+    static boolean isContention(Throwable e) {
+        while (e != null) {
+            if (e instanceof DeadlockDetectedException || e instanceof TransientFailureException || e instanceof AcquireLockTimeoutException) return true;
+            if (e instanceof QueryExecutionException && String.valueOf(((QueryExecutionException) e).getStatusCode()).contains("TransientError")) return true;
+            if (e.getCause() == e) break;
+            e = e.getCause();
+        }
+        return false;
+    }
+}
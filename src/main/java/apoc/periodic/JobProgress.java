@@ -0,0 +1,141 @@
+package apoc.periodic;
+
+import apoc.util.Util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.System.nanoTime;
+
+/**
+ * Live counters of a running periodic job, updated by the batch workers and read by
+ * <code>apoc.periodic.list</code> / <code>apoc.periodic.stats</code>.
+ *
+ * Throughput is computed over a sliding window of one-second buckets, latency percentiles
+ * over a ring buffer of the most recent batch commit times.
+ */
+public class JobProgress {
+    static final int WINDOW_SECONDS = 60;
+    static final int LATENCY_SAMPLES = 1024;
+
+    public final String type;
+    private final long start = nanoTime();
+    private volatile long end = -1;
+    private volatile long expectedTotal = -1;
+
+    final AtomicLong batches = new AtomicLong();
+    final AtomicLong committedBatches = new AtomicLong();
+    final AtomicLong failedBatches = new AtomicLong();
+    final AtomicLong rows = new AtomicLong();
+    final AtomicLong failedOperations = new AtomicLong();
+    final AtomicLong retries = new AtomicLong();
+    volatile long batchSize;
+
+    Periodic.JobInfo info;
+
+    private final long[] bucketSeconds = new long[WINDOW_SECONDS];
+    private final long[] bucketRows = new long[WINDOW_SECONDS];
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private long latencyCount;
+
+    public JobProgress(String type) {
+        this.type = type;
+        Arrays.fill(bucketSeconds, -1);
+    }
+
+    public JobProgress expectedTotal(long expectedTotal) {
+        this.expectedTotal = expectedTotal;
+        return this;
+    }
+
+    public long expectedTotal() {
+        return expectedTotal;
+    }
+
+    public void batchCommitted(long batchRows, long nanos) {
+        batches.incrementAndGet();
+        committedBatches.incrementAndGet();
+        rows.addAndGet(batchRows);
+        record(batchRows, nanos);
+    }
+
+    public void batchFailed(long batchRows, long nanos) {
+        batches.incrementAndGet();
+        failedBatches.incrementAndGet();
+        rows.addAndGet(batchRows);
+        record(batchRows, nanos);
+    }
+
+    public void done() {
+        if (end == -1) end = nanoTime();
+    }
+
+    public boolean isRunning() {
+        return end == -1;
+    }
+
+    private synchronized void record(long batchRows, long nanos) {
+        long second = TimeUnit.NANOSECONDS.toSeconds(nanoTime() - start);
+        int idx = (int) (second % WINDOW_SECONDS);
+        if (bucketSeconds[idx] != second) {
+            bucketSeconds[idx] = second;
+            bucketRows[idx] = 0;
+        }
+        bucketRows[idx] += batchRows;
+        latencies[(int) (latencyCount++ % LATENCY_SAMPLES)] = nanos;
+    }
+
+    public long elapsedMillis() {
+        long now = end == -1 ? nanoTime() : end;
+        return TimeUnit.NANOSECONDS.toMillis(now - start);
+    }
+
+    /**
+     * rows per second over the last {@link #WINDOW_SECONDS} seconds (or since start, if shorter)
+     */
+    public synchronized double rowsPerSecond() {
+        long now = (end == -1 ? nanoTime() : end) - start;
+        long second = TimeUnit.NANOSECONDS.toSeconds(now);
+        long sum = 0;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            if (bucketSeconds[i] > second - WINDOW_SECONDS) sum += bucketRows[i];
+        }
+        double window = Math.min(WINDOW_SECONDS, now / 1_000_000_000d);
+        return window <= 0 ? 0 : sum / window;
+    }
+
+    /**
+     * @param percentile between 0 and 1
+     * @return batch commit latency in milliseconds at the given percentile of the recent samples
+     */
+    public synchronized double latencyMillis(double percentile) {
+        int size = (int) Math.min(latencyCount, LATENCY_SAMPLES);
+        if (size == 0) return 0;
+        long[] sorted = Arrays.copyOf(latencies, size);
+        Arrays.sort(sorted);
+        int idx = (int) Math.min(size - 1, Math.ceil(percentile * size) - 1);
+        return sorted[Math.max(0, idx)] / 1_000_000d;
+    }
+
+    /**
+     * @return estimated remaining seconds or -1 if the total is not known
+     */
+    public long etaSeconds() {
+        long total = expectedTotal;
+        if (total < 0) return -1;
+        long remaining = Math.max(0, total - rows.get());
+        if (remaining == 0) return 0;
+        double rate = rowsPerSecond();
+        return rate <= 0 ? -1 : (long) Math.ceil(remaining / rate);
+    }
+
+    public Map<String, Object> toMap() {
+        return Util.map("type", type, "running", isRunning(), "elapsed", elapsedMillis(),
+                "batches", batches.get(), "committedBatches", committedBatches.get(), "failedBatches", failedBatches.get(),
+                "rows", rows.get(), "failedOperations", failedOperations.get(), "retries", retries.get(), "batchSize", batchSize,
+                "rowsPerSecond", rowsPerSecond(), "p50", latencyMillis(0.5), "p99", latencyMillis(0.99),
+                "expectedTotal", expectedTotal, "eta", etaSeconds());
+    }
+}
@@ -0,0 +1,91 @@
+package apoc.periodic;
+
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Routes the rows of an iteration into a fixed number of partitions by the value of one of their columns
+ * and runs each partition's batches in order on its own worker thread.
+ * Rows with the same key (node, relationship or plain value) always end up in the same partition,
+ * so batches touching the same entity never run concurrently.
+ */
+public class Partitions implements AutoCloseable {
+    private final String column;
+    private final List<Map<String, Object>>[] buffers;
+    private final ExecutorService[] workers;
+
+    @SuppressWarnings("unchecked")
+    public Partitions(String column, int count) {
+        this.column = column;
+        int size = Math.max(1, count);
+        this.buffers = new List[size];
+        this.workers = new ExecutorService[size];
+        for (int i = 0; i < size; i++) {
+            buffers[i] = new ArrayList<>();
+            workers[i] = Executors.newSingleThreadExecutor();
+        }
+    }
+
+    public int size() {
+        return workers.length;
+    }
+
+    /**
+     * Reads rows into the partition buffers until one of them holds <code>batchSize</code> rows.
+     * @return the index of the full partition or, if the iterator is exhausted, of any non-empty one, -1 if all are empty
+     */
+    public int fill(Iterator<Map<String, Object>> iterator, int batchSize) {
+        while (iterator.hasNext()) {
+            Map<String, Object> row = iterator.next();
+            int partition = partition(row.get(column));
+            buffers[partition].add(row);
+            if (buffers[partition].size() >= batchSize) return partition;
+        }
+        for (int i = 0; i < buffers.length; i++) {
+            if (!buffers[i].isEmpty()) return i;
+        }
+        return -1;
+    }
+
+    public boolean hasPending() {
+        for (List<Map<String, Object>> buffer : buffers) {
+            if (!buffer.isEmpty()) return true;
+        }
+        return false;
+    }
+
+    public List<Map<String, Object>> take(int partition) {
+        List<Map<String, Object>> batch = buffers[partition];
+        buffers[partition] = new ArrayList<>(batch.size());
+        return batch;
+    }
+
+    public ExecutorService worker(int partition) {
+        return workers[partition];
+    }
+
+    int partition(Object key) {
+        long hash;
+        if (key instanceof Node) hash = ((Node) key).getId();
+        else if (key instanceof Relationship) hash = ((Relationship) key).getId();
+        else if (key instanceof Number && !(key instanceof Double || key instanceof Float)) hash = ((Number) key).longValue();
+        else hash = key == null ? 0 : key.hashCode();
+        // spread sequential ids over all partitions
+        hash *= 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(hash ^ (hash >>> 32), (long) workers.length);
+    }
+
+    @Override
+    public void close() {
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+    }
+}
@@ -4,6 +4,7 @@ import org.neo4j.procedure.*;
 import apoc.Pools;
 import apoc.util.Util;
 import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
 import org.neo4j.helpers.collection.Iterators;
 import org.neo4j.kernel.api.KernelTransaction;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
@@ -13,6 +14,7 @@ import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
@@ -27,13 +29,18 @@ public class Periodic {
 
     @Context public Log log;
 
+    public static final int DEFAULT_MAX_IN_FLIGHT_BATCHES = 100;
+
     final static Map<JobInfo,Future> list = new ConcurrentHashMap<>();
+    final static Map<JobInfo,JobProgress> jobProgress = new ConcurrentHashMap<>();
+    final static AtomicLong jobIds = new AtomicLong();
     static {
         Runnable runnable = () -> {
             for (Iterator<Map.Entry<JobInfo, Future>> it = list.entrySet().iterator(); it.hasNext(); ) {
                 Map.Entry<JobInfo, Future> entry = it.next();
                 if (entry.getValue().isDone() || entry.getValue().isCancelled()) it.remove();
             }
+            jobProgress.keySet().retainAll(list.keySet());
         };
         Pools.SCHEDULED.scheduleAtFixedRate(runnable,10,10,TimeUnit.SECONDS);
     }
@@ -47,10 +54,19 @@ public class Periodic {
         return list.entrySet().stream().map( (e) -> e.getKey().update(e.getValue()));
     }
 
+    @Procedure
+    @Description("apoc.periodic.stats(name) - live progress of the job with the given name: batches, rows, rows/sec, failures, retries, p50/p99 batch commit latency and ETA")
+    public Stream<JobStats> stats(@Name("name") String name) {
+        JobInfo info = new JobInfo(name);
+        JobProgress progress = jobProgress.get(info);
+        return progress == null ? Stream.empty() : Stream.of(new JobStats(name, progress));
+    }
+
     @Procedure(mode = Mode.WRITE)
-    @Description("apoc.periodic.commit(statement,params) - runs the given statement in separate transactions until it returns 0")
-    public Stream<RundownResult> commit(@Name("statement") String statement, @Name("params") Map<String,Object> parameters) throws ExecutionException, InterruptedException {
+    @Description("apoc.periodic.commit(statement,params,{batchSize:'auto',minBatchSize:100,maxBatchSize:100000,targetBatchTime:1000}) - runs the given statement in separate transactions until it returns 0, a configured batchSize is passed as {limit}")
+    public Stream<RundownResult> commit(@Name("statement") String statement, @Name("params") Map<String,Object> parameters, @Name(value = "config", defaultValue = "{}") Map<String,Object> config) throws ExecutionException, InterruptedException {
         Map<String,Object> params = parameters == null ? Collections.emptyMap() : parameters;
+        BatchSize batchSize = config == null || !config.containsKey("batchSize") ? null : BatchSize.from(config, 10000);
         long total = 0, executions = 0, updates = 0;
         long start = nanoTime();
 
@@ -60,25 +76,70 @@ public class Periodic {
         AtomicInteger failedBatches = new AtomicInteger();
         Map<String,Long> batchErrors = new ConcurrentHashMap<>();
 
-        do {
-            Map<String, Object> window = Util.map("_count", updates, "_total", total);
-            updates = Util.getFuture(Pools.SCHEDULED.submit(() -> {
-                batches.incrementAndGet();
-                try {
-                    return executeNumericResultStatement(statement, merge(window, params));
-                } catch(Exception e) {
-                    failedBatches.incrementAndGet();
-                    recordError(batchErrors, e);
-                    return 0L;
+        JobProgress progress = new JobProgress("commit");
+        CompletableFuture<Void> running = register(nextJobName("commit"), progress);
+        try {
+            do {
+                Map<String, Object> window = Util.map("_count", updates, "_total", total);
+                Map<String, Object> batchParams = merge(window, params);
+                if (batchSize != null) {
+                    progress.batchSize = batchSize.get();
+                    batchParams = merge(batchParams, singletonMap("limit", progress.batchSize));
                 }
-            }), commitErrors, failedCommits, 0L);
-            total += updates;
-            if (updates > 0) executions++;
-        } while (updates > 0);
+                Map<String, Object> statementParams = batchParams;
+                updates = Util.getFuture(Pools.SCHEDULED.submit(() -> {
+                    batches.incrementAndGet();
+                    long batchStart = nanoTime();
+                    try {
+                        long result = executeNumericResultStatement(statement, statementParams);
+                        progress.batchCommitted(result, nanoTime() - batchStart);
+                        if (batchSize != null) batchSize.committed(nanoTime() - batchStart);
+                        return result;
+                    } catch(Exception e) {
+                        failedBatches.incrementAndGet();
+                        progress.batchFailed(0, nanoTime() - batchStart);
+                        if (batchSize != null) batchSize.failed(e);
+                        recordError(batchErrors, e);
+                        return 0L;
+                    }
+                }), commitErrors, failedCommits, 0L);
+                total += updates;
+                if (updates > 0) executions++;
+            } while (updates > 0);
+        } finally {
+            unregister(progress, running);
+        }
         long timeTaken = TimeUnit.NANOSECONDS.toSeconds(nanoTime() - start);
         return Stream.of(new RundownResult(total,executions, timeTaken, batches.get(),failedBatches.get(),batchErrors, failedCommits.get(), commitErrors));
     }
 
+    private static String nextJobName(String type) {
+        return type + "-" + jobIds.incrementAndGet();
+    }
+
+    /**
+     * Registers a job that runs on the calling thread, so that it shows up in <code>apoc.periodic.list</code> and
+     * <code>apoc.periodic.stats</code> while it is running.
+     * Fails if a job with the same name is still running or scheduled, a finished one is replaced.
+     */
+    private static CompletableFuture<Void> register(String name, JobProgress progress) {
+        JobInfo info = new JobInfo(name);
+        CompletableFuture<Void> running = new CompletableFuture<>();
+        Future existing = list.putIfAbsent(info, running);
+        if (existing != null && !(existing.isDone() && list.replace(info, existing, running))) {
+            throw new RuntimeException("A job with the name '" + name + "' is already running or scheduled, please use another jobName");
+        }
+        jobProgress.put(info, progress);
+        progress.info = info;
+        return running;
+    }
+
+    private static void unregister(JobProgress progress, CompletableFuture<Void> running) {
+        progress.done();
+        running.complete(null);
+        if (list.remove(progress.info, running)) jobProgress.remove(progress.info, progress);
+    }
+
     private void recordError(Map<String, Long> executionErrors, Exception e) {
         executionErrors.compute(getMessages(e),(s, i) -> i == null ? 1 : i + 1);
     }
@@ -136,6 +197,7 @@ public class Periodic {
         Future future = list.remove(info);
         if (future != null) {
             future.cancel(true);
+            jobProgress.remove(info);
             return Stream.of(info.update(future));
         }
         return Stream.empty();
@@ -144,13 +206,20 @@ public class Periodic {
     @Procedure
     @Description("apoc.periodic.submit('name',statement) - submit a one-off background statement")
     public Stream<JobInfo> submit(@Name("name") String name, @Name("statement") String statement) {
+        JobProgress progress = new JobProgress("submit");
         JobInfo info = submit(name, () -> {
+            long batchStart = nanoTime();
             try {
-                Iterators.count(db.execute(statement));
+                progress.batchCommitted(Iterators.count(db.execute(statement)), nanoTime() - batchStart);
             } catch(Exception e) {
+                progress.batchFailed(0, nanoTime() - batchStart);
                 throw new RuntimeException(e);
+            } finally {
+                progress.done();
             }
         });
+        progress.info = info;
+        jobProgress.put(info, progress);
         return Stream.of(info);
     }
 
@@ -219,21 +288,27 @@ public class Periodic {
         Map<String,Object> loopParams = new HashMap<>(1);
         Object value = null;
 
-        while (true) {
-            loopParams.put("previous", value);
+        JobProgress progress = new JobProgress("rock_n_roll_while");
+        CompletableFuture<Void> running = register(nextJobName("rock_n_roll_while"), progress);
+        try {
+            while (true) {
+                loopParams.put("previous", value);
 
-            try (Result result = db.execute(cypherLoop, loopParams)) {
-                value = result.next().get("loop");
-                if (!Util.toBoolean(value)) return allResults;
-            }
+                try (Result result = db.execute(cypherLoop, loopParams)) {
+                    value = result.next().get("loop");
+                    if (!Util.toBoolean(value)) return allResults;
+                }
 
-            log.info("starting batched operation using iteration `%s` in separate thread", cypherIterate);
-            try (Result result = db.execute(cypherIterate)) {
-                Stream<BatchAndTotalResult> oneResult =
-                    iterateAndExecuteBatchedInSeparateThread((int) batchSize, false, false,0, result, params -> db.execute(cypherAction, params));
-                final Object loopParam = value;
-                allResults = Stream.concat(allResults, oneResult.map(r -> r.inLoop(loopParam)));
+                log.info("starting batched operation using iteration `%s` in separate thread", cypherIterate);
+                try (Result result = db.execute(cypherIterate)) {
+                    Stream<BatchAndTotalResult> oneResult =
+                        iterateAndExecuteBatchedInSeparateThread(BatchSize.fixed(batchSize), false, false,0, DEFAULT_MAX_IN_FLIGHT_BATCHES, null, progress, result, params -> db.execute(cypherAction, params));
+                    final Object loopParam = value;
+                    allResults = Stream.concat(allResults, oneResult.map(r -> r.inLoop(loopParam)));
+                }
             }
+        } finally {
+            unregister(progress, running);
         }
     }
 
@@ -243,21 +318,32 @@ public class Periodic {
      * @param cypherAction
      */
     @Procedure(mode = Mode.WRITE)
-    @Description("apoc.periodic.iterate('statement returning items', 'statement per item', {batchSize:1000,iterateList:false,parallel:true}) YIELD batches, total - run the second statement for each item returned by the first statement. Returns number of batches and total processed rows")
+    @Description("apoc.periodic.iterate('statement returning items', 'statement per item', {batchSize:1000,iterateList:false,parallel:true,maxInFlightBatches:100,jobName:'name',expectedTotal:-1,partitionBy:'column',partitions:n,minBatchSize:100,maxBatchSize:100000,targetBatchTime:1000}) YIELD batches, total - run the second statement for each item returned by the first statement. Returns number of batches and total processed rows. With batchSize:'auto' the batch size adapts between minBatchSize and maxBatchSize to commit in about targetBatchTime ms")
     public Stream<BatchAndTotalResult> iterate(
             @Name("cypherIterate") String cypherIterate,
             @Name("cypherAction") String cypherAction,
             @Name("config") Map<String,Object> config) {
 
-        long batchSize = Util.toLong(config.getOrDefault("batchSize", 10000));
+        BatchSize batchSize = BatchSize.from(config, 10000);
         boolean parallel = Util.toBoolean(config.getOrDefault("parallel", false));
         boolean iterateList = Util.toBoolean(config.getOrDefault("iterateList", false));
         long retries = Util.toLong(config.getOrDefault("retries", 0)); // todo sleep/delay or push to end of batch to try again or immediate ?
+        int maxInFlightBatches = (int) Util.toLong(config.getOrDefault("maxInFlightBatches", DEFAULT_MAX_IN_FLIGHT_BATCHES));
         Map<String,Object> params = (Map)config.getOrDefault("params", Collections.emptyMap());
-        try (Result result = db.execute(cypherIterate,params)) {
+        String jobName = (String) config.getOrDefault("jobName", nextJobName("iterate"));
+        JobProgress progress = new JobProgress("iterate").expectedTotal(Util.toLong(config.getOrDefault("expectedTotal", -1)));
+        String partitionBy = (String) config.get("partitionBy");
+        CompletableFuture<Void> running = register(jobName, progress);
+        try (Result result = db.execute(cypherIterate,params);
+             Partitions partitions = partitionBy == null ? null : new Partitions(partitionBy, (int) Util.toLong(config.getOrDefault("partitions", Pools.getNoThreadsInDefaultPool())))) {
+            if (partitions != null && !result.columns().contains(partitionBy)) {
+                throw new RuntimeException("partitionBy column `" + partitionBy + "` is not returned by the iterate statement, available columns are " + result.columns());
+            }
             String innerStatement = prepareInnerStatement(cypherAction, iterateList, result.columns(), "_batch");
             log.info("starting batching from `%s` operation using iteration `%s` in separate thread", cypherIterate,cypherAction);
-            return iterateAndExecuteBatchedInSeparateThread((int)batchSize, parallel, iterateList, retries, result, (p) -> db.execute(innerStatement, merge(params, p)).close());
+            return iterateAndExecuteBatchedInSeparateThread(batchSize, parallel, iterateList, retries, maxInFlightBatches, partitions, progress, result, (p) -> db.execute(innerStatement, merge(params, p)).close());
+        } finally {
+            unregister(progress, running);
         }
     }
 
@@ -293,25 +379,57 @@ public class Periodic {
             @Name("batchSize") long batchSize) {
 
         log.info("starting batched operation using iteration `%s` in separate thread", cypherIterate);
+        JobProgress progress = new JobProgress("rock_n_roll");
+        CompletableFuture<Void> running = register(nextJobName("rock_n_roll"), progress);
         try (Result result = db.execute(cypherIterate)) {
-            return iterateAndExecuteBatchedInSeparateThread((int)batchSize, false, false, 0, result, p -> db.execute(cypherAction, p).close());
+            return iterateAndExecuteBatchedInSeparateThread(BatchSize.fixed(batchSize), false, false, 0, DEFAULT_MAX_IN_FLIGHT_BATCHES, null, progress, result, p -> db.execute(cypherAction, p).close());
+        } finally {
+            unregister(progress, running);
         }
     }
 
-    private Stream<BatchAndTotalResult> iterateAndExecuteBatchedInSeparateThread(int batchsize, boolean parallel, boolean iterateList, long retries,
-                                                                                 Iterator<Map<String,Object>> iterator, Consumer<Map<String,Object>> consumer) {
+    /**
+     * Pulls batches from the iterator and submits them to the pool, keeping at most <code>maxInFlightBatches</code>
+     * of them (and their rows) alive at any time. When the window is full the driver thread blocks on the oldest
+     * batch, whose result is folded into the running totals and dropped.
+     * With <code>partitions</code> the rows are grouped by their partition and each batch runs on its partition's worker.
+     */
+    private Stream<BatchAndTotalResult> iterateAndExecuteBatchedInSeparateThread(BatchSize batchSize, boolean parallel, boolean iterateList, long retries, int maxInFlightBatches,
+                                                                                 Partitions partitions, JobProgress progress, Iterator<Map<String,Object>> iterator, Consumer<Map<String,Object>> consumer) {
         ExecutorService pool = parallel ? Pools.DEFAULT : Pools.SINGLE;
-        List<Future<Long>> futures = new ArrayList<>(1000);
+        int window = Math.max(1, maxInFlightBatches);
+        // an adaptive batch size needs timely feedback, so don't queue up batches beyond what the pool can run
+        if (batchSize.isAdaptive()) window = Math.min(window, partitions != null ? partitions.size() * 2 : parallel ? Pools.getNoThreadsInDefaultPool() * 2 : 2);
+        Deque<Future<Long>> inFlight = new ArrayDeque<>(Math.min(window, 1000));
         long batches = 0;
+        long successes = 0;
         long start = System.nanoTime();
         AtomicLong count = new AtomicLong();
-        AtomicInteger failedOps = new AtomicInteger();
+        AtomicLong failedOps = new AtomicLong();
         AtomicLong retried = new AtomicLong();
         Map<String,Long> operationErrors = new ConcurrentHashMap<>();
+        AtomicInteger failedBatches = new AtomicInteger();
+        Map<String,Long> batchErrors = new HashMap<>();
         do {
+            while (!inFlight.isEmpty() && (inFlight.size() >= window || inFlight.peekFirst().isDone())) {
+                successes += Util.getFuture(inFlight.pollFirst(), batchErrors, failedBatches, 0L);
+            }
+            int batchsize = batchSize.get();
+            progress.batchSize = batchsize;
             if (log.isDebugEnabled()) log.debug("execute in batch no " + batches + " batch size " + batchsize);
-            List<Map<String,Object>> batch = Util.take(iterator, batchsize);
+            List<Map<String,Object>> batch;
+            ExecutorService batchPool = pool;
+            if (partitions == null) {
+                batch = Util.take(iterator, batchsize);
+            } else {
+                int partition = partitions.fill(iterator, batchsize);
+                if (partition == -1) continue;
+                batch = partitions.take(partition);
+                batchPool = partitions.worker(partition);
+            }
             long currentBatchSize = batch.size();
+            // the first failed operation of the batch, the batch size only adapts once per batch
+            AtomicReference<Exception> batchFailure = new AtomicReference<>();
             Callable<Long> task;
             if (iterateList) {
                 task = () -> {
@@ -319,9 +437,13 @@ public class Periodic {
                     List<Map<String,Object>> batchLocal = batch;
                     try {
                         Map<String, Object> params = Util.map("_count", c, "_batch", batchLocal);
-                        retried.addAndGet(retry(consumer,params,0,retries));
+                        long retriesUsed = retry(consumer,params,0,retries);
+                        retried.addAndGet(retriesUsed);
+                        progress.retries.addAndGet(retriesUsed);
                     } catch (Exception e) {
-                        failedOps.addAndGet(batchsize);
+                        failedOps.addAndGet(currentBatchSize);
+                        progress.failedOperations.addAndGet(currentBatchSize);
+                        batchFailure.compareAndSet(null, e);
                         recordError(operationErrors, e);
                     }
                     return currentBatchSize;
@@ -333,21 +455,25 @@ public class Periodic {
                             List<Map<String,Object>> batchLocal = batch;
                             try {
                                 Map<String, Object> params = merge(p, Util.map("_count", c, "_batch", batchLocal));
-                                retried.addAndGet(retry(consumer,params,0,retries));
+                                long retriesUsed = retry(consumer,params,0,retries);
+                                retried.addAndGet(retriesUsed);
+                                progress.retries.addAndGet(retriesUsed);
                             } catch (Exception e) {
                                 failedOps.incrementAndGet();
+                                progress.failedOperations.incrementAndGet();
+                                batchFailure.compareAndSet(null, e);
                                 recordError(operationErrors, e);
                             }
                             return 1;
                         }).mapToLong(l -> l).sum();
             }
-            futures.add(Util.inTxFuture(pool, db, task));
+            inFlight.addLast(inTxFuture(batchPool, progress, batchSize, currentBatchSize, batchFailure, task));
             batches++;
-        } while (iterator.hasNext());
+        } while (iterator.hasNext() || partitions != null && partitions.hasPending());
 
-        AtomicInteger failedBatches = new AtomicInteger();
-        Map<String,Long> batchErrors = new HashMap<>();
-        long successes = futures.stream().mapToLong(f -> Util.getFuture(f, batchErrors, failedBatches, 0L)).sum();
+        while (!inFlight.isEmpty()) {
+            successes += Util.getFuture(inFlight.pollFirst(), batchErrors, failedBatches, 0L);
+        }
         Util.logErrors("Error during iterate.commit:", batchErrors, log);
         Util.logErrors("Error during iterate.execute:", operationErrors, log);
         long timeTaken = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start);
@@ -356,6 +482,35 @@ public class Periodic {
         return Stream.of(result);
     }
 
+    /**
+     * like {@link Util#inTxFuture(ExecutorService, GraphDatabaseAPI, Callable)} but records the batch, including its commit, in the job's progress.
+     * The batch size is told about each batch once, as failed if the commit or any of its operations failed.
+     */
+    private Future<Long> inTxFuture(ExecutorService pool, JobProgress progress, BatchSize batchSize, long batchRows, AtomicReference<Exception> batchFailure, Callable<Long> task) {
+        try {
+            return pool.submit(() -> {
+                long batchStart = nanoTime();
+                try {
+                    Long result;
+                    try (Transaction tx = db.beginTx()) {
+                        result = task.call();
+                        tx.success();
+                    }
+                    progress.batchCommitted(batchRows, nanoTime() - batchStart);
+                    if (batchFailure.get() == null) batchSize.committed(nanoTime() - batchStart);
+                    else batchSize.failed(batchFailure.get());
+                    return result;
+                } catch (Exception e) {
+                    progress.batchFailed(batchRows, nanoTime() - batchStart);
+                    batchSize.failed(e);
+                    throw e;
+                }
+            });
+        } catch (Exception e) {
+            throw new RuntimeException("Error executing in separate transaction", e);
+        }
+    }
+
     public static class BatchAndTotalResult {
         public final long batches;
         public final long total;
@@ -411,12 +566,51 @@ public class Periodic {
         return info;
     }
 
+    public static class JobStats {
+        public final String name;
+        public final String type;
+        public final boolean running;
+        public final long elapsed;
+        public final long batches;
+        public final long committedBatches;
+        public final long failedBatches;
+        public final long rows;
+        public final long failedOperations;
+        public final long retries;
+        public final long batchSize;
+        public final double rowsPerSecond;
+        public final double p50;
+        public final double p99;
+        public final long expectedTotal;
+        public final long eta;
+
+        public JobStats(String name, JobProgress progress) {
+            this.name = name;
+            this.type = progress.type;
+            this.running = progress.isRunning();
+            this.elapsed = progress.elapsedMillis();
+            this.batches = progress.batches.get();
+            this.committedBatches = progress.committedBatches.get();
+            this.failedBatches = progress.failedBatches.get();
+            this.rows = progress.rows.get();
+            this.failedOperations = progress.failedOperations.get();
+            this.retries = progress.retries.get();
+            this.batchSize = progress.batchSize;
+            this.rowsPerSecond = progress.rowsPerSecond();
+            this.p50 = progress.latencyMillis(0.5);
+            this.p99 = progress.latencyMillis(0.99);
+            this.expectedTotal = progress.expectedTotal();
+            this.eta = progress.etaSeconds();
+        }
+    }
+
     public static class JobInfo {
         public final String name;
         public long delay;
         public long rate;
         public boolean done;
         public boolean cancelled;
+        public Map<String,Object> progress;
 
         public JobInfo(String name) {
             this.name = name;
@@ -431,6 +625,8 @@ public class Periodic {
         public JobInfo update(Future future) {
             this.done = future.isDone();
             this.cancelled = future.isCancelled();
+            JobProgress jobProgress = Periodic.jobProgress.get(this);
+            this.progress = jobProgress == null ? null : jobProgress.toMap();
             return this;
         }
 
@@ -1,10 +1,22 @@
 package apoc.search;
 
+import apoc.Pools;
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.collection.primitive.PrimitiveLongObjectMap;
+import org.neo4j.collection.primitive.PrimitiveLongSet;
+import org.neo4j.kernel.api.KernelTransaction;
+import org.neo4j.kernel.api.ReadOperations;
+import org.neo4j.kernel.api.Statement;
+import org.neo4j.kernel.api.StatementConstants;
+import org.neo4j.kernel.api.exceptions.KernelException;
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.api.index.InternalIndexState;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
 import org.neo4j.procedure.Description;
 import apoc.result.NodeResult;
 import apoc.util.Util;
-import org.neo4j.graphdb.Node;
-import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.logging.Log;
@@ -13,20 +25,38 @@ import org.neo4j.procedure.Name;
 import org.neo4j.procedure.Procedure;
 
 import java.util.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static java.lang.String.format;
 import static java.lang.System.currentTimeMillis;
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
-import static java.util.Collections.singletonMap;
-import static java.util.stream.Collectors.groupingBy;
+import static java.util.Spliterators.spliteratorUnknownSize;
 
+/**
+ * Searches run one worker per label and property in their own pool, each worker uses the schema index of the pair
+ * if there is one and it supports the operator, and otherwise scans the label and compares the property values.
+ * The workers hand their hits to a bounded queue, the procedure streams from it, so a <code>limit</code> stops all workers
+ * as soon as enough nodes were found. The reduced procedures that merge the hits of a node need all of them, they apply the limit after the search.
+ */
 public class ParallelNodeSearch {
 
     private final static Set<String> OPERATORS = new HashSet<>(asList("exact","starts with", "ends with", "contains", "<", ">", "=", "<>", "<=", ">=", "=~"));
+    private final static int QUEUE_SIZE = 1000;
+    // longest a worker waits for the consumer and the consumer for the next hit, so an abandoned search can't pin a thread
+    private final static long MAX_WAIT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    // workers wait in an unbounded queue instead of blocking the caller, which is the only consumer of their hits
+    private final static ExecutorService WORKERS = createWorkerPool();
 
     @Context
     public GraphDatabaseAPI api;
@@ -36,9 +66,10 @@ public class ParallelNodeSearch {
 
 
     @Procedure("apoc.search.nodeAllReduced")
-    @Description("Do a parallel search over multiple indexes returning a reduced representation of the nodes found: node id, labels and the searched property. apoc.search.nodeShortAll( map of label and properties which will be searched upon, operator: EXACT / CONTAINS / STARTS WITH | ENDS WITH / = / <> / < / > ..., value ). All 'hits' are returned.")
-    public Stream<NodeReducedResult> multiSearchAll(@Name("LabelPropertyMap") final Object labelProperties, @Name("operator") final String operator, @Name("value") final Object value) throws Exception {
-        return createWorkersFromValidInput(labelProperties, operator, value).flatMap(QueryWorker::queryForData);
+    @Description("Do a parallel search over multiple indexes returning a reduced representation of the nodes found: node id, labels and the searched property. apoc.search.nodeShortAll( map of label and properties which will be searched upon, operator: EXACT / CONTAINS / STARTS WITH | ENDS WITH / = / <> / < / > ..., value, limit ). All 'hits' are returned, at most limit if it is greater than 0.")
+    public Stream<NodeReducedResult> multiSearchAll(@Name("LabelPropertyMap") final Object labelProperties, @Name("operator") final String operator, @Name("value") final Object value, @Name(value = "limit", defaultValue = "0") long limit) throws Exception {
+        HitMerge hits = search(labelProperties, operator, value, true, false, limit);
+        return stream(hits).map(hit -> new NodeReducedResult(hit.id, singletonList(hit.label), Collections.singletonMap(hit.prop, hit.value)));
     }
 
 
@@ -51,41 +82,76 @@ public class ParallelNodeSearch {
     }
 
     @Procedure("apoc.search.nodeReduced")
-    @Description("Do a parallel search over multiple indexes returning a reduced representation of the nodes found: node id, labels and the searched properties. apoc.search.nodeReduced( map of label and properties which will be searched upon, operator: EXACT | CONTAINS | STARTS WITH | ENDS WITH, searchValue ). Multiple search results for the same node are merged into one record.")
-    public Stream<NodeReducedResult> multiSearch(@Name("LabelPropertyMap") final Object labelProperties, @Name("operator") final String operator, @Name("value") final String value) throws Exception {
-        return createWorkersFromValidInput(labelProperties, operator, value)
-                    .flatMap(QueryWorker::queryForData)
-                    .collect(groupingBy(res -> res.id,Collectors.reducing(this::merge)))
-                    .values().stream().filter(Optional::isPresent).map(Optional::get);
+    @Description("Do a parallel search over multiple indexes returning a reduced representation of the nodes found: node id, labels and the searched properties. apoc.search.nodeReduced( map of label and properties which will be searched upon, operator: EXACT | CONTAINS | STARTS WITH | ENDS WITH, searchValue, limit ). Multiple search results for the same node are merged into one record, at most limit records if it is greater than 0.")
+    public Stream<NodeReducedResult> multiSearch(@Name("LabelPropertyMap") final Object labelProperties, @Name("operator") final String operator, @Name("value") final String value, @Name(value = "limit", defaultValue = "0") long limit) throws Exception {
+        return mergeByNode(search(labelProperties, operator, value, true, false, 0), limit);
     }
 
     @Procedure("apoc.search.multiSearchReduced")
-    @Description("Do a parallel search over multiple indexes returning a reduced representation of the nodes found: node id, labels and the searched properties. apoc.search.multiSearchReduced( map of label and properties which will be searched upon, operator: EXACT | CONTAINS | STARTS WITH | ENDS WITH, searchValue ). Multiple search results for the same node are merged into one record.")
-    public Stream<NodeReducedResult> multiSearchOld(@Name("LabelPropertyMap") final Object labelProperties, @Name("operator") final String operator, @Name("value") final String value) throws Exception {
-            return createWorkersFromValidInput(labelProperties, operator, value)
-                    .flatMap(QueryWorker::queryForData)
-                    .collect(groupingBy(res -> res.id))
-                    .values().stream().map( list -> list.stream().reduce( this::merge ))
-                    .filter(Optional::isPresent).map(Optional::get);
+    @Description("Do a parallel search over multiple indexes returning a reduced representation of the nodes found: node id, labels and the searched properties. apoc.search.multiSearchReduced( map of label and properties which will be searched upon, operator: EXACT | CONTAINS | STARTS WITH | ENDS WITH, searchValue, limit ). Multiple search results for the same node are merged into one record, at most limit records if it is greater than 0.")
+    public Stream<NodeReducedResult> multiSearchOld(@Name("LabelPropertyMap") final Object labelProperties, @Name("operator") final String operator, @Name("value") final String value, @Name(value = "limit", defaultValue = "0") long limit) throws Exception {
+        return mergeByNode(search(labelProperties, operator, value, true, false, 0), limit);
     }
 
     @Procedure("apoc.search.nodeAll")
-    @Description("Do a parallel search over multiple indexes returning nodes. usage apoc.search.nodeAll( map of label and properties which will be searched upon, operator: EXACT | CONTAINS | STARTS WITH | ENDS WITH, searchValue ) returns all the Nodes found in the different searches.")
-    public Stream<NodeResult> multiSearchNodeAll(@Name("LabelPropertyMap") final Object labelProperties, @Name("operator") final String operator, @Name("value") final String value) throws Exception {
-        return createWorkersFromValidInput(labelProperties, operator, value).flatMap(QueryWorker::queryForNode);
+    @Description("Do a parallel search over multiple indexes returning nodes. usage apoc.search.nodeAll( map of label and properties which will be searched upon, operator: EXACT | CONTAINS | STARTS WITH | ENDS WITH, searchValue, limit ) returns all the Nodes found in the different searches, at most limit if it is greater than 0.")
+    public Stream<NodeResult> multiSearchNodeAll(@Name("LabelPropertyMap") final Object labelProperties, @Name("operator") final String operator, @Name("value") final String value, @Name(value = "limit", defaultValue = "0") long limit) throws Exception {
+        return stream(search(labelProperties, operator, value, false, false, limit)).map(hit -> new NodeResult(api.getNodeById(hit.id)));
     }
 
 
     @Procedure("apoc.search.node")
-    @Description("Do a parallel search over multiple indexes returning nodes. usage apoc.search.node( map of label and properties which will be searched upon, operator: EXACT | CONTAINS | STARTS WITH | ENDS WITH, searchValue ) returns all the DISTINCT Nodes found in the different searches.")
-    public Stream<NodeResult> multiSearchNode(@Name("LabelPropertyMap") final Object labelProperties, @Name("operator") final String operator, @Name("value") final String value) throws Exception {
-        return createWorkersFromValidInput(labelProperties, operator, value)
-                .flatMap(QueryWorker::queryForNode)
-                .distinct();
+    @Description("Do a parallel search over multiple indexes returning nodes. usage apoc.search.node( map of label and properties which will be searched upon, operator: EXACT | CONTAINS | STARTS WITH | ENDS WITH, searchValue, limit ) returns all the DISTINCT Nodes found in the different searches, at most limit if it is greater than 0.")
+    public Stream<NodeResult> multiSearchNode(@Name("LabelPropertyMap") final Object labelProperties, @Name("operator") final String operator, @Name("value") final String value, @Name(value = "limit", defaultValue = "0") long limit) throws Exception {
+        return stream(search(labelProperties, operator, value, false, true, limit)).map(hit -> new NodeResult(api.getNodeById(hit.id)));
     }
 
+    private static ExecutorService createWorkerPool() {
+        int threads = Pools.getNoThreadsInDefaultPool();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    // merges all hits of a node into one result, the limit applies to the merged results, as any later hit might belong to one of them
+    private Stream<NodeReducedResult> mergeByNode(HitMerge hits, long limit) {
+        PrimitiveLongObjectMap<NodeReducedResult> byId = Primitive.longObjectMap();
+        List<NodeReducedResult> results = new ArrayList<>();
+        try {
+            while (hits.hasNext()) {
+                Hit hit = hits.next();
+                NodeReducedResult result = new NodeReducedResult(hit.id, new ArrayList<>(singletonList(hit.label)), new HashMap<>(Collections.singletonMap(hit.prop, hit.value)));
+                NodeReducedResult existing = byId.get(hit.id);
+                if (existing != null) {
+                    merge(existing, result);
+                    continue;
+                }
+                byId.put(hit.id, result);
+                results.add(result);
+            }
+        } finally {
+            hits.stop();
+        }
+        return limit > 0 && results.size() > limit ? results.subList(0, (int) limit).stream() : results.stream();
+    }
+
+    private static Stream<Hit> stream(HitMerge hits) {
+        return StreamSupport.stream(spliteratorUnknownSize(hits, 0), false).onClose(hits::stop);
+    }
+
+    private HitMerge search(final Object labelPropertiesInput, String operatorInput, final Object value, boolean withValues, boolean distinct, long limit) throws Exception {
+        List<QueryWorker> workers = createWorkersFromValidInput(labelPropertiesInput, operatorInput, value, withValues);
+        HitMerge hits = new HitMerge(workers.size(), distinct, limit);
+        // procedure result streams are not closed by Neo4j, the caller's transaction ends the search when it closes
+        KernelTransaction tx = api.getDependencyResolver().resolveDependency(ThreadToStatementContextBridge.class).getKernelTransactionBoundToThisThread(false);
+        if (tx != null) tx.registerCloseListener(txId -> hits.stop());
+        for (QueryWorker worker : workers) {
+            WORKERS.execute(() -> worker.run(hits));
+        }
+        return hits;
+    }
 
-    private Stream<QueryWorker> createWorkersFromValidInput(final Object labelPropertiesInput, String operatorInput, final Object value) throws Exception {
+    private List<QueryWorker> createWorkersFromValidInput(final Object labelPropertiesInput, String operatorInput, final Object value, boolean withValues) throws Exception {
         String operatorNormalized = operatorInput.trim().toLowerCase();
         if (operatorInput == null || !OPERATORS.contains(operatorNormalized)) {
             throw new Exception(format("operator `%s` invalid, it must have one of the following values (case insensitive): %s.", operatorInput, OPERATORS));
@@ -97,57 +163,295 @@ public class ParallelNodeSearch {
         }
         Map<String, Object> labelProperties = labelPropertiesInput instanceof Map ? (Map<String, Object>) labelPropertiesInput : Util.readMap(labelPropertiesInput.toString());
 
-        return labelProperties.entrySet().parallelStream().flatMap(e -> {
+        ThreadToStatementContextBridge ctx = api.getDependencyResolver().resolveDependency(ThreadToStatementContextBridge.class);
+        List<QueryWorker> workers = new ArrayList<>();
+        for (Map.Entry<String, Object> e : labelProperties.entrySet()) {
             String label = e.getKey();
             Object properties = e.getValue();
             if (properties instanceof String) {
-                return Stream.of(new QueryWorker(api, label, (String) properties, operator, value, log));
+                workers.add(new QueryWorker(api, ctx, label, (String) properties, operator, value, withValues, log));
             } else if (properties instanceof List) {
-                return ((List<String>) properties).stream().map(prop -> new QueryWorker(api, label, prop, operator, value, log));
+                for (String prop : (List<String>) properties) {
+                    workers.add(new QueryWorker(api, ctx, label, prop, operator, value, withValues, log));
+                }
+            } else {
+                throw new RuntimeException("Invalid type for properties " + properties + ": " + (properties == null ? "null" : properties.getClass()));
             }
-            throw new RuntimeException("Invalid type for properties " + properties + ": " + (properties == null ? "null" : properties.getClass()));
-        });
+        }
+        return workers;
     }
 
     public static class QueryWorker {
         private GraphDatabaseAPI db;
+        private ThreadToStatementContextBridge ctx;
         private String label, prop, operator;
         Object value;
+        private boolean withValues;
         private Log log;
 
-        public QueryWorker(GraphDatabaseAPI db, String label, String prop, String operator, Object value, Log log) {
+        public QueryWorker(GraphDatabaseAPI db, ThreadToStatementContextBridge ctx, String label, String prop, String operator, Object value, boolean withValues, Log log) {
             this.db = db;
+            this.ctx = ctx;
             this.label = label;
             this.prop = prop;
             this.value = value;
             this.operator = operator;
+            this.withValues = withValues;
             this.log = log;
         }
 
-        public Stream<NodeReducedResult> queryForData() {
-            List<String> labels = singletonList(label);
-            String query = format("match (n:`%s`) where n.`%s` %s {value} return id(n) as id,  n.`%s` as value", label, prop, operator, prop);
-            return queryForNode(query, (row) -> new NodeReducedResult((long) row.get("id"), labels, singletonMap(prop, row.get("value")))).stream();
+        public void run(HitMerge hits) {
+            long start = currentTimeMillis();
+            boolean indexed = false;
+            try (Transaction tx = db.beginTx(); Statement statement = ctx.get()) {
+                ReadOperations ops = statement.readOperations();
+                int labelId = ops.labelGetForName(label);
+                int keyId = ops.propertyKeyGetForName(prop);
+                if (labelId == StatementConstants.NO_SUCH_LABEL || keyId == StatementConstants.NO_SUCH_PROPERTY_KEY) return;
+
+                IndexDescriptor index = index(ops, labelId, keyId);
+                PrimitiveLongIterator ids = index == null ? null : seek(ops, index);
+                indexed = ids != null;
+                Predicate predicate = indexed ? null : new Predicate(operator, value);
+                if (!indexed) ids = ops.nodesGetForLabel(labelId);
+
+                while (ids.hasNext() && !hits.isStopped()) {
+                    long id = ids.next();
+                    Object found = withValues || !indexed ? ops.nodeGetProperty(id, keyId) : null;
+                    if (!indexed && !predicate.test(found)) continue;
+                    if (!hits.add(new Hit(id, label, prop, found))) break;
+                }
+                tx.success();
+            } catch (Exception e) {
+                hits.failed(new RuntimeException(format("Error searching label:%s and prop:%s", label, prop), e));
+            } finally {
+                hits.workerDone();
+                if (log.isDebugEnabled())
+                    log.debug(format("(%s) %s search on label:%s and prop:%s took %d",
+                            Thread.currentThread(), indexed ? "index" : "label scan", label, prop, currentTimeMillis() - start));
+            }
+        }
+
+        private static IndexDescriptor index(ReadOperations ops, int labelId, int keyId) {
+            IndexDescriptor index;
+            try {
+                index = ops.indexGetForLabelAndPropertyKey(labelId, keyId);
+            } catch (KernelException e) {
+                try {
+                    index = ops.uniqueIndexGetForLabelAndPropertyKey(labelId, keyId);
+                } catch (KernelException e2) {
+                    return null;
+                }
+            }
+            try {
+                return ops.indexGetState(index) == InternalIndexState.ONLINE ? index : null;
+            } catch (KernelException e) {
+                return null;
+            }
         }
 
-        public Stream<NodeResult> queryForNode() {
-            String query = format("match (n:`%s`) where n.`%s` %s {value} return n", label, prop, operator);
-            return queryForNode(query, (row) -> new NodeResult((Node) row.get("n"))).stream();
+        /**
+         * @return the nodes found by the index, null if the index can't answer the operator for the value
+         */
+        private PrimitiveLongIterator seek(ReadOperations ops, IndexDescriptor index) throws KernelException {
+            if (value == null) return PrimitiveLongCollections.emptyIterator();
+            boolean string = value instanceof String, number = value instanceof Number;
+            switch (operator) {
+                case "=":
+                    return ops.nodesGetFromIndexSeek(index, value);
+                case "starts with":
+                    return string ? ops.nodesGetFromIndexRangeSeekByPrefix(index, (String) value) : PrimitiveLongCollections.emptyIterator();
+                case "ends with":
+                    return string ? ops.nodesGetFromIndexEndsWithScan(index, (String) value) : PrimitiveLongCollections.emptyIterator();
+                case "contains":
+                    return string ? ops.nodesGetFromIndexContainsScan(index, (String) value) : PrimitiveLongCollections.emptyIterator();
+                case "<":
+                case "<=":
+                    if (number) return ops.nodesGetFromIndexRangeSeekByNumber(index, null, false, (Number) value, operator.equals("<="));
+                    if (string) return ops.nodesGetFromIndexRangeSeekByString(index, null, false, (String) value, operator.equals("<="));
+                    return null;
+                case ">":
+                case ">=":
+                    if (number) return ops.nodesGetFromIndexRangeSeekByNumber(index, (Number) value, operator.equals(">="), null, false);
+                    if (string) return ops.nodesGetFromIndexRangeSeekByString(index, (String) value, operator.equals(">="), null, false);
+                    return null;
+                default:
+                    return null;
+            }
         }
+    }
 
-        public <T> List<T> queryForNode(String query, Function<Map<String, Object>, T> transformer) {
-            long start = currentTimeMillis();
-            try (Transaction tx = db.beginTx()) {
-                try (Result nodes = db.execute(query, singletonMap("value", value))) {
-                    return nodes.stream().map(transformer).collect(Collectors.toList());
-                } finally {
-                    tx.success();
-                    if (log.isDebugEnabled())
-                        log.debug(format("(%s) search on label:%s and prop:%s took %d",
-                                Thread.currentThread(), label, prop, currentTimeMillis() - start));
+    /**
+     * Evaluates the operator like Cypher does for a property value, used when there is no index.
+     */
+    static class Predicate {
+        private final String operator;
+        private final Object value;
+        private final Pattern pattern;
+
+        Predicate(String operator, Object value) {
+            this.operator = operator;
+            this.value = value;
+            this.pattern = operator.equals("=~") && value instanceof String ? Pattern.compile((String) value) : null;
+        }
+
+        boolean test(Object found) {
+            if (found == null || value == null) return false;
+            boolean strings = found instanceof String && value instanceof String;
+            switch (operator) {
+                case "=": return equal(found, value);
+                case "<>": return !equal(found, value);
+                case "starts with": return strings && ((String) found).startsWith((String) value);
+                case "ends with": return strings && ((String) found).endsWith((String) value);
+                case "contains": return strings && ((String) found).contains((String) value);
+                case "=~": return pattern != null && found instanceof String && pattern.matcher((String) found).matches();
+                case "<": return compare(found, value) < 0;
+                case "<=": return compare(found, value) <= 0;
+                case ">": return compare(found, value) > 0;
+                case ">=": return compare(found, value) >= 0;
+                default: return false;
+            }
+        }
+
+        private static boolean equal(Object a, Object b) {
+            if (a instanceof Number && b instanceof Number) return compareNumbers((Number) a, (Number) b) == 0;
+            return a.equals(b);
+        }
+
+        // Integer.MAX_VALUE for values that are not comparable, so that no comparison matches
+        private static int compare(Object a, Object b) {
+            if (a instanceof Number && b instanceof Number) return compareNumbers((Number) a, (Number) b);
+            if (a instanceof String && b instanceof String) return ((String) a).compareTo((String) b);
+            return Integer.MAX_VALUE;
+        }
+
+        private static int compareNumbers(Number a, Number b) {
+            if (integral(a) && integral(b)) return Long.compare(a.longValue(), b.longValue());
+            return Double.compare(a.doubleValue(), b.doubleValue());
+        }
+
+        private static boolean integral(Number n) {
+            return n instanceof Long || n instanceof Integer || n instanceof Short || n instanceof Byte;
+        }
+    }
+
+    public static class Hit {
+        final long id;
+        final String label, prop;
+        final Object value;
+
+        Hit(long id, String label, String prop, Object value) {
+            this.id = id;
+            this.label = label;
+            this.prop = prop;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Bounded hand-over of the hits of all workers to the procedure, optionally distinct by node id.
+     * Stops the workers when the limit is reached, the caller's transaction or the result stream is closed,
+     * or a hit could not be handed over within {@link #MAX_WAIT_MILLIS}.
+     */
+    public static class HitMerge implements Iterator<Hit> {
+        private static final Hit DONE = new Hit(-1, null, null, null);
+
+        private final BlockingQueue<Hit> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        private final AtomicInteger running;
+        private final AtomicReference<RuntimeException> error = new AtomicReference<>();
+        private final PrimitiveLongSet seen;
+        private final long limit;
+        private volatile boolean stopped;
+        private volatile RuntimeException timeout;
+        private long returned;
+        private Hit next;
+
+        HitMerge(int workers, boolean distinct, long limit) {
+            this.running = new AtomicInteger(workers);
+            this.seen = distinct ? Primitive.longSet() : null;
+            this.limit = limit;
+            if (workers == 0) stopped = true;
+        }
+
+        boolean isStopped() {
+            return stopped;
+        }
+
+        /**
+         * @return false if the search was stopped
+         */
+        boolean add(Hit hit) {
+            try {
+                long deadline = currentTimeMillis() + MAX_WAIT_MILLIS;
+                while (!stopped) {
+                    if (queue.offer(hit, 100, TimeUnit.MILLISECONDS)) return true;
+                    if (currentTimeMillis() > deadline) {
+                        timedOut(format("Search results were not consumed within %d ms", MAX_WAIT_MILLIS));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        void failed(RuntimeException e) {
+            error.compareAndSet(null, e);
+        }
+
+        void workerDone() {
+            if (running.decrementAndGet() == 0) add(DONE);
+        }
+
+        void stop() {
+            stopped = true;
+            queue.clear();
+        }
+
+        private void timedOut(String message) {
+            timeout = new RuntimeException(message);
+            stop();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) return true;
+            if (stopped) {
+                if (timeout != null) throw timeout;
+                return false;
+            }
+            try {
+                while (true) {
+                    Hit hit = queue.poll(MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                    if (hit == null) {
+                        timedOut(format("No search results within %d ms", MAX_WAIT_MILLIS));
+                        throw timeout;
+                    }
+                    if (hit == DONE) {
+                        stopped = true;
+                        RuntimeException e = error.get();
+                        if (e != null) throw e;
+                        return false;
+                    }
+                    if (seen != null && !seen.add(hit.id)) continue;
+                    next = hit;
+                    return true;
                 }
+            } catch (InterruptedException e) {
+                stop();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for search results", e);
             }
         }
+
+        @Override
+        public Hit next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Hit hit = next;
+            next = null;
+            if (limit > 0 && ++returned >= limit) stop();
+            return hit;
+        }
     }
 
     public static class NodeReducedResult {
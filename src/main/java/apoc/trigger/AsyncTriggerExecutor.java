@@ -0,0 +1,130 @@
+package apoc.trigger;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.logging.Log;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs the triggers of the phase <code>afterAsync</code> on a background thread.
+ *
+ * The change sets of committed transactions are put into a bounded queue, the committing thread only blocks when it is full.
+ * The worker drains up to <code>batchSize</code> change sets, concatenates them into one parameter map where every
+ * parameter is a list over all transactions, and runs the triggers once for the batch in a single transaction.
+ * Transactions committed by the worker itself are not queued again.
+ */
+public class AsyncTriggerExecutor implements Runnable {
+    public static final String PHASE = "afterAsync";
+
+    private final GraphDatabaseService db;
+    private final Log log;
+    private final BlockingQueue<Map<String, Object>> queue;
+    private final int batchSize;
+    private final Consumer<Map<String, Object>> triggers;
+    private volatile boolean running = true;
+    private Thread thread;
+
+    /**
+     * @param triggers runs the async triggers with the parameters of a batch, within the batch transaction
+     */
+    public AsyncTriggerExecutor(GraphDatabaseService db, Log log, int queueSize, int batchSize, Consumer<Map<String, Object>> triggers) {
+        this.db = db;
+        this.log = log;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.batchSize = Math.max(1, batchSize);
+        this.triggers = triggers;
+    }
+
+    public void start() {
+        thread = new Thread(this, "apoc-trigger-async");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops after the queued change sets are processed, waits at most the given time for that.
+     */
+    public void stop(long timeoutMillis) {
+        running = false;
+        if (thread == null) return;
+        try {
+            thread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            log.warn("Stopped async triggers with %d pending transactions", queue.size());
+            thread.interrupt();
+        }
+    }
+
+    public boolean isWorkerThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * @param changes the parameters of a committed transaction, with all changes already copied into lists
+     */
+    public void enqueue(Map<String, Object> changes) {
+        if (!running) return;
+        try {
+            queue.put(changes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while queueing transaction %s for async triggers", changes.get("transactionId"));
+        }
+    }
+
+    public int pending() {
+        return queue.size();
+    }
+
+    @Override
+    public void run() {
+        List<Map<String, Object>> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Map<String, Object> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                execute(merge(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("Error executing async triggers for " + batch.size() + " transactions", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void execute(Map<String, Object> params) {
+        try (Transaction tx = db.beginTx()) {
+            triggers.accept(params);
+            tx.success();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> merge(List<Map<String, Object>> batch) {
+        Map<String, Object> merged = new LinkedHashMap<>();
+        for (Map<String, Object> changes : batch) {
+            changes.forEach((key, value) -> {
+                List<Object> values = (List<Object>) merged.computeIfAbsent(key, k -> new ArrayList<>());
+                if (value instanceof List) values.addAll((List<Object>) value);
+                else values.add(value);
+            });
+        }
+        return merged;
+    }
+}
@@ -9,6 +9,7 @@ import org.neo4j.graphdb.event.LabelEntry;
 import org.neo4j.graphdb.event.PropertyEntry;
 import org.neo4j.graphdb.event.TransactionData;
 import org.neo4j.graphdb.event.TransactionEventHandler;
+import org.neo4j.helpers.collection.Iterables;
 import org.neo4j.helpers.collection.Iterators;
 import org.neo4j.kernel.impl.core.GraphProperties;
 import org.neo4j.kernel.impl.core.NodeManager;
@@ -20,7 +21,6 @@ import org.neo4j.procedure.Procedure;
 import org.neo4j.procedure.UserFunction;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 import static apoc.util.Util.map;
@@ -97,7 +97,7 @@ public class Trigger {
     }
 
     @Procedure(mode = Mode.WRITE)
-    @Description("add a trigger statement under a name, in the statement you can use {createdNodes}, {deletedNodes} etc., the selector is {phase:'before/after/rollback'} returns previous and new trigger information")
+    @Description("add a trigger statement under a name, in the statement you can use {createdNodes}, {deletedNodes} etc., the selector is {phase:'before/after/rollback/afterAsync', labels:[], relTypes:[], properties:[]} returns previous and new trigger information")
     public Stream<TriggerInfo> add(@Name("name") String name, @Name("statement") String statement, @Name(value = "selector"/*, defaultValue = "{}"*/)  Map<String,Object> selector) {
         Map<String, Object> removed = TriggerHandler.add(name, statement, selector);
         if (removed != null) {
@@ -113,7 +113,7 @@ public class Trigger {
     public Stream<TriggerInfo> remove(@Name("name")String name) {
         Map<String, Object> removed = TriggerHandler.remove(name);
         if (removed == null) {
-            Stream.of(new TriggerInfo(name, null, null, false, false));
+            return Stream.of(new TriggerInfo(name, null, null, false, false));
         }
         return Stream.of(new TriggerInfo(name,(String)removed.get("statement"), (Map<String, Object>) removed.get("selector"),false, false));
     }
@@ -143,64 +143,105 @@ public class Trigger {
 
     public static class TriggerHandler implements TransactionEventHandler {
         public static final String APOC_TRIGGER = "apoc.trigger";
-        static ConcurrentHashMap<String,Map<String,Object>> triggers = new ConcurrentHashMap(map("",map()));
+        // null until the triggers are read from the graph properties, replaced as a whole on every change
+        private static volatile TriggerRegistry registry;
         private static GraphProperties properties;
         private final Log log;
+        private AsyncTriggerExecutor async;
         public TriggerHandler(GraphDatabaseAPI api, Log log) {
             properties = api.getDependencyResolver().resolveDependency(NodeManager.class).newGraphProperties();
-//            Pools.SCHEDULED.submit(() -> updateTriggers(null,null));
+            registry = null;
             this.log = log;
         }
 
+        public void startAsync(int queueSize, int batchSize) {
+            async = new AsyncTriggerExecutor(properties.getGraphDatabase(), log, queueSize, batchSize,
+                    (params) -> executeTriggers(params, AsyncTriggerExecutor.PHASE));
+            async.start();
+        }
+
+        public void stopAsync() {
+            if (async != null) async.stop(10_000);
+        }
+
         public static Map<String, Object> add(String name, String statement, Map<String,Object> selector) {
-            return updateTriggers(name, map("statement", statement, "selector", selector, "paused", false));
+            return updateTriggers(name, new TriggerRegistry.TriggerDefinition(name, statement, selector, false));
         }
-        public synchronized static Map<String, Object> remove(String name) {
+        public static Map<String, Object> remove(String name) {
             return updateTriggers(name,null);
         }
 
         public static Map<String, Object> paused(String name) {
-            Map<String, Object> triggerToPause = triggers.get(name);
-            updateTriggers(name, map("statement", triggerToPause.get("statement"), "selector", triggerToPause.get("selector"), "paused", true));
-            return triggers.get(name);
+            return setPaused(name, true);
         }
 
         public static Map<String, Object> resume(String name) {
-            Map<String, Object> triggerToResume = triggers.get(name);
-            updateTriggers(name, map("statement", triggerToResume.get("statement"), "selector", triggerToResume.get("selector"), "paused", false));
-            return triggers.get(name);
+            return setPaused(name, false);
         }
 
-        private synchronized static Map<String, Object> updateTriggers(String name, Map<String, Object> value) {
-            try (Transaction tx = properties.getGraphDatabase().beginTx()) {
-                triggers.clear();
-                String triggerProperty = (String) properties.getProperty(APOC_TRIGGER, "{}");
-                triggers.putAll(Util.fromJson(triggerProperty,Map.class));
-                Map<String,Object> previous = null;
-                if (name != null) {
-                    previous = (value == null) ? triggers.remove(name) : triggers.put(name, value);
-                    if (value != null || previous != null) {
-                        properties.setProperty(APOC_TRIGGER, Util.toJson(triggers));
+        private synchronized static Map<String, Object> setPaused(String name, boolean paused) {
+            TriggerRegistry.TriggerDefinition trigger = registry().get(name);
+            if (trigger == null) throw new RuntimeException("No trigger " + name + " installed");
+            updateTriggers(name, trigger.withPaused(paused));
+            return registry().get(name).toMap();
+        }
+
+        static TriggerRegistry registry() {
+            TriggerRegistry current = registry;
+            if (current != null) return current;
+            synchronized (TriggerHandler.class) {
+                if (registry == null) {
+                    try (Transaction tx = properties.getGraphDatabase().beginTx()) {
+                        registry = TriggerRegistry.fromJson((String) properties.getProperty(APOC_TRIGGER, "{}"));
+                        tx.success();
                     }
                 }
+                return registry;
+            }
+        }
+
+        /**
+         * Stores the changed triggers and then publishes them as a new snapshot.
+         * @return the previous trigger information or null
+         */
+        private synchronized static Map<String, Object> updateTriggers(String name, TriggerRegistry.TriggerDefinition trigger) {
+            TriggerRegistry current = registry();
+            TriggerRegistry.TriggerDefinition previous = current.get(name);
+            if (trigger == null && previous == null) return null;
+            TriggerRegistry next = current.with(name, trigger);
+            try (Transaction tx = properties.getGraphDatabase().beginTx()) {
+                properties.setProperty(APOC_TRIGGER, next.toJson());
                 tx.success();
-                return previous;
             }
+            registry = next;
+            return previous == null ? null : previous.toMap();
         }
 
         public static Map<String,Map<String,Object>> list() {
-            updateTriggers(null,null);
-            return triggers;
+            return registry().toMap();
         }
 
+        /**
+         * @return the labels and relationship types of the changes if a trigger after the commit selects by them
+         */
         @Override
         public Object beforeCommit(TransactionData txData) throws Exception {
             executeTriggers(txData, "before");
-            return null;
+            return registry().readsEntityTypesAfterCommit() ? TriggerSelector.EntityTypes.of(txData) : null;
         }
 
         private void executeTriggers(TransactionData txData, String phase) {
-            Map<String, Object> params = map(
+            executeTriggers(params(txData, phase), phase);
+        }
+
+        private void executeTriggers(TransactionData txData, String phase, Object entityTypes) {
+            Map<String, Object> params = params(txData, phase);
+            params.put(TriggerSelector.ENTITY_TYPES, entityTypes);
+            executeTriggers(params, phase);
+        }
+
+        private static Map<String, Object> params(TransactionData txData, String phase) {
+            return map(
                     "transactionId", phase.equals("after") ? txData.getTransactionId() : -1,
                     "commitTime", phase.equals("after") ? txData.getCommitTime() : -1,
                     "createdNodes", txData.createdNodes(),
@@ -213,40 +254,62 @@ public class Trigger {
                     "assignedLabels",txData.assignedLabels(),
                     "assignedNodeProperties",txData.assignedNodeProperties(),
                     "assignedRelationshipProperties",txData.assignedRelationshipProperties());
-            if (triggers.containsKey("")) updateTriggers(null,null);
+        }
+
+        /**
+         * @return the parameters with all changes copied, so they stay available after the transaction
+         */
+        private static Map<String, Object> copyParams(TransactionData txData, String phase) {
+            Map<String, Object> params = params(txData, phase);
+            params.replaceAll((key, value) -> value instanceof Iterable ? Iterables.asList((Iterable<?>) value) : value);
+            return params;
+        }
+
+        private void executeTriggers(Map<String, Object> params, String phase) {
+            TriggerSelector.EntityTypes types = TriggerSelector.EntityTypes.from(params.remove(TriggerSelector.ENTITY_TYPES));
+            TriggerRegistry current = registry();
+            if (!current.hasActive(phase)) return;
             GraphDatabaseService db = properties.getGraphDatabase();
             Map<String,String> exceptions = new LinkedHashMap<>();
-            triggers.forEach((name, data) -> {
-                if( data.get("paused").equals(false)) {
-                    log.info("Inside if " + name + data);
-                    try (Transaction tx = db.beginTx()) {
-                        Map<String,Object> selector = (Map<String, Object>) data.get("selector");
-                        if (when(selector, phase)) {
-                            params.put("trigger", name);
-                            Result result = db.execute((String) data.get("statement"), params);
-                            Iterators.count(result);
-                            result.close();
-                        }
-                        tx.success();
-                    } catch(Exception e) {
-                        log.warn("Error executing trigger "+name+" in phase "+phase,e);
-                        exceptions.put(name, e.getMessage());
-                    }
+            for (TriggerRegistry.TriggerDefinition trigger : current.triggers()) {
+                if (trigger.paused || !trigger.selector.isPhase(phase) || !trigger.selector.matches(params, types)) continue;
+                try (Transaction tx = db.beginTx()) {
+                    params.put("trigger", trigger.name);
+                    Result result = db.execute(trigger.statement, params);
+                    Iterators.count(result);
+                    result.close();
+                    tx.success();
+                } catch(Exception e) {
+                    log.warn("Error executing trigger "+trigger.name+" in phase "+phase,e);
+                    exceptions.put(trigger.name, e.getMessage());
                 }
-            });
+            }
             if (!exceptions.isEmpty()) {
                 throw new RuntimeException("Error executing triggers "+exceptions.toString());
             }
         }
 
-        private boolean when(Map<String, Object> selector, String phase) {
-            if (selector == null) return (phase.equals("before"));
-            return selector.getOrDefault("phase", "before").equals(phase);
+        private boolean hasTriggers(String phase, Map<String, Object> params, TriggerSelector.EntityTypes types) {
+            TriggerRegistry current = registry();
+            if (!current.hasActive(phase)) return false;
+            for (TriggerRegistry.TriggerDefinition trigger : current.triggers()) {
+                if (!trigger.paused && trigger.selector.isPhase(phase) && trigger.selector.matches(params, types)) return true;
+            }
+            return false;
         }
 
+        /**
+         * @param state the {@link TriggerSelector.EntityTypes} captured in {@link #beforeCommit}, there is no transaction to read them now
+         */
         @Override
         public void afterCommit(TransactionData txData, Object state) {
-            executeTriggers(txData, "after");
+            TriggerSelector.EntityTypes types = (TriggerSelector.EntityTypes) state;
+            if (async != null && !async.isWorkerThread() && hasTriggers(AsyncTriggerExecutor.PHASE, params(txData, "after"), types)) {
+                Map<String, Object> changes = copyParams(txData, "after");
+                changes.put(TriggerSelector.ENTITY_TYPES, types);
+                async.enqueue(changes);
+            }
+            executeTriggers(txData, "after", types);
         }
 
         @Override
@@ -270,12 +333,15 @@ public class Trigger {
             boolean enabled = Util.toBoolean(ApocConfiguration.get("trigger.enabled", null));
             if (!enabled) return;
             triggerHandler = new Trigger.TriggerHandler(db,log);
+            triggerHandler.startAsync((int) Util.toLong(ApocConfiguration.get("trigger.async.queueSize", 10_000)),
+                    (int) Util.toLong(ApocConfiguration.get("trigger.async.batchSize", 1_000)));
             db.registerTransactionEventHandler(triggerHandler);
         }
 
         public void stop() {
             if (triggerHandler == null) return;
             db.unregisterTransactionEventHandler(triggerHandler);
+            triggerHandler.stopAsync();
         }
     }
 }
@@ -0,0 +1,115 @@
+package apoc.trigger;
+
+import apoc.util.Util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static apoc.util.Util.map;
+
+/**
+ * Immutable, versioned snapshot of the installed triggers with their selectors already parsed.
+ * Every change creates a new snapshot, so readers on the commit path never need a lock.
+ */
+public class TriggerRegistry {
+    public static final TriggerRegistry EMPTY = new TriggerRegistry(0, Collections.emptyMap());
+
+    public final long version;
+    private final Map<String, TriggerDefinition> triggers;
+    private final Set<String> activePhases;
+    private final boolean readsEntityTypesAfterCommit;
+
+    private TriggerRegistry(long version, Map<String, TriggerDefinition> triggers) {
+        this.version = version;
+        this.triggers = Collections.unmodifiableMap(triggers);
+        Set<String> phases = new HashSet<>();
+        boolean readsEntityTypes = false;
+        for (TriggerDefinition trigger : triggers.values()) {
+            if (trigger.paused) continue;
+            phases.add(trigger.selector.phase());
+            readsEntityTypes |= !trigger.selector.isPhase(TriggerSelector.DEFAULT_PHASE) && trigger.selector.readsEntityTypes();
+        }
+        this.activePhases = phases;
+        this.readsEntityTypesAfterCommit = readsEntityTypes;
+    }
+
+    /**
+     * @param json the triggers as stored in the graph properties, <code>{name:{statement, selector, paused}}</code>
+     */
+    @SuppressWarnings("unchecked")
+    public static TriggerRegistry fromJson(String json) {
+        Map<String, Map<String, Object>> stored = Util.fromJson(json, Map.class);
+        Map<String, TriggerDefinition> triggers = new LinkedHashMap<>(stored.size());
+        stored.forEach((name, data) -> triggers.put(name, new TriggerDefinition(name, (String) data.get("statement"),
+                (Map<String, Object>) data.get("selector"), Boolean.TRUE.equals(data.get("paused")))));
+        return new TriggerRegistry(1, triggers);
+    }
+
+    public String toJson() {
+        return Util.toJson(toMap());
+    }
+
+    /**
+     * @return a new snapshot with the trigger replaced, or removed if <code>trigger</code> is null
+     */
+    public TriggerRegistry with(String name, TriggerDefinition trigger) {
+        Map<String, TriggerDefinition> changed = new LinkedHashMap<>(triggers);
+        if (trigger == null) changed.remove(name);
+        else changed.put(name, trigger);
+        return new TriggerRegistry(version + 1, changed);
+    }
+
+    public TriggerDefinition get(String name) {
+        return triggers.get(name);
+    }
+
+    public Collection<TriggerDefinition> triggers() {
+        return triggers.values();
+    }
+
+    public boolean hasActive(String phase) {
+        return activePhases.contains(phase);
+    }
+
+    /**
+     * @return if an active trigger of a phase after the commit selects by labels or relationship types,
+     * then they have to be captured before the commit
+     */
+    public boolean readsEntityTypesAfterCommit() {
+        return readsEntityTypesAfterCommit;
+    }
+
+    public Map<String, Map<String, Object>> toMap() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>(triggers.size());
+        triggers.forEach((name, trigger) -> result.put(name, trigger.toMap()));
+        return result;
+    }
+
+    public static class TriggerDefinition {
+        public final String name;
+        public final String statement;
+        public final Map<String, Object> selectorMap;
+        public final boolean paused;
+        public final TriggerSelector selector;
+
+        public TriggerDefinition(String name, String statement, Map<String, Object> selectorMap, boolean paused) {
+            this.name = name;
+            this.statement = statement;
+            this.selectorMap = selectorMap;
+            this.paused = paused;
+            this.selector = TriggerSelector.of(selectorMap);
+        }
+
+        public TriggerDefinition withPaused(boolean paused) {
+            return new TriggerDefinition(name, statement, selectorMap, paused);
+        }
+
+        public Map<String, Object> toMap() {
+            return map("statement", statement, "selector", selectorMap, "paused", paused);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package apoc.trigger;
+
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.event.LabelEntry;
+import org.neo4j.graphdb.event.PropertyEntry;
+import org.neo4j.graphdb.event.TransactionData;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Parsed trigger selector. Besides the <code>phase</code> it can restrict a trigger to transactions that change
+ * nodes with one of the <code>labels</code>, relationships of one of the <code>relTypes</code> or one of the <code>properties</code>.
+ * These are checked in Java against the changes before any statement is run, all given restrictions have to match.
+ * After the commit labels and relationship types can no longer be read, so they are captured as {@link EntityTypes} before it.
+ */
+public class TriggerSelector {
+    public static final String DEFAULT_PHASE = "before";
+    // parameter that carries the captured EntityTypes to the after phases, it is removed before the statements run
+    public static final String ENTITY_TYPES = "_entityTypes";
+
+    private final String phase;
+    private final Set<String> labels;
+    private final Set<String> relTypes;
+    private final Set<String> properties;
+
+    private TriggerSelector(String phase, Set<String> labels, Set<String> relTypes, Set<String> properties) {
+        this.phase = phase;
+        this.labels = labels;
+        this.relTypes = relTypes;
+        this.properties = properties;
+    }
+
+    public static TriggerSelector of(Map<String, Object> selector) {
+        if (selector == null) return new TriggerSelector(DEFAULT_PHASE, null, null, null);
+        return new TriggerSelector(String.valueOf(selector.getOrDefault("phase", DEFAULT_PHASE)),
+                names(selector.get("labels")), names(selector.get("relTypes")), names(selector.get("properties")));
+    }
+
+    private static Set<String> names(Object value) {
+        if (value == null) return null;
+        if (value instanceof Collection) {
+            Set<String> names = new HashSet<>();
+            for (Object name : (Collection<?>) value) names.add(String.valueOf(name));
+            return names;
+        }
+        return Collections.singleton(value.toString());
+    }
+
+    public String phase() {
+        return phase;
+    }
+
+    public boolean isPhase(String phase) {
+        return this.phase.equals(phase);
+    }
+
+    public boolean isFiltered() {
+        return labels != null || relTypes != null || properties != null;
+    }
+
+    /**
+     * @return if matching needs the labels or relationship types of the changed entities
+     */
+    public boolean readsEntityTypes() {
+        return labels != null || relTypes != null;
+    }
+
+    /**
+     * @param params the statement parameters, with the changes as iterables of nodes, relationships, label and property entries
+     * @param types the captured labels and relationship types, or null to read them from the entities in the open transaction
+     */
+    public boolean matches(Map<String, Object> params, EntityTypes types) {
+        if (labels != null && !matchesLabels(params, types)) return false;
+        if (relTypes != null && !matchesRelTypes(params, types)) return false;
+        return properties == null || matchesProperties(params);
+    }
+
+    private boolean matchesLabels(Map<String, Object> params, EntityTypes types) {
+        for (String key : new String[]{"assignedLabels", "removedLabels"}) {
+            for (Object entry : entries(params, key)) {
+                if (labels.contains(((LabelEntry) entry).label().name())) return true;
+            }
+        }
+        if (types != null) return !Collections.disjoint(labels, types.labels);
+        for (Object node : entries(params, "createdNodes")) {
+            if (hasLabel((Node) node)) return true;
+        }
+        for (String key : new String[]{"assignedNodeProperties", "removedNodeProperties"}) {
+            for (Object entry : entries(params, key)) {
+                if (hasLabel((Node) ((PropertyEntry<?>) entry).entity())) return true;
+            }
+        }
+        return false;
+    }
+
+    // labels of deleted nodes are not readable, they show up in removedLabels instead
+    private boolean hasLabel(Node node) {
+        try {
+            for (Label label : node.getLabels()) {
+                if (labels.contains(label.name())) return true;
+            }
+        } catch (RuntimeException deleted) {
+            // ignore
+        }
+        return false;
+    }
+
+    private boolean matchesRelTypes(Map<String, Object> params, EntityTypes types) {
+        if (types != null) return types.unknownRelType || !Collections.disjoint(relTypes, types.relTypes);
+        for (String key : new String[]{"createdRelationships", "deletedRelationships"}) {
+            for (Object rel : entries(params, key)) {
+                if (hasType((Relationship) rel)) return true;
+            }
+        }
+        for (String key : new String[]{"assignedRelationshipProperties", "removedRelationshipProperties"}) {
+            for (Object entry : entries(params, key)) {
+                if (hasType((Relationship) ((PropertyEntry<?>) entry).entity())) return true;
+            }
+        }
+        return false;
+    }
+
+    // the type of a deleted relationship might not be readable, then the trigger runs to be on the safe side
+    private boolean hasType(Relationship rel) {
+        try {
+            return relTypes.contains(rel.getType().name());
+        } catch (RuntimeException deleted) {
+            return true;
+        }
+    }
+
+    private boolean matchesProperties(Map<String, Object> params) {
+        for (String key : new String[]{"assignedNodeProperties", "removedNodeProperties", "assignedRelationshipProperties", "removedRelationshipProperties"}) {
+            for (Object entry : entries(params, key)) {
+                if (properties.contains(((PropertyEntry<?>) entry).key())) return true;
+            }
+        }
+        return false;
+    }
+
+    private static Iterable<?> entries(Map<String, Object> params, String key) {
+        Object value = params.get(key);
+        return value instanceof Iterable ? (Iterable<?>) value : Collections.emptyList();
+    }
+
+    /**
+     * The labels of the changed nodes and the types of the changed relationships of one or more transactions,
+     * read in <code>beforeCommit</code> while the transaction is still open.
+     */
+    public static class EntityTypes {
+        final Set<String> labels = new HashSet<>();
+        final Set<String> relTypes = new HashSet<>();
+        // the type of a deleted relationship could not be read, relTypes selectors match to be on the safe side
+        boolean unknownRelType;
+
+        public static EntityTypes of(TransactionData txData) {
+            EntityTypes types = new EntityTypes();
+            for (LabelEntry entry : txData.assignedLabels()) types.labels.add(entry.label().name());
+            for (LabelEntry entry : txData.removedLabels()) types.labels.add(entry.label().name());
+            for (Node node : txData.createdNodes()) types.addLabels(node);
+            for (PropertyEntry<Node> entry : txData.assignedNodeProperties()) types.addLabels(entry.entity());
+            for (PropertyEntry<Node> entry : txData.removedNodeProperties()) types.addLabels(entry.entity());
+            for (Relationship rel : txData.createdRelationships()) types.addType(rel);
+            for (Relationship rel : txData.deletedRelationships()) types.addType(rel);
+            for (PropertyEntry<Relationship> entry : txData.assignedRelationshipProperties()) types.addType(entry.entity());
+            for (PropertyEntry<Relationship> entry : txData.removedRelationshipProperties()) types.addType(entry.entity());
+            return types;
+        }
+
+        /**
+         * @param value an EntityTypes, a list of them for a batch of transactions, or null
+         */
+        public static EntityTypes from(Object value) {
+            if (value instanceof EntityTypes) return (EntityTypes) value;
+            if (!(value instanceof Collection)) return null;
+            EntityTypes merged = new EntityTypes();
+            for (Object types : (Collection<?>) value) {
+                if (!(types instanceof EntityTypes)) return null;
+                merged.labels.addAll(((EntityTypes) types).labels);
+                merged.relTypes.addAll(((EntityTypes) types).relTypes);
+                merged.unknownRelType |= ((EntityTypes) types).unknownRelType;
+            }
+            return merged;
+        }
+
+        // labels of deleted nodes are not readable, they show up in removedLabels instead
+        private void addLabels(Node node) {
+            read(() -> {
+                for (Label label : node.getLabels()) labels.add(label.name());
+            }, deleted -> {});
+        }
+
+        private void addType(Relationship rel) {
+            read(() -> relTypes.add(rel.getType().name()), deleted -> unknownRelType = true);
+        }
+
+        private static void read(Runnable read, Consumer<RuntimeException> deleted) {
+            try {
+                read.run();
+            } catch (RuntimeException e) {
+                deleted.accept(e);
+            }
+        }
+    }
+}
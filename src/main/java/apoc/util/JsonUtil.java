@@ -6,14 +6,18 @@ import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.Option;
 import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.neo4j.procedure.Name;
 
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Map;
-import java.util.Scanner;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @author mh
@@ -22,6 +26,8 @@ import java.util.Scanner;
 public class JsonUtil {
     public static ObjectMapper OBJECT_MAPPER = new ObjectMapper();
     private static final Configuration JSON_PATH_CONFIG = Configuration.builder().options(Option.DEFAULT_PATH_LEAF_TO_NULL, Option.SUPPRESS_EXCEPTIONS).build();
+    private static final Pattern PATH_SEGMENT = Pattern.compile("\\.([^.\\[\\]]+)|\\[['\"]([^'\"]+)['\"]\\]|\\[(\\d+)\\]|\\[(\\*)\\]");
+    private static final Object WILDCARD = new Object();
     static {
         OBJECT_MAPPER.configure(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true);
 
@@ -48,6 +54,146 @@ public class JsonUtil {
         }
     }
 
+    /**
+     * Parses the json incrementally, if the value at the path is an array of maps its elements are read one at a time
+     * while the stream is consumed, otherwise the stream has the single value. Only handles simple paths
+     * like <code>$.items</code>, <code>$.items[*]</code>, <code>$.items.*</code>, <code>$['items'][0]</code>, other paths are evaluated by JsonPath on the whole document.
+     */
+    public static Stream<Object> streamJson(String url, Map<String,Object> headers, String payload, String path) {
+        List<Object> segments = parsePath(path);
+        if (segments == null) {
+            Object value = loadJson(url, headers, payload, path);
+            if (value instanceof List && (((List) value).isEmpty() || ((List) value).get(0) instanceof Map)) {
+                return ((List<Object>) value).stream();
+            }
+            return Stream.of(value);
+        }
+        JsonParser parser = null;
+        try {
+            FileUtils.checkReadAllowed(url);
+            InputStream stream = Util.openInputStream(url, headers, payload);
+            parser = OBJECT_MAPPER.getJsonFactory().createJsonParser(stream);
+            if (parser.nextToken() == null || !navigate(parser, segments)) {
+                parser.close();
+                return Stream.of((Object) null);
+            }
+            return streamValue(parser, !segments.isEmpty() && segments.get(segments.size() - 1) == WILDCARD);
+        } catch (IOException e) {
+            closeQuietly(parser);
+            String u = Util.cleanUrl(url);
+            throw new RuntimeException("Can't read url " + u + " as json: "+e.getMessage(), e);
+        }
+    }
+
+    // field names, array indexes and a trailing WILDCARD for [*] or .*, null if the path is not simple
+    private static List<Object> parsePath(String path) {
+        List<Object> segments = new ArrayList<>();
+        if (path == null || path.trim().isEmpty()) return segments;
+        String rest = path.trim();
+        if (!rest.startsWith("$")) return null;
+        Matcher matcher = PATH_SEGMENT.matcher(rest);
+        int pos = 1;
+        while (pos < rest.length()) {
+            if (!matcher.find(pos) || matcher.start() != pos) return null;
+            if (!segments.isEmpty() && segments.get(segments.size() - 1) == WILDCARD) return null;
+            if (matcher.group(1) != null) segments.add(matcher.group(1).equals("*") ? WILDCARD : matcher.group(1));
+            else if (matcher.group(2) != null) segments.add(matcher.group(2));
+            else if (matcher.group(3) != null) segments.add(Integer.parseInt(matcher.group(3)));
+            else segments.add(WILDCARD);
+            pos = matcher.end();
+        }
+        return segments;
+    }
+
+    // moves the parser to the first token of the value at the path, false if there is none
+    private static boolean navigate(JsonParser parser, List<Object> segments) throws IOException {
+        for (Object segment : segments) {
+            if (segment == WILDCARD) return true;
+            JsonToken token = parser.getCurrentToken();
+            if (segment instanceof String) {
+                if (token != JsonToken.START_OBJECT) return false;
+                while (true) {
+                    if (parser.nextToken() != JsonToken.FIELD_NAME) return false;
+                    String name = parser.getCurrentName();
+                    parser.nextToken();
+                    if (name.equals(segment)) break;
+                    parser.skipChildren();
+                }
+            } else {
+                if (token != JsonToken.START_ARRAY) return false;
+                for (int i = 0; ; i++) {
+                    if (parser.nextToken() == JsonToken.END_ARRAY) return false;
+                    if (i == (Integer) segment) break;
+                    parser.skipChildren();
+                }
+            }
+        }
+        return true;
+    }
+
+    private static Stream<Object> streamValue(JsonParser parser, boolean wildcard) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token != JsonToken.START_ARRAY) {
+            Object value = OBJECT_MAPPER.readValue(parser, Object.class);
+            parser.close();
+            if (wildcard) value = value instanceof Map ? new ArrayList<>(((Map) value).values()) : Collections.emptyList();
+            return Stream.of(value);
+        }
+        if (parser.nextToken() == JsonToken.END_ARRAY) {
+            parser.close();
+            return Stream.empty();
+        }
+        Object first = OBJECT_MAPPER.readValue(parser, Object.class);
+        if (!(first instanceof Map)) {
+            List<Object> list = new ArrayList<>();
+            list.add(first);
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                list.add(OBJECT_MAPPER.readValue(parser, Object.class));
+            }
+            parser.close();
+            return Stream.of(list);
+        }
+        Iterator<Object> elements = new Iterator<Object>() {
+            Object next = first;
+            boolean ready = true;
+
+            @Override
+            public boolean hasNext() {
+                if (ready) return true;
+                try {
+                    if (parser.isClosed()) return false;
+                    JsonToken token = parser.nextToken();
+                    if (token == null || token == JsonToken.END_ARRAY) {
+                        parser.close();
+                        return false;
+                    }
+                    next = OBJECT_MAPPER.readValue(parser, Object.class);
+                    return ready = true;
+                } catch (IOException e) {
+                    closeQuietly(parser);
+                    throw new RuntimeException("Can't read json: " + e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public Object next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                ready = false;
+                return next;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(elements, Spliterator.ORDERED), false)
+                .onClose(() -> closeQuietly(parser));
+    }
+
+    private static void closeQuietly(JsonParser parser) {
+        try {
+            if (parser != null) parser.close();
+        } catch (IOException ignore) {
+            // nothing to do
+        }
+    }
+
     public static Object loadJson(@Name("url") String url) {
         return loadJson(url,null,null,"");
     }
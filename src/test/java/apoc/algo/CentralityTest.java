@@ -320,6 +320,26 @@ public class CentralityTest
         t.close();
     }
 
+    @Test
+    public void shouldApproximateBetweennessForCypher()
+    {
+        db.execute( STAR_GRAPH ).close();
+        TestUtil.testCall( db, "CALL apoc.algo.betweennessCypher({write:true, sampling:'degree', samples:5000, seed:42})", ( row ) -> {
+            assertEquals( 5000L, row.get( "pivots" ) );
+            assertTrue( (double) row.get( "errorBound" ) > 0 );
+        } );
+        Result t =  db.execute("MATCH (n) RETURN n.name as name, n.betweenness_centrality as score ORDER BY score DESC LIMIT 1");
+        Map<String, Object> row = t.next();
+        assertEquals( "f", row.get( "name" ) );
+        assertEquals( CentralityTest.STAR_GRAPH_EXPECTED, (double) row.get( "score" ), 0.5D );
+        t.close();
+
+        TestUtil.testCall( db, "CALL apoc.algo.betweennessCypher({sampling:'random', error:0.5})", ( r ) -> {
+            assertEquals( 6L, r.get( "pivots" ) );
+            assertEquals( 0D, r.get( "errorBound" ) );
+        } );
+    }
+
     @Test
     public void shouldHaveExpectedBetweennessMultipleSPCypher()
     {
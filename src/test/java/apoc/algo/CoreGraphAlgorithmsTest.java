@@ -38,6 +38,9 @@ public class CoreGraphAlgorithmsTest {
     }
 
     private static void createData() {
+        // deleted nodes leave gaps, node ids are not the algo ids
+        db.execute("UNWIND range(1,5) AS x CREATE (:Gap)").close();
+        db.execute("MATCH (g:Gap) DELETE g").close();
         Result result = db.execute("CREATE (a:A {id:'a'})-[:X]->(b:A {id:'b'})-[:Y]->(c:C {id:'c'}), (d:D {id:'d'}) return id(a),id(b),id(c),id(d)");
         Map<String, Object> row = result.next();
         idA = (int)(long)row.get("id(a)");
@@ -65,13 +68,13 @@ public class CoreGraphAlgorithmsTest {
         assertEquals(4,algos.getNodeCount());
         assertEquals(2,algos.getRelCount());
         int[] offsets = algos.getNodeRelOffsets();
-        assertEquals(0,offsets[idA]);
-        assertEquals(1,offsets[idB]);
-        assertEquals(2,offsets[idC]);
-        assertEquals(2,offsets[idD]);
+        assertEquals(0,offsets[algos.toAlgoId(idA)]);
+        assertEquals(1,offsets[algos.toAlgoId(idB)]);
+        assertEquals(2,offsets[algos.toAlgoId(idC)]);
+        assertEquals(2,offsets[algos.toAlgoId(idD)]);
         int[] rels = algos.getRels();
-        assertEquals(idB,rels[0]);
-        assertEquals(idC,rels[1]);
+        assertEquals(idB,algos.toNodeId(rels[0]));
+        assertEquals(idC,algos.toNodeId(rels[1]));
     }
 
     @Test
@@ -80,11 +83,11 @@ public class CoreGraphAlgorithmsTest {
         assertEquals(2,algos.getNodeCount());
         assertEquals(2,algos.getRelCount());
         int[] degrees = algos.getNodeRelOffsets();
-        assertEquals(0,degrees[idA]);
-        assertEquals(1,degrees[idB]);
+        assertEquals(0,degrees[algos.toAlgoId(idA)]);
+        assertEquals(1,degrees[algos.toAlgoId(idB)]);
         int[] rels = algos.getRels();
-        assertEquals(idB,rels[0]);
-        assertEquals(idC,rels[1]);
+        assertEquals(idB,algos.toNodeId(rels[0]));
+        assertEquals(idC,algos.toNodeId(rels[1]));
     }
     @Test
     public void testInitLabelRel() throws Exception {
@@ -92,10 +95,10 @@ public class CoreGraphAlgorithmsTest {
         assertEquals(2,algos.getNodeCount());
         assertEquals(1,algos.getRelCount());
         int[] degrees = algos.getNodeRelOffsets();
-        assertEquals(0,degrees[idA]);
-        assertEquals(1,degrees[idB]);
+        assertEquals(0,degrees[algos.toAlgoId(idA)]);
+        assertEquals(1,degrees[algos.toAlgoId(idB)]);
         int[] rels = algos.getRels();
-        assertEquals(idB,rels[0]);
+        assertEquals(idB,algos.toNodeId(rels[0]));
     }
 
     @Test
@@ -103,10 +106,10 @@ public class CoreGraphAlgorithmsTest {
         CoreGraphAlgorithms algos = new CoreGraphAlgorithms(stmt).init();
         float[] rank = algos.pageRank(2);
         System.out.println("rank = " + Arrays.toString(rank));
-        assertEquals(0.85f,rank[idA],0f);
-        assertEquals(0.9775f,rank[idB],0f);
-        assertEquals(0.9775f,rank[idC],0f);
-        assertEquals(0,rank[idD],0f);
+        assertEquals(0.85f,rank[algos.toAlgoId(idA)],0f);
+        assertEquals(0.9775f,rank[algos.toAlgoId(idB)],0f);
+        assertEquals(0.9775f,rank[algos.toAlgoId(idC)],0f);
+        assertEquals(0,rank[algos.toAlgoId(idD)],0f);
 
     }
 
@@ -114,67 +117,67 @@ public class CoreGraphAlgorithmsTest {
     public void labelPropagation() throws Exception {
         CoreGraphAlgorithms algos = new CoreGraphAlgorithms(stmt).init();
         int[] labels = algos.labelPropagation();
-        assertEquals(idA,labels[idA]);
-        assertEquals(idA,labels[idB]);
-        assertEquals(idA,labels[idC]);
-        assertEquals(idD,labels[idD]);
+        assertEquals(idA,algos.toNodeId(labels[algos.toAlgoId(idA)]));
+        assertEquals(idA,algos.toNodeId(labels[algos.toAlgoId(idB)]));
+        assertEquals(idA,algos.toNodeId(labels[algos.toAlgoId(idC)]));
+        assertEquals(idD,algos.toNodeId(labels[algos.toAlgoId(idD)]));
     }
 
     @Test
     public void unionFind() throws Exception {
         CoreGraphAlgorithms algos = new CoreGraphAlgorithms(stmt).init();
         int[] labels = algos.unionFind();
-        assertEquals(idA,labels[idA]);
-        assertEquals(idA,labels[idB]);
-        assertEquals(idA,labels[idC]);
-        assertEquals(idD,labels[idD]);
+        assertEquals(idA,algos.toNodeId(labels[algos.toAlgoId(idA)]));
+        assertEquals(idA,algos.toNodeId(labels[algos.toAlgoId(idB)]));
+        assertEquals(idA,algos.toNodeId(labels[algos.toAlgoId(idC)]));
+        assertEquals(idD,algos.toNodeId(labels[algos.toAlgoId(idD)]));
     }
 
     @Test
     public void testLoadDegreesOutgoing() throws Exception {
         CoreGraphAlgorithms algos = new CoreGraphAlgorithms(stmt).init();
         int[] degrees = algos.loadDegrees(null, Direction.OUTGOING);
-        assertEquals(1,degrees[idA]);
-        assertEquals(1,degrees[idB]);
-        assertEquals(0,degrees[idC]);
-        assertEquals(0,degrees[idD]);
+        assertEquals(1,degrees[algos.toAlgoId(idA)]);
+        assertEquals(1,degrees[algos.toAlgoId(idB)]);
+        assertEquals(0,degrees[algos.toAlgoId(idC)]);
+        assertEquals(0,degrees[algos.toAlgoId(idD)]);
     }
     @Test
     public void testLoadDegreesBoth() throws Exception {
         CoreGraphAlgorithms algos = new CoreGraphAlgorithms(stmt).init();
         int[] degrees = algos.loadDegrees(null, Direction.BOTH);
-        assertEquals(1,degrees[idA]);
-        assertEquals(2,degrees[idB]);
-        assertEquals(1,degrees[idC]);
-        assertEquals(0,degrees[idD]);
+        assertEquals(1,degrees[algos.toAlgoId(idA)]);
+        assertEquals(2,degrees[algos.toAlgoId(idB)]);
+        assertEquals(1,degrees[algos.toAlgoId(idC)]);
+        assertEquals(0,degrees[algos.toAlgoId(idD)]);
     }
 
     @Test
     public void testLoadDegreesOutgoingType() throws Exception {
         CoreGraphAlgorithms algos = new CoreGraphAlgorithms(stmt).init();
         int[] degrees = algos.loadDegrees("X", Direction.OUTGOING);
-        assertEquals(1,degrees[idA]);
-        assertEquals(0,degrees[idB]);
-        assertEquals(0,degrees[idC]);
-        assertEquals(0,degrees[idD]);
+        assertEquals(1,degrees[algos.toAlgoId(idA)]);
+        assertEquals(0,degrees[algos.toAlgoId(idB)]);
+        assertEquals(0,degrees[algos.toAlgoId(idC)]);
+        assertEquals(0,degrees[algos.toAlgoId(idD)]);
     }
     @Test
     public void testLoadDegreesIncoming() throws Exception {
         CoreGraphAlgorithms algos = new CoreGraphAlgorithms(stmt).init();
         int[] degrees = algos.loadDegrees(null, Direction.INCOMING);
-        assertEquals(0,degrees[idA]);
-        assertEquals(1,degrees[idB]);
-        assertEquals(1,degrees[idC]);
-        assertEquals(0,degrees[idD]);
+        assertEquals(0,degrees[algos.toAlgoId(idA)]);
+        assertEquals(1,degrees[algos.toAlgoId(idB)]);
+        assertEquals(1,degrees[algos.toAlgoId(idC)]);
+        assertEquals(0,degrees[algos.toAlgoId(idD)]);
     }
     @Test
     public void testLoadDegreesIncomingType() throws Exception {
         CoreGraphAlgorithms algos = new CoreGraphAlgorithms(stmt).init();
         int[] degrees = algos.loadDegrees("Y", Direction.INCOMING);
-        assertEquals(0,degrees[idA]);
-        assertEquals(0,degrees[idB]);
-        assertEquals(1,degrees[idC]);
-        assertEquals(0,degrees[idD]);
+        assertEquals(0,degrees[algos.toAlgoId(idA)]);
+        assertEquals(0,degrees[algos.toAlgoId(idB)]);
+        assertEquals(1,degrees[algos.toAlgoId(idC)]);
+        assertEquals(0,degrees[algos.toAlgoId(idD)]);
     }
 
 }
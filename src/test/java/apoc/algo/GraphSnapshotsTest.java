@@ -0,0 +1,124 @@
+package apoc.algo;
+
+import apoc.util.TestUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.test.TestGraphDatabaseFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static apoc.util.TestUtil.testCall;
+import static apoc.util.TestUtil.testResult;
+import static apoc.util.Util.map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GraphSnapshotsTest {
+
+    // a -> b -> c -> d, e -> f, g (isolated, no label)
+    private static final String GRAPH = "CREATE (a:Node {name:'a'})-[:LINK {w:1}]->(b:Node {name:'b'})-[:LINK {w:2}]->(c:Node {name:'c'})-[:LINK {w:3}]->(d:Node {name:'d'}), " +
+            "(e:Node {name:'e'})-[:LINK]->(f:Node {name:'f'}), (b)-[:OTHER]->(e), (g {name:'g'})";
+
+    private GraphDatabaseService db;
+
+    @Before
+    public void setUp() throws Exception {
+        db = new TestGraphDatabaseFactory().newImpermanentDatabase();
+        TestUtil.registerProcedure(db, GraphSnapshots.class);
+        db.execute(GRAPH).close();
+    }
+
+    @After
+    public void tearDown() {
+        GraphSnapshots.graphs.clear();
+        db.shutdown();
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        testCall(db, "CALL apoc.algo.graph.load('links',{labels:['Node'],types:['LINK'],weightProperty:'w'})", (row) -> {
+            assertEquals("links", row.get("name"));
+            assertEquals(6L, row.get("nodes"));
+            assertEquals(4L, row.get("relationships"));
+            assertEquals("OUTGOING", row.get("direction"));
+        });
+        testCall(db, "CALL apoc.algo.graph.list()", (row) -> assertEquals("links", row.get("name")));
+        testCall(db, "CALL apoc.algo.graph.remove('links')", (row) -> assertEquals(6L, row.get("nodes")));
+        testResult(db, "CALL apoc.algo.graph.list()", (result) -> assertTrue(!result.hasNext()));
+    }
+
+    @Test
+    public void testAllNodesBothDirections() throws Exception {
+        testCall(db, "CALL apoc.algo.graph.load('all',{direction:'BOTH'})", (row) -> {
+            assertEquals(7L, row.get("nodes"));
+            assertEquals(10L, row.get("relationships"));
+        });
+    }
+
+    @Test
+    public void testWcc() throws Exception {
+        db.execute("CALL apoc.algo.graph.load('links',{types:['LINK']})").close();
+        Map<String, Object> components = scores("links", "wcc");
+        assertEquals(components.get("a"), components.get("d"));
+        assertEquals(components.get("e"), components.get("f"));
+        assertNotEquals(components.get("a"), components.get("e"));
+        assertNotEquals(components.get("a"), components.get("g"));
+    }
+
+    @Test
+    public void testPageRank() throws Exception {
+        db.execute("CALL apoc.algo.graph.load('links',{types:['LINK']})").close();
+        Map<String, Object> ranks = scores("links", "pageRank");
+        assertEquals(0.15, (double) ranks.get("a"), 1e-6);
+        assertTrue((double) ranks.get("d") > (double) ranks.get("c"));
+        assertTrue((double) ranks.get("c") > (double) ranks.get("b"));
+    }
+
+    @Test
+    public void testBetweennessAndCloseness() throws Exception {
+        db.execute("CALL apoc.algo.graph.load('links',{labels:['Node'],types:['LINK']})").close();
+        Map<String, Object> betweenness = scores("links", "betweenness");
+        assertEquals(2.0, betweenness.get("b"));
+        assertEquals(2.0, betweenness.get("c"));
+        assertEquals(0.0, betweenness.get("a"));
+        Map<String, Object> closeness = scores("links", "closeness");
+        assertEquals(3.0 / 6, closeness.get("a"));
+        assertEquals(1.0, closeness.get("c"));
+        assertEquals(0.0, closeness.get("d"));
+    }
+
+    @Test
+    public void testLabelPropagation() throws Exception {
+        db.execute("CALL apoc.algo.graph.load('links',{types:['LINK'],direction:'BOTH'})").close();
+        Map<String, Object> partitions = scores("links", "labelPropagation");
+        assertEquals(partitions.get("e"), partitions.get("f"));
+        assertNotEquals(partitions.get("a"), partitions.get("e"));
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        db.execute("CALL apoc.algo.graph.load('links',{types:['LINK']})").close();
+        testCall(db, "CALL apoc.algo.graph.write('links','pageRank',{property:'rank'})", (row) -> {
+            assertEquals(7L, row.get("nodes"));
+            assertEquals("rank", row.get("property"));
+        });
+        testCall(db, "MATCH (n {name:'a'}) RETURN n.rank AS rank", (row) -> assertEquals(0.15, (double) row.get("rank"), 1e-6));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testUnknownGraph() throws Exception {
+        testCall(db, "CALL apoc.algo.graph.stream('missing','pageRank')", (row) -> {});
+    }
+
+    private Map<String, Object> scores(String graph, String algorithm) {
+        Map<String, Object> scores = new HashMap<>();
+        testResult(db, "CALL apoc.algo.graph.stream({graph},{algorithm})", map("graph", graph, "algorithm", algorithm), (result) ->
+                result.forEachRemaining(row -> scores.put((String) ((Node) row.get("node")).getProperty("name"), row.get("score"))));
+        return scores;
+    }
+}
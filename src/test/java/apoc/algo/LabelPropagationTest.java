@@ -7,6 +7,8 @@ import org.junit.Test;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.test.TestGraphDatabaseFactory;
 
+import java.util.List;
+
 import static apoc.util.TestUtil.testCall;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.junit.Assert.assertThat;
@@ -43,4 +45,31 @@ public class LabelPropagationTest {
             (r) -> assertThat(r.get("partition"), equalTo(2L))
         );
     }
+
+    @Test
+    public void testCommunitiesOverSeveralIterations() {
+        db.execute("CREATE (a:Node {id:'a', partition:'x'})-[:X]->(b:Node {id:'b', partition:'x'})-[:X]->(c:Node {id:'c'})-[:X]->(a) " +
+                   "CREATE (d:Node {id:'d'})-[:X]->(e:Node {id:'e', partition:'y'})-[:X]->(f:Node {id:'f', partition:'y'})-[:X]->(d) " +
+                   "CREATE (c)-[:X]->(d) " +
+                   "CREATE (g:Other {id:'g', partition:'fixed'})-[:X]->(a)"
+        ).close();
+
+        db.execute("CALL apoc.algo.community(10,['Node'],'partition','X','BOTH',null,2)").close();
+        testCall(
+            db,
+            "MATCH (n) WITH n.id AS id, n.partition AS partition ORDER BY id " +
+            "RETURN collect(partition) AS partitions, count(distinct partition) AS count",
+            (r) -> {
+                List<Object> partitions = (List<Object>) r.get("partitions");
+                assertThat(partitions.get(0), equalTo(partitions.get(1)));
+                assertThat(partitions.get(1), equalTo(partitions.get(2)));
+                assertThat(partitions.get(3), equalTo(partitions.get(4)));
+                assertThat(partitions.get(4), equalTo(partitions.get(5)));
+                assertThat(partitions.get(0), equalTo("x"));
+                assertThat(partitions.get(3), equalTo("y"));
+                assertThat(partitions.get(6), equalTo("fixed"));
+                assertThat(r.get("count"), equalTo(3L));
+            }
+        );
+    }
 }
@@ -7,6 +7,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Map;
 
 import org.neo4j.graphdb.GraphDatabaseService;
@@ -141,6 +142,29 @@ public class PageRankTest
         assertFalse( result.hasNext() );
     }
 
+    @Test
+    public void shouldStopPageRankOnTolerance() throws IOException
+    {
+        db.execute( COMPANIES_QUERY ).close();
+        Map<String,Object> row = db.execute( "CALL apoc.algo.pageRankStats({iterations:100, tolerance:0.01})" ).next();
+        long iterations = (long) row.get( "iterations" );
+        assertTrue( "iterations " + iterations, iterations > 1 && iterations < 100 );
+    }
+
+    @Test
+    public void shouldGetPersonalizedPageRank() throws IOException
+    {
+        db.execute( COMPANIES_QUERY ).close();
+        String query = "MATCH (d:Company {name:'d'}), (e:Company {name:'e'}), (k:Company {name:'k'})\n" +
+                       "CALL apoc.algo.pageRankWithConfig([d,e,k],{iterations:20,sourceNodes:[e]}) YIELD node, score\n" +
+                       "RETURN node.name AS name, score";
+        Map<String,Double> scores = new HashMap<>();
+        db.execute( query ).forEachRemaining( row -> scores.put( (String) row.get( "name" ), (Double) row.get( "score" ) ) );
+        assertTrue( scores.get( "e" ) >= 0.15 );
+        assertTrue( scores.get( "d" ) > 0 );
+        assertEquals( 0, scores.get( "k" ), 0D );
+    }
+
     @Test
     public void shouldGetPageRankWithCypherExpectedResult() throws IOException
     {
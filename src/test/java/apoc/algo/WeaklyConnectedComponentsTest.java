@@ -3,7 +3,11 @@ package apoc.algo;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -11,8 +15,11 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.test.TestGraphDatabaseFactory;
 
+import apoc.Pools;
+import apoc.algo.algorithms.AlgoUtils;
 import apoc.util.TestUtil;
 
 public class WeaklyConnectedComponentsTest {
@@ -60,6 +67,46 @@ public class WeaklyConnectedComponentsTest {
     	assertExpectedResultOfType( Long.class, "CALL apoc.algo.wcc()" + "" );
     }
     
+    @Test
+    public void shouldStreamComponentIds()
+    {
+        db.execute(CC_GRAPH).close();
+        TestUtil.testResult( db, "CALL apoc.algo.wccStream() YIELD nodeId, componentId " +
+                "MATCH (n) WHERE id(n) = nodeId RETURN n.name AS name, componentId", ( result ) -> {
+            Map<String, Long> components = new HashMap<>();
+            while (result.hasNext()) {
+                Map<String, Object> row = result.next();
+                components.put( (String) row.get( "name" ), (Long) row.get( "componentId" ) );
+            }
+            assertEquals( 15, components.size() );
+            assertEquals( 5, new HashSet<>( components.values() ).size() );
+            assertEquals( components.get( "C" ), components.get( "E" ) );
+            assertEquals( components.get( "H" ), components.get( "N" ) );
+            assertNotEquals( components.get( "A" ), components.get( "B" ) );
+            assertNotEquals( components.get( "C" ), components.get( "F" ) );
+        } );
+    }
+
+    @Test
+    public void shouldFilterComponentsByType()
+    {
+        db.execute(CC_GRAPH + " CREATE (a)-[:OTHER]->(b)").close();
+        TestUtil.testCall( db, "CALL apoc.algo.wccWrite({types:['LINK']})", ( row ) -> {
+            assertEquals( 15L, row.get( "nodes" ) );
+            assertEquals( 13L, row.get( "relationships" ) );
+            assertEquals( 5L, row.get( "components" ) );
+            assertEquals( "component", row.get( "property" ) );
+        } );
+        TestUtil.testCall( db, "CALL apoc.algo.wccWrite({property:'cc'})", ( row ) -> assertEquals( 4L, row.get( "components" ) ) );
+        TestUtil.testCall( db, "MATCH (a:Node {name:'A'}), (b:Node {name:'B'}), (c:Node {name:'C'}), (d:Node {name:'D'}) " +
+                "RETURN a.component <> b.component AS before, a.cc = b.cc AS after, c.cc = d.cc AS linked, c.cc = id(c) AS smallest", ( row ) -> {
+            assertEquals( true, row.get( "before" ) );
+            assertEquals( true, row.get( "after" ) );
+            assertEquals( true, row.get( "linked" ) );
+            assertEquals( true, row.get( "smallest" ) );
+        } );
+    }
+
     private void assertExpected( int expectedResultCount, String query )
     {
         TestUtil.testCallCount( db, query, null,5 );
@@ -78,4 +125,10 @@ public class WeaklyConnectedComponentsTest {
         } );
     }
 
+
+	@Test(expected = RuntimeException.class)
+	public void testWriteBackFailureIsReported() throws Exception {
+		// the node does not exist, the failed batch must fail the write-back instead of being ignored
+		AlgoUtils.writeBackLongResults(Pools.DEFAULT, (GraphDatabaseAPI) db, "partition", 1, algoId -> 1_000_000L, algoId -> 1L, 10);
+	}
 }
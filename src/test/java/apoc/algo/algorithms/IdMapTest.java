@@ -0,0 +1,50 @@
+package apoc.algo.algorithms;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class IdMapTest {
+
+    @Test
+    public void testMapsIdsBeyondIntRange() throws Exception {
+        IdMap idMap = new IdMap(2);
+        long[] nodeIds = {2_300_000_123L, 5L, Integer.MAX_VALUE + 1L, Long.MAX_VALUE - 1};
+        for (int i = 0; i < nodeIds.length; i++) {
+            assertEquals(i, idMap.getOrCreate(nodeIds[i]));
+        }
+        assertEquals(1, idMap.getOrCreate(5L));
+        assertEquals(nodeIds.length, idMap.size());
+        for (int i = 0; i < nodeIds.length; i++) {
+            assertEquals(i, idMap.get(nodeIds[i]));
+            assertEquals(nodeIds[i], idMap.toNodeId(i));
+        }
+        assertEquals(IdMap.NOT_MAPPED, idMap.get(6L));
+    }
+
+    @Test
+    public void testGrowsOverPages() throws Exception {
+        IdMap idMap = new IdMap(1);
+        int count = 3 * (1 << PagedIntArray.PAGE_BITS) + 7;
+        for (int i = 0; i < count; i++) {
+            idMap.getOrCreate(10L * i + Integer.MAX_VALUE);
+        }
+        assertEquals(count, idMap.size());
+        assertEquals(10L * (count - 1) + Integer.MAX_VALUE, idMap.toNodeId(count - 1));
+    }
+
+    @Test
+    public void testPagedArrayCopyAcrossPages() throws Exception {
+        int pageSize = 1 << PagedIntArray.PAGE_BITS;
+        PagedIntArray array = new PagedIntArray(2L * pageSize + 3);
+        int[] values = new int[pageSize + 5];
+        Arrays.fill(values, 42);
+        array.copyFrom(values, values.length, pageSize - 5);
+        assertEquals(0, array.get(pageSize - 6));
+        assertEquals(42, array.get(pageSize - 5));
+        assertEquals(42, array.get(2L * pageSize - 1));
+        assertEquals(0, array.get(2L * pageSize));
+    }
+}
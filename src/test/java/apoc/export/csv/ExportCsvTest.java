@@ -6,6 +6,9 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.factory.GraphDatabaseSettings;
 import org.neo4j.test.TestGraphDatabaseFactory;
 
@@ -14,6 +17,7 @@ import java.util.Map;
 import java.util.Scanner;
 
 import static apoc.util.MapUtil.map;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -105,6 +109,106 @@ public class ExportCsvTest {
         assertEquals(EXPECTED_QUERY_NODES, new Scanner(output).useDelimiter("\\Z").next());
     }
 
+    @Test
+    public void testImportCsvRoundTrip() throws Exception {
+        File output = new File(directory, "roundtrip.csv");
+        TestUtil.testCall(db, "CALL apoc.export.csv.all({file},{useTypes:true})", map("file", output.getAbsolutePath()), (r) -> {});
+        GraphDatabaseService target = new TestGraphDatabaseFactory()
+                .newImpermanentDatabaseBuilder()
+                .setConfig("apoc.export.file.enabled", "true")
+                .setConfig("apoc.import.file.enabled", "true")
+                .newGraphDatabase();
+        try {
+            TestUtil.registerProcedure(target, ExportCSV.class);
+            TestUtil.testCall(target, "CALL apoc.import.csv({file},{batchSize:2})", map("file", output.getAbsolutePath()),
+                    (r) -> {
+                        assertEquals(3L, r.get("nodes"));
+                        assertEquals(1L, r.get("relationships"));
+                        assertEquals(7L, r.get("properties"));
+                        assertEquals("csv", r.get("format"));
+                    });
+            TestUtil.testCall(target, "MATCH (f:User)-[:KNOWS]->(b:User) RETURN f, b", (r) -> {
+                assertEquals(map("name", "foo", "age", 42L, "male", true), withoutKids(((Node) r.get("f")).getAllProperties()));
+                assertArrayEquals(new String[]{"a", "b", "c"}, (String[]) ((Node) r.get("f")).getProperty("kids"));
+                assertEquals(map("name", "bar", "age", 42L), ((Node) r.get("b")).getAllProperties());
+            });
+            TestUtil.testCall(target, "MATCH (u:User) WHERE NOT (u)--() RETURN u.age AS age, size(keys(u)) AS keys", (r) -> {
+                assertEquals(12L, r.get("age"));
+                assertEquals(1L, r.get("keys"));
+            });
+        } finally {
+            target.shutdown();
+        }
+    }
+
+    @Test
+    public void testImportCsvReadsArraysOnlyFromArrayColumns() throws Exception {
+        File output = new File(directory, "arrays.csv");
+        GraphDatabaseService source = importDb();
+        GraphDatabaseService target = importDb();
+        try {
+            TestUtil.registerProcedure(source, ExportCSV.class);
+            TestUtil.registerProcedure(target, ExportCSV.class);
+            source.execute("CREATE (:Note {text:'[1,2]', tags:['x','[y]'], scores:[1,2]})").close();
+            TestUtil.testCall(source, "CALL apoc.export.csv.all({file},{useTypes:true})", map("file", output.getAbsolutePath()), (r) -> {});
+            assertEquals("\"_id:id\",\"_labels:label\",\"text\",\"tags:string[]\",\"scores:long[]\",\"_start:id\",\"_end:id\",\"_type:label\"",
+                    new Scanner(output).nextLine());
+
+            TestUtil.testCall(target, "CALL apoc.import.csv({file},{})", map("file", output.getAbsolutePath()), (r) -> assertEquals(1L, r.get("nodes")));
+            TestUtil.testCall(target, "MATCH (n:Note) RETURN n", (r) -> {
+                Node node = (Node) r.get("n");
+                assertEquals("[1,2]", node.getProperty("text"));
+                assertArrayEquals(new String[]{"x", "[y]"}, (String[]) node.getProperty("tags"));
+                assertArrayEquals(new long[]{1, 2}, (long[]) node.getProperty("scores"));
+            });
+        } finally {
+            source.shutdown();
+            target.shutdown();
+        }
+    }
+
+    @Test
+    public void testImportCsvCharacters() throws Exception {
+        File output = new File(directory, "chars.csv");
+        GraphDatabaseService source = importDb();
+        GraphDatabaseService target = importDb();
+        try {
+            TestUtil.registerProcedure(source, ExportCSV.class);
+            TestUtil.registerProcedure(target, ExportCSV.class);
+            try (Transaction tx = source.beginTx()) {
+                Node node = source.createNode(Label.label("Letter"));
+                node.setProperty("initial", 'x');
+                node.setProperty("letters", new char[]{'a', '"', 'c'});
+                tx.success();
+            }
+            TestUtil.testCall(source, "CALL apoc.export.csv.all({file},{useTypes:true})", map("file", output.getAbsolutePath()), (r) -> {});
+
+            TestUtil.testCall(target, "CALL apoc.import.csv({file},{})", map("file", output.getAbsolutePath()), (r) -> assertEquals(1L, r.get("nodes")));
+            TestUtil.testCall(target, "MATCH (n:Letter) RETURN n", (r) -> {
+                Node node = (Node) r.get("n");
+                assertEquals(2, node.getAllProperties().size());
+                assertEquals('x', node.getProperty("initial"));
+                assertArrayEquals(new char[]{'a', '"', 'c'}, (char[]) node.getProperty("letters"));
+            });
+        } finally {
+            source.shutdown();
+            target.shutdown();
+        }
+    }
+
+    private static GraphDatabaseService importDb() {
+        return new TestGraphDatabaseFactory()
+                .newImpermanentDatabaseBuilder()
+                .setConfig("apoc.export.file.enabled", "true")
+                .setConfig("apoc.import.file.enabled", "true")
+                .newGraphDatabase();
+    }
+
+    private static Map<String, Object> withoutKids(Map<String, Object> properties) {
+        properties.remove("kids");
+        return properties;
+    }
+
     private void assertResults(File output, Map<String, Object> r, final String source) {
         assertEquals(3L, r.get("nodes"));
         assertEquals(1L, r.get("relationships"));
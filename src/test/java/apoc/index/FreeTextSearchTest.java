@@ -156,6 +156,35 @@ public class FreeTextSearchTest {
         assertSingle(search("people", "person89999"), hasProperty("name", "person89999"));
     }
 
+    @Test
+    public void shouldPopulateInParallelBatchesAndReportStatus() {
+        // given
+        execute("UNWIND range(1,2500) as x CREATE (:Person{name:'person'+x, age:x})");
+        execute("UNWIND range(1,500) as x CREATE (:Person:Actor{name:'actor'+x})");
+
+        // when
+        TestUtil.testResult(db, "CALL apoc.index.addAllNodes('people', {Person:['name','age'], Actor:['name']}, {batchSize:100}) " +
+                "YIELD label, property, nodeCount RETURN label + '.' + property as field, nodeCount", result -> {
+            Map<Object, Object> counts = new HashMap<>();
+            result.forEachRemaining(row -> counts.put(row.get("field"), row.get("nodeCount")));
+            assertEquals(map("Person.name", 3000L, "Person.age", 2500L, "Actor.name", 500L), counts);
+        });
+
+        // then
+        assertSingle(search("people", "Actor.name:actor499"), hasLabel("Person"));
+        assertSingle(search("people", "Person.age:[2499 TO 2499]"), hasProperty("name", "person2499"));
+        try (Transaction tx = db.beginTx()) {
+            assertFalse(db.index().getConfiguration(nodeIndex("people")).containsKey("batchSize"));
+            tx.success();
+        }
+        TestUtil.testCall(db, "CALL apoc.index.populationStatus('people')", row -> {
+            assertEquals("DONE", row.get("state"));
+            assertEquals(3500L, row.get("total"));
+            assertEquals(3500L, row.get("indexed"));
+            assertEquals(1d, row.get("progress"));
+        });
+    }
+
     @Test
     public void shouldReportScoreFromIndex() throws Exception {
         // given
@@ -5,9 +5,14 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
 import org.neo4j.test.TestGraphDatabaseFactory;
 
+import java.util.Map;
+
+import static apoc.index.IndexUpdateTransactionEventHandler.lifeCycle;
 import static apoc.util.TestUtil.*;
+import static apoc.util.Util.map;
 import static org.junit.Assert.*;
 
 public class IndexUpdateTransactionEventHandlerTest {
@@ -19,7 +24,7 @@ public class IndexUpdateTransactionEventHandlerTest {
         db = new TestGraphDatabaseFactory().newImpermanentDatabaseBuilder()
             .setConfig("apoc.autoIndex.enabled", "true")
             .newGraphDatabase();
-        TestUtil.registerProcedure(db, FreeTextSearch.class);
+        TestUtil.registerProcedure(db, FreeTextSearch.class, FulltextIndex.class);
     }
 
     @After
@@ -70,4 +75,82 @@ public class IndexUpdateTransactionEventHandlerTest {
         testCallCount(db, "match (s:Submarine) remove s.periscope return s", null, 2);
     }
 
+    @Test
+    public void shouldApplyIndexConfigChangesImmediately() {
+        testCallCount(db, "call apoc.index.forNodes('tags', {type:'fulltext', autoUpdate:'true', labels:'Tag', `keysForLabel:Tag`:'name'})", null, 1);
+        testCallEmpty(db, "create (:Tag{name:'neo4j'})", null);
+        testCallCount(db, "start n=node:tags('Tag.name:neo4j') return n", null, 1);
+
+        testCallCount(db, "call apoc.index.remove('tags')", null, 1);
+        testCallEmpty(db, "create (:Tag{name:'apoc'})", null);
+        testCallCount(db, "call apoc.index.list()", null, 0);
+    }
+
+    @Test
+    public void shouldIgnoreIndexConfigChangesOfRolledBackTransactions() {
+        testCallCount(db, "call apoc.index.forNodes('tags', {type:'fulltext', autoUpdate:'true', labels:'Tag', `keysForLabel:Tag`:'name'})", null, 1);
+        try (Transaction tx = db.beginTx()) {
+            db.execute("call apoc.index.remove('tags')").close();
+            tx.failure();
+        }
+        testCallEmpty(db, "create (:Tag{name:'neo4j'})", null);
+        testCallCount(db, "start n=node:tags('Tag.name:neo4j') return n", null, 1);
+    }
+
+    @Test
+    public void shouldBulkDeleteIndexedNodes() {
+        testCallEmpty(db, "unwind range(1,1000) as i create (c:City{name:'City '+i, code:i})-[:NEXT]->(:Street{name:'Street '+i})", null);
+        testCallEmpty(db, "create (:City{name:'Capital City', code:0})", null);
+        testCallCount(db, "call apoc.index.addAllNodes('cities',{City:['name','code']},{autoUpdate:true})", null, 2);
+        testCallCount(db, "start n=node:cities('City.name:City') return n", null, 1001);
+
+        // when
+        TestUtil.testCall(db, "match (c:City) where c.code > 0 detach delete c with count(*) as count " +
+                "match (capital:City{code:0}) remove capital.code set capital.name = 'Capitol' return count", map -> assertEquals(1000L, map.get("count")));
+
+        // then
+        testCallCount(db, "start n=node:cities('City.name:City') return n", null, 0);
+        testCallCount(db, "start n=node:cities('City.name:Capitol') return n", null, 1);
+        testCallCount(db, "start n=node:cities('City.code:0') return n", null, 0);
+    }
+
+    @Test
+    public void shouldCoalesceAsyncUpdatesOfHotNodes() throws Exception {
+        GraphDatabaseService asyncDb = new TestGraphDatabaseFactory().newImpermanentDatabaseBuilder()
+                .setConfig("apoc.autoIndex.enabled", "true")
+                .setConfig("apoc.autoIndex.async", "true")
+                .setConfig("apoc.autoIndex.async_rollover_millis", "600000")
+                .newGraphDatabase();
+        try {
+            TestUtil.registerProcedure(asyncDb, FreeTextSearch.class);
+            testCallEmpty(asyncDb, "create (:Counter{name:'hot'}), (:Counter{name:'cold'})", null);
+            testCallCount(asyncDb, "call apoc.index.addAllNodes('counters',{Counter:['name','value']},{autoUpdate:true})", null, 1);
+
+            for (int i = 0; i < 20; i++) {
+                testCallEmpty(asyncDb, "match (c:Counter{name:'hot'}) set c.value = {value}", map("value", "v" + i));
+            }
+            TestUtil.testCall(asyncDb, "call apoc.index.autoUpdateMetrics()", row -> {
+                Map<String, Object> metrics = (Map<String, Object>) row.get("value");
+                assertEquals(1L, metrics.get("pendingNodes"));
+                assertEquals(20L, metrics.get("enqueued"));
+                assertEquals(19L, metrics.get("coalesced"));
+            });
+
+            assertTrue(lifeCycle(asyncDb).flushAsyncUpdates(10_000));
+            testCallCount(asyncDb, "start n=node:counters('Counter.value:v19') return n", null, 1);
+            testCallCount(asyncDb, "start n=node:counters('Counter.value:v18') return n", null, 0);
+            TestUtil.testCall(asyncDb, "call apoc.index.autoUpdateMetrics()", row -> {
+                Map<String, Object> metrics = (Map<String, Object>) row.get("value");
+                assertEquals(0L, metrics.get("pendingNodes"));
+                assertEquals(1L, metrics.get("appliedUpdates"));
+            });
+        } finally {
+            asyncDb.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldNotReportMetricsWhenSynchronous() {
+        testCallCount(db, "call apoc.index.autoUpdateMetrics()", null, 0);
+    }
 }
@@ -121,6 +121,47 @@ public class SchemaIndexTest {
             assertEquals(false, r.hasNext());
         });
     }
+    @Test
+    public void testOrderedRangeSortedByValue() throws Exception {
+        testResult(db, "CALL apoc.index.orderedRange('Person','age',10,30,false,5,{order:'ASC'}) YIELD node RETURN node.id as id", r -> {
+            for (long id : new long[]{10, 110, 11, 111, 12}) {
+                assertEquals(id, r.next().get("id"));
+            }
+            assertEquals(false, r.hasNext());
+        });
+    }
+
+    @Test
+    public void testOrderedRangeDescending() throws Exception {
+        testResult(db, "CALL apoc.index.orderedRange('Person','age',null,null,false,3,{order:'DESC'}) YIELD node RETURN node.id as id", r -> {
+            for (long id : new long[]{199, 99, 198}) {
+                assertEquals(id, r.next().get("id"));
+            }
+            assertEquals(false, r.hasNext());
+        });
+        testResult(db, "CALL apoc.index.orderedRange('Person','name','name10','name30',false,3,{order:'DESC'}) YIELD node RETURN node.id as id", r -> {
+            for (long id : new long[]{30, 3, 29}) {
+                assertEquals(id, r.next().get("id"));
+            }
+            assertEquals(false, r.hasNext());
+        });
+    }
+
+    @Test
+    public void testOrderedRangeKeysetPagination() throws Exception {
+        long afterId = (long) db.execute("MATCH (p:Person {id:11}) RETURN id(p) as id").columnAs("id").next();
+        for (String order : asList("ASC", "DESC")) {
+            long[] expected = order.equals("ASC") ? new long[]{111, 12, 112} : new long[]{110, 10, 109};
+            testResult(db, "CALL apoc.index.orderedRange('Person','age',null,null,false,3,{order:{order},after:11,afterId:{afterId}}) YIELD node RETURN node.id as id",
+                    map("order", order, "afterId", afterId), r -> {
+                for (long id : expected) {
+                    assertEquals(id, r.next().get("id"));
+                }
+                assertEquals(false, r.hasNext());
+            });
+        }
+    }
+
     @Test
     public void testOrderByText() throws Exception {
         testResult(db, "CALL apoc.index.orderedByText('Person','name','STARTS WITH','name1',false,10)", r -> {
@@ -153,4 +194,37 @@ public class SchemaIndexTest {
                     assertFalse(result.hasNext());
         });
     }
+
+    @Test
+    public void testDistinctNumericAndBooleanProperties() throws Exception {
+        db.execute("CREATE INDEX ON :Bar(value)").close();
+        db.execute("CREATE (:Bar {value:3}), (:Bar {value:1.5}), (:Bar {value:3}), (:Bar {value:true}), (:Bar {value:'baz'}), (:Bar {value:'bar'})").close();
+        try (Transaction tx = db.beginTx()) {
+            db.schema().awaitIndexesOnline(2, TimeUnit.SECONDS);
+            tx.success();
+        }
+        testCall(db, "CALL apoc.schema.properties.distinct('Bar', 'value')",
+                (row) -> assertEquals(asList(1.5, 3L, "bar", "baz", true), row.get("value")));
+        testCall(db, "CALL apoc.schema.properties.distinct('Bar', 'value', {limit:2})",
+                (row) -> assertEquals(asList(1.5, 3L), row.get("value")));
+        testCall(db, "CALL apoc.schema.properties.distinct('Bar', 'value', {prefix:'baz'})",
+                (row) -> assertEquals(asList("baz"), row.get("value")));
+        testResult(db, "CALL apoc.schema.properties.distinctCount('Bar', 'value', {limit:2}) YIELD value, count RETURN *",
+                (result) -> {
+                    assertEquals(map("value", 1.5, "count", 1L), result.next());
+                    assertEquals(map("value", 3L, "count", 2L), result.next());
+                    assertFalse(result.hasNext());
+                });
+    }
+
+    @Test
+    public void testHistogram() throws Exception {
+        testResult(db, "CALL apoc.schema.properties.histogram('Person', 'age', 4) YIELD type, bucket, min, max, count, distinct RETURN *",
+                (result) -> {
+                    for (long i = 0; i < 4; i++) {
+                        assertEquals(map("type", "number", "bucket", i, "min", i * 25, "max", i * 25 + 24, "count", 50L, "distinct", 25L), result.next());
+                    }
+                    assertFalse(result.hasNext());
+                });
+    }
 }
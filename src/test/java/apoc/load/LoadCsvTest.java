@@ -4,13 +4,20 @@ import apoc.load.LoadCsv;
 import apoc.util.TestUtil;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Result;
 import org.neo4j.test.TestGraphDatabaseFactory;
 
+import java.io.File;
+import java.io.FileWriter;
 import java.net.URL;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import static apoc.util.MapUtil.map;
 import static apoc.util.TestUtil.testCall;
@@ -20,6 +27,9 @@ import static org.junit.Assert.assertEquals;
 
 public class LoadCsvTest {
 
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
     private GraphDatabaseService db;
     @Before public void setUp() throws Exception {
         db = new TestGraphDatabaseFactory().newImpermanentDatabaseBuilder().setConfig("apoc.import.file.enabled","true").newGraphDatabase();
@@ -109,6 +119,34 @@ public class LoadCsvTest {
                 });
     }
 
+    @Test public void testMappingArraySeparatorIsLiteral() throws Exception {
+        File file = tmpFolder.newFile("test-array-sep.csv");
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("name,kids,tags,weight\nMichael,8|11|18,a.b..c,80.5\n");
+        }
+        testResult(db, "CALL apoc.load.csv({url},{mapping:{kids:{array:true,arraySep:'|',type:'int'},tags:{array:true,arraySep:'.'},weight:{type:'float',name:'kg'}}})", map("url",file.toURI().toString()),
+                (r) -> {
+                    Map<String, Object> row = r.next();
+                    assertEquals(map("name", "Michael", "kids", asList(8L, 11L, 18L), "tags", asList("a", "b", "", "c"), "kg", 80.5D), row.get("map"));
+                    assertEquals(asList("Michael", asList(8L, 11L, 18L), asList("a", "b", "", "c"), 80.5D), row.get("list"));
+                    assertEquals(false, r.hasNext());
+                });
+    }
+
+    @Test public void testLoadCsvDuplicateHeader() throws Exception {
+        File file = tmpFolder.newFile("test-duplicate-header.csv");
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("a,a,b\n1,2,3\n");
+        }
+        testResult(db, "CALL apoc.load.csv({url},null)", map("url",file.toURI().toString()),
+                (r) -> {
+                    Map<String, Object> row = r.next();
+                    assertEquals(map("a", "2", "b", "3"), row.get("map"));
+                    assertEquals(asList("1", "2", "3"), row.get("list"));
+                    assertEquals(false, r.hasNext());
+                });
+    }
+
     @Test
     public void testLoadCsvByUrl() throws Exception {
         URL url = new URL("https://raw.githubusercontent.com/neo4j-contrib/neo4j-apoc-procedures/3.1/src/test/resources/test.csv");
@@ -133,4 +171,31 @@ public class LoadCsvTest {
                     assertEquals(false, r.hasNext());
                 });
     }
+
+    @Test public void testLoadCsvParallelMatchesSequential() throws Exception {
+        File file = tmpFolder.newFile("parallel.csv");
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("id,name,note\n");
+            for (int i = 0; i < 5000; i++) {
+                String note = i % 7 == 0 ? "\"multi\nline, \"\"quoted\"\"\n" + i + "\"" : "plain " + i;
+                writer.write(i + ",name " + i + "," + note + "\n");
+            }
+        }
+        String url = file.toURI().toString();
+        List<Map<String, Object>> sequential = load(url, map());
+        assertEquals(5000, sequential.size());
+        assertEquals("multi\nline, \"quoted\"\n7", ((Map) sequential.get(7).get("map")).get("note"));
+
+        assertEquals(sequential, load(url, map("parallel", true, "chunkSize", 65536)));
+
+        List<Map<String, Object>> unordered = load(url, map("parallel", true, "chunkSize", 65536, "ordered", false));
+        unordered.sort(Comparator.comparing(row -> (Long) row.get("lineNo")));
+        assertEquals(sequential, unordered);
+
+        assertEquals(load(url, map("skip", 1234, "limit", 2000)), load(url, map("parallel", true, "chunkSize", 65536, "skip", 1234, "limit", 2000)));
+    }
+
+    private List<Map<String, Object>> load(String url, Map<String, Object> config) {
+        return db.execute("CALL apoc.load.csv({url},{config})", map("url", url, "config", config)).stream().collect(Collectors.toList());
+    }
 }
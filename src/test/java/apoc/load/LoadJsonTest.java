@@ -11,12 +11,14 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.helpers.collection.Iterators;
 import org.neo4j.test.TestGraphDatabaseFactory;
 
 import static java.util.Arrays.asList;
 
 import static apoc.util.MapUtil.map;
 import static apoc.util.TestUtil.testCall;
+import static apoc.util.TestUtil.testResult;
 import static org.junit.Assert.assertEquals;
 
 public class LoadJsonTest {
@@ -66,6 +68,27 @@ public class LoadJsonTest {
                     assertEquals(map("foo",asList(1,2,3)), row.get("value"));
                 });
     }
+    @Test public void testLoadJsonStreamingArrayElements() throws Exception {
+		URL url = ClassLoader.getSystemResource("items.json");
+		for (String path : asList("$.items", "$.items[*]", "$.items.*", "$['items']")) {
+			testResult(db, "CALL apoc.load.json({url},{path}) YIELD value RETURN value.id as id", map("url", url.toString(), "path", path),
+					(result) -> {
+						assertEquals(asList(1, 2, 3), Iterators.asList(result.columnAs("id")));
+					});
+		}
+		testCall(db, "CALL apoc.load.json({url},'$.*')",map("url",url.toString()),
+				(row) -> assertEquals(map("result",asList("vendor dump", asList(map("id",1,"tags",asList("a","b")), map("id",2,"nested",map("list",asList(1,2))), map("id",3)), asList(1,2,3))), row.get("value")));
+		testCall(db, "CALL apoc.load.json({url},'$.items[1].nested')",map("url",url.toString()),
+				(row) -> assertEquals(map("list",asList(1,2)), row.get("value")));
+		testCall(db, "CALL apoc.load.json({url},'$.numbers')",map("url",url.toString()),
+				(row) -> assertEquals(map("result",asList(1,2,3)), row.get("value")));
+		testCall(db, "CALL apoc.load.json({url},'$.items[?(@.id > 1)]') YIELD value RETURN collect(value.id) as ids",map("url",url.toString()),
+				(row) -> assertEquals(asList(2, 3), row.get("ids")));
+		testCall(db, "CALL apoc.load.jsonArray({url},'$.items') YIELD value RETURN count(*) as c",map("url",url.toString()),
+				(row) -> assertEquals(3L, row.get("c")));
+		testCall(db, "CALL apoc.load.json({url},'$.items') YIELD value RETURN value LIMIT 1",map("url",url.toString()),
+				(row) -> assertEquals(map("id",1,"tags",asList("a","b")), row.get("value")));
+    }
     @Test @Ignore public void testLoadJsonGraphCommons() throws Exception {
 		String url = "https://graphcommons.com/graphs/8da5327d-7829-4dfe-b60b-4c0bda956b2a.json";
 		testCall(db, "CALL apoc.load.json({url})",map("url", url), // 'file:map.json' YIELD value RETURN value
@@ -3,12 +3,14 @@ package apoc.load;
 import apoc.util.TestUtil;
 import org.apache.commons.lang.math.IntRange;
 import org.junit.After;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.helpers.collection.Iterators;
 import org.neo4j.test.TestGraphDatabaseFactory;
 
+import java.io.File;
 import java.sql.Time;
 import java.util.Arrays;
 import java.util.LinkedList;
@@ -223,4 +225,47 @@ public class XmlTest {
                     assertEquals(false, r.hasNext());
                 });
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testStreamingXpathMatchesDomXpath() {
+        String[][] paths = {
+                {"src/test/resources/feed.xml", "/", "/*[true()]"},
+                {"src/test/resources/feed.xml", "//item", "//item[true()]"},
+                {"src/test/resources/feed.xml", "/feed/item[@type='book']", "/feed/item[@type='book'][true()]"},
+                {"src/test/resources/feed.xml", "/feed//item[@id]/title", "/feed//item[@id]/title[true()]"},
+                {"src/test/resources/feed.xml", "/feed/*", "/feed/*[true()]"},
+                {"src/test/resources/mixedcontent.xml", "/root/text", "/root/text[true()]"},
+                {"src/test/resources/books.xml", "/catalog/book", "/catalog/book[true()]"}};
+        for (String[] path : paths) {
+            for (boolean simple : new boolean[]{false, true}) {
+                String url = "file:" + path[0];
+                List<Object> streamed = Iterators.asList(db.execute("CALL apoc.load.xml({url}, {path}, {simple})", map("url", url, "path", path[1], "simple", simple)).columnAs("value"));
+                List<Object> dom = Iterators.asList(db.execute("CALL apoc.load.xml({url}, {path}, {simple})", map("url", url, "path", path[2], "simple", simple)).columnAs("value"));
+                assertTrue(path[1] + " returned nothing", !streamed.isEmpty());
+                assertEquals(path[1], dom.toString(), streamed.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testStreamingXpathNestedMatchesInDocumentOrder() {
+        testResult(db, "CALL apoc.load.xml('file:src/test/resources/feed.xml', '//item') YIELD value RETURN value.id as id",
+                (r) -> assertEquals(Arrays.asList("p1", "p1-ebook", "p2", "p3"), Iterators.asList(r.columnAs("id"))));
+    }
+
+    @Test
+    public void testStreamingXpathClosesTheInput() {
+        File fds = new File("/proc/self/fd");
+        Assume.assumeTrue("needs /proc/self/fd to count open files", fds.isDirectory());
+        int before = fds.list().length;
+        for (int i = 0; i < 100; i++) {
+            testResult(db, "CALL apoc.load.xml('file:src/test/resources/feed.xml', '//item') YIELD value RETURN value.id as id",
+                    (r) -> assertEquals(4, Iterators.count(r)));
+            // not read to the end, the input is closed with the transaction
+            testCall(db, "CALL apoc.load.xml('file:src/test/resources/feed.xml', '//item') YIELD value RETURN value.id as id LIMIT 1",
+                    (row) -> assertEquals("p1", row.get("id")));
+        }
+        int leaked = fds.list().length - before;
+        assertTrue("open files grew by " + leaked, leaked < 10);
+    }
+}
@@ -0,0 +1,60 @@
+package apoc.periodic;
+
+import org.junit.Test;
+import org.neo4j.graphdb.QueryExecutionException;
+import org.neo4j.kernel.DeadlockDetectedException;
+
+import java.util.concurrent.TimeUnit;
+
+import static apoc.util.Util.map;
+import static org.junit.Assert.*;
+
+public class BatchSizeTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(2000);
+
+    @Test
+    public void fixedNeverChanges() throws Exception {
+        BatchSize batchSize = BatchSize.from(map("batchSize", 500), 10000);
+        assertFalse(batchSize.isAdaptive());
+        batchSize.committed(SLOW);
+        batchSize.failed(new DeadlockDetectedException("deadlock"));
+        assertEquals(500, batchSize.get());
+    }
+
+    @Test
+    public void growsAndShrinksWithinBounds() throws Exception {
+        BatchSize batchSize = BatchSize.from(map("batchSize", "auto", "minBatchSize", 10, "maxBatchSize", 100, "targetBatchTime", 1000), 10000);
+        assertTrue(batchSize.isAdaptive());
+        assertEquals(10, batchSize.get());
+        batchSize.committed(FAST);
+        assertEquals(20, batchSize.get());
+        batchSize.committed(FAST);
+        batchSize.committed(FAST);
+        batchSize.committed(FAST);
+        assertEquals(100, batchSize.get());
+
+        batchSize.committed(SLOW);
+        assertEquals(50, batchSize.get());
+        // additive increase after the first decrease
+        batchSize.committed(FAST);
+        assertEquals(60, batchSize.get());
+
+        batchSize.failed(new DeadlockDetectedException("deadlock"));
+        assertEquals(30, batchSize.get());
+        batchSize.failed(new RuntimeException(new DeadlockDetectedException("deadlock")));
+        batchSize.failed(new DeadlockDetectedException("deadlock"));
+        assertEquals(10, batchSize.get());
+    }
+
+    @Test
+    public void ignoresNonTransientFailures() throws Exception {
+        BatchSize batchSize = BatchSize.adaptive(10, 100, 1000);
+        batchSize.committed(FAST);
+        batchSize.failed(new QueryExecutionException("/ by zero", null, "Neo.ClientError.Statement.ArithmeticError"));
+        assertEquals(20, batchSize.get());
+        batchSize.failed(new QueryExecutionException("deadlock", null, "Neo.TransientError.Transaction.DeadlockDetected"));
+        assertEquals(10, batchSize.get());
+    }
+}
@@ -3,10 +3,12 @@ package apoc.periodic;
 import apoc.load.Jdbc;
 import apoc.util.MapUtil;
 import apoc.util.TestUtil;
+import apoc.util.Utils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.QueryExecutionException;
 import org.neo4j.graphdb.ResourceIterator;
 import org.neo4j.helpers.collection.Iterators;
 import org.neo4j.test.TestGraphDatabaseFactory;
@@ -19,6 +21,8 @@ import static apoc.util.TestUtil.testResult;
 import static apoc.util.Util.map;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class PeriodicTest {
 
@@ -29,7 +33,7 @@ public class PeriodicTest {
     @Before
     public void setUp() throws Exception {
         db = new TestGraphDatabaseFactory().newImpermanentDatabase();
-        TestUtil.registerProcedure(db, Periodic.class, Jdbc.class);
+        TestUtil.registerProcedure(db, Periodic.class, Jdbc.class, Utils.class);
     }
 
     @After
@@ -58,6 +62,64 @@ public class PeriodicTest {
         testCall(db, callList, (r) -> assertEquals(true, r.get("done")));
     }
 
+    @Test
+    public void testSubmitStats() throws Exception {
+        testCall(db, "CALL apoc.periodic.submit('bar','UNWIND range(1,10) AS x CREATE (:Bar) RETURN x')", (row) -> assertEquals("bar", row.get("name")));
+        Thread.sleep(2000);
+        testCall(db, "CALL apoc.periodic.stats('bar')", (row) -> {
+            assertEquals("submit", row.get("type"));
+            assertEquals(false, row.get("running"));
+            assertEquals(1L, row.get("committedBatches"));
+            assertEquals(10L, row.get("rows"));
+        });
+        db.execute("CALL apoc.periodic.cancel('bar')").close();
+        assertFalse(db.execute("CALL apoc.periodic.stats('bar')").hasNext());
+    }
+
+    @Test
+    public void testIterateStatsWhileRunning() throws Exception {
+        db.execute("UNWIND range(1,100) AS x CREATE (:Person{name:'Person_'+x})").close();
+
+        Thread iterate = new Thread(() -> db.execute("CALL apoc.periodic.iterate('match (p:Person) return p', 'CALL apoc.util.sleep(10) SET p.lastname = p.name', {batchSize:10, jobName:'backfill', expectedTotal:100})").close());
+        iterate.start();
+        long rows = 0;
+        for (int i = 0; i < 100 && rows == 0; i++) {
+            Thread.sleep(50);
+            ResourceIterator<Long> it = db.execute("CALL apoc.periodic.stats('backfill')").columnAs("rows");
+            rows = it.hasNext() ? it.next() : 0;
+            it.close();
+        }
+        assertTrue(rows > 0);
+        testCall(db, "CALL apoc.periodic.stats('backfill')", (row) -> {
+            assertEquals("iterate", row.get("type"));
+            assertEquals(100L, row.get("expectedTotal"));
+            assertTrue((double) row.get("p99") >= (double) row.get("p50"));
+        });
+        iterate.join();
+
+        assertFalse(db.execute("CALL apoc.periodic.stats('backfill')").hasNext());
+        testCall(db,
+                "MATCH (p:Person) where p.lastname is not null return count(p) as count",
+                row -> assertEquals(100L, row.get("count"))
+        );
+    }
+
+    @Test
+    public void testIterateRejectsNameOfScheduledJob() throws Exception {
+        testCall(db, "CALL apoc.periodic.repeat('dup','RETURN 1',3600)", (row) -> assertEquals("dup", row.get("name")));
+        try {
+            db.execute("CALL apoc.periodic.iterate('UNWIND range(1,10) AS id RETURN id', 'CREATE (:Item {id:id})', {jobName:'dup'})").close();
+            fail("iterate must not take over the name of a scheduled job");
+        } catch (QueryExecutionException e) {
+            assertTrue(e.getMessage().contains("dup"));
+        }
+        testCall(db, "CALL apoc.periodic.list() YIELD name, done, cancelled WHERE name = 'dup' RETURN done, cancelled", (row) -> {
+            assertEquals(false, row.get("done"));
+            assertEquals(false, row.get("cancelled"));
+        });
+        testCall(db, "CALL apoc.periodic.cancel('dup')", (row) -> assertEquals(true, row.get("cancelled")));
+    }
+
     @Test
     public void testRunDown() throws Exception {
         db.execute("UNWIND range(1,{count}) AS id CREATE (n:Person {id:id})", MapUtil.map("count", RUNDONW_COUNT)).close();
@@ -76,6 +138,20 @@ public class PeriodicTest {
 
     }
 
+    @Test
+    public void testRunDownAdaptiveLimit() throws Exception {
+        db.execute("UNWIND range(1,{count}) AS id CREATE (n:Person {id:id})", MapUtil.map("count", RUNDONW_COUNT)).close();
+
+        String query = "MATCH (p:Person) WHERE NOT p:Processed WITH p LIMIT {limit} SET p:Processed RETURN count(*)";
+
+        testCall(db, "CALL apoc.periodic.commit({query},{},{batchSize:'auto',minBatchSize:50,maxBatchSize:400})", MapUtil.map("query", query), r -> {
+            assertEquals(RUNDONW_COUNT, r.get("updates"));
+            assertTrue((long) r.get("executions") < RUNDONW_COUNT / 50);
+        });
+
+        testCall(db, "MATCH (p:Processed) RETURN COUNT(*) AS c", r -> assertEquals(RUNDONW_COUNT, r.get("c")));
+    }
+
     @Test
     public void testRock_n_roll() throws Exception {
         // setup
@@ -145,6 +221,67 @@ public class PeriodicTest {
         );
     }
 
+    @Test
+    public void testIterateWithBoundedInFlightBatches() throws Exception {
+        db.execute("UNWIND range(1,1000) AS x CREATE (:Person{name:'Person_'+x})").close();
+
+        testResult(db, "CALL apoc.periodic.iterate('match (p:Person) return p', 'SET p.lastname = p.name', {batchSize:10, parallel:true, maxInFlightBatches:2})", result -> {
+            Map<String, Object> row = Iterators.single(result);
+            assertEquals(100L, row.get("batches"));
+            assertEquals(1000L, row.get("total"));
+            assertEquals(1000L, row.get("committedOperations"));
+            assertEquals(0L, row.get("failedBatches"));
+        });
+
+        testCall(db,
+                "MATCH (p:Person) where p.lastname is not null return count(p) as count",
+                row -> assertEquals(1000L, row.get("count"))
+        );
+    }
+
+    @Test
+    public void testIterateAdaptiveBatchSize() throws Exception {
+        db.execute("UNWIND range(1,1000) AS x CREATE (:Person{name:'Person_'+x})").close();
+
+        testResult(db, "CALL apoc.periodic.iterate('match (p:Person) return p', 'SET p.lastname = p.name', {batchSize:'auto', minBatchSize:10, maxBatchSize:200, iterateList:true})", result -> {
+            Map<String, Object> row = Iterators.single(result);
+            long batches = (long) row.get("batches");
+            assertTrue(batches >= 5 && batches < 100);
+            assertEquals(1000L, row.get("total"));
+            assertEquals(1000L, row.get("committedOperations"));
+        });
+
+        testCall(db,
+                "MATCH (p:Person) where p.lastname is not null return count(p) as count",
+                row -> assertEquals(1000L, row.get("count"))
+        );
+    }
+
+    @Test
+    public void testIteratePartitioned() throws Exception {
+        db.execute("UNWIND range(0,9) AS id CREATE (:Hub {id:id, count:0})").close();
+
+        testResult(db, "CALL apoc.periodic.iterate('UNWIND range(1,1000) AS id MATCH (h:Hub {id: id % 10}) RETURN id, h', " +
+                "'CREATE (h)-[:HAS]->(:Item {id:id}) SET h.count = h.count + 1', {batchSize:10, partitionBy:'h', partitions:4})", result -> {
+            Map<String, Object> row = Iterators.single(result);
+            assertEquals(1000L, row.get("total"));
+            assertEquals(1000L, row.get("committedOperations"));
+            assertEquals(0L, row.get("failedOperations"));
+            assertEquals(0L, row.get("failedBatches"));
+            assertEquals(100L, row.get("batches"));
+        });
+
+        testCall(db, "MATCH (h:Hub) RETURN sum(h.count) AS count, min(size((h)-->())) AS min", row -> {
+            assertEquals(1000L, row.get("count"));
+            assertEquals(100L, row.get("min"));
+        });
+    }
+
+    @Test(expected = QueryExecutionException.class)
+    public void testIteratePartitionByUnknownColumn() throws Exception {
+        db.execute("CALL apoc.periodic.iterate('UNWIND range(1,10) AS id RETURN id', 'CREATE (:Item {id:id})', {partitionBy:'foo'})").close();
+    }
+
     @Test
     public void testIteratePrefix() throws Exception {
         db.execute("UNWIND range(1,100) AS x CREATE (:Person{name:'Person_'+x})").close();
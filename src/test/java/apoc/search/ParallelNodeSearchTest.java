@@ -2,14 +2,22 @@ package apoc.search;
 
 import static org.junit.Assert.assertEquals;
 
+import apoc.Pools;
 import apoc.util.Util;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.test.TestGraphDatabaseFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import apoc.util.TestUtil;
 
 public class ParallelNodeSearchTest {
@@ -92,4 +100,61 @@ public class ParallelNodeSearchTest {
     	query = "call apoc.search.nodeAllReduced({Person: 'born', Movie: ['released']},'exact',2000) yield labels as n return count(n) as c";
 		TestUtil.testCall(db, query, (row) -> assertEquals(3L,row.get("c")));
     }
+
+    @Test
+    public void testMultiSearchNodeWithIndexesAndLimit() throws Throwable {
+        db.execute("CREATE INDEX ON :Person(name)").close();
+        db.execute("CREATE INDEX ON :Movie(title)").close();
+        try (Transaction tx = db.beginTx()) {
+            db.schema().awaitIndexesOnline(5, TimeUnit.SECONDS);
+            tx.success();
+        }
+        String query = "call apoc.search.node({Person: 'name', Movie: ['title','tagline']},'CONTAINS','her') yield node as n return count(n) as c";
+        TestUtil.testCall(db, query, (row) -> assertEquals(6L,row.get("c")));
+        query = "call apoc.search.node({Person: 'name', Movie: ['title','tagline']},'STARTS WITH','Tom') yield node as n return count(n) as c";
+        TestUtil.testCall(db, query, (row) -> assertEquals(4L,row.get("c")));
+        query = "call apoc.search.node({Person: 'name', Movie: ['title','tagline']},'ENDS WITH','s') yield node as n return count(n) as c";
+        TestUtil.testCall(db, query, (row) -> assertEquals(29L,row.get("c")));
+        query = "call apoc.search.nodeAllReduced({Person: 'name', Movie: 'title'},'<','B') yield id return count(*) as c";
+        TestUtil.testCall(db, query, (row) -> assertEquals(db.execute("MATCH (n) WHERE n:Person AND n.name < 'B' OR n:Movie AND n.title < 'B' RETURN count(*) as c").next().get("c"), row.get("c")));
+
+        query = "call apoc.search.node({Person: 'name', Movie: ['title','tagline']},'ENDS WITH','s',5) yield node as n return count(n) as c";
+        TestUtil.testCall(db, query, (row) -> assertEquals(5L,row.get("c")));
+        query = "call apoc.search.nodeReduced({Person: 'name', Movie: ['title','tagline']},'ENDS WITH','s',3) yield id return count(*) as c";
+        TestUtil.testCall(db, query, (row) -> assertEquals(3L,row.get("c")));
+    }
+
+    @Test(timeout = 60_000)
+    public void testMoreWorkersThanPoolCapacity() throws Throwable {
+        // more label/property pairs than the default pool runs and queues, all of them with more hits than the hit queue holds
+        int keys = Runtime.getRuntime().availableProcessors() * 60 + 1;
+        List<String> props = new ArrayList<>();
+        for (int k = 1; k <= keys; k++) props.add("p" + k);
+        try (Transaction tx = db.beginTx()) {
+            for (int i = 0; i < 20; i++) {
+                Node node = db.createNode(Label.label("Wide"));
+                for (String prop : props) node.setProperty(prop, "x");
+            }
+            tx.success();
+        }
+        TestUtil.testCall(db, "call apoc.search.nodeAllReduced({Wide: {props}},'=','x') yield id return count(*) as c",
+                Collections.singletonMap("props", props), (row) -> assertEquals(20L * keys, row.get("c")));
+    }
+
+    @Test
+    public void testMultiSearchNodeReducedMergesHitsBeforeLimit() throws Throwable {
+        db.execute("UNWIND range(1,100) AS i CREATE (:Pair{a:'same', b:'same'})").close();
+        String query = "call apoc.search.nodeReduced({Pair: ['a','b']},'=','same',10) yield values return collect(size(keys(values))) as sizes";
+        TestUtil.testCall(db, query, (row) -> assertEquals(Collections.nCopies(10, 2L), row.get("sizes")));
+    }
+
+    @Test(timeout = 60_000)
+    public void testSearchesStopWhenTheCallerStopsReading() throws Throwable {
+        // more hits than the hit queue holds, so the workers of a search that is not read to the end stay blocked unless stopped
+        db.execute("UNWIND range(1,3000) AS i CREATE (:Many{p:'x'+i})").close();
+        for (int i = 0; i < Pools.getNoThreadsInDefaultPool() + 2; i++) {
+            TestUtil.testCall(db, "call apoc.search.node({Many:'p'},'STARTS WITH','x') yield node return node limit 1", (row) -> {});
+        }
+        TestUtil.testCall(db, "call apoc.search.node({Many:'p'},'=','x42') yield node return count(*) as c", (row) -> assertEquals(1L, row.get("c")));
+    }
 }
@@ -1,6 +1,7 @@
 package apoc.trigger;
 
 import apoc.util.TestUtil;
+import apoc.util.Utils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -9,8 +10,13 @@ import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.helpers.collection.Iterators;
 import org.neo4j.test.TestGraphDatabaseFactory;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -30,7 +36,7 @@ public class TriggerTest {
                 .setConfig("apoc.trigger.enabled","true")
                 .newGraphDatabase();
         start = System.currentTimeMillis();
-        TestUtil.registerProcedure(db, Trigger.class);
+        TestUtil.registerProcedure(db, Trigger.class, Utils.class);
     }
 
     @After
@@ -178,6 +184,105 @@ public class TriggerTest {
         });
     }
 
+    @Test
+    public void testAsyncTriggerBatchesTransactions() throws Exception {
+        // the first batch is slow, so the following transactions queue up and run as one batch
+        Trigger.TriggerHandler.add("async","CALL apoc.util.sleep(500) WITH size({transactionId}) AS txs UNWIND {createdNodes} AS n SET n.txIds = txs", map("phase","afterAsync"));
+        for (int i = 0; i < 5; i++) {
+            db.execute("CREATE (:Async {id:{id}})", map("id", i)).close();
+        }
+        long end = System.currentTimeMillis() + 10_000;
+        long done = 0;
+        while (done < 5 && System.currentTimeMillis() < end) {
+            Thread.sleep(50);
+            done = (long) Iterators.single(db.execute("MATCH (n:Async) WHERE exists(n.txIds) RETURN count(*) AS c").columnAs("c"));
+        }
+        assertEquals(5L, done);
+        TestUtil.testCall(db, "MATCH (n:Async) RETURN max(n.txIds) > 1 AS batched, count(*) AS count", (row) -> {
+            assertEquals(true, row.get("batched"));
+            assertEquals(5L, row.get("count"));
+        });
+    }
+
+    @Test
+    public void testMergeAsyncChangeSets() throws Exception {
+        Map<String, Object> merged = AsyncTriggerExecutor.merge(Arrays.asList(
+                map("transactionId", 1L, "createdNodes", Arrays.asList("a", "b")),
+                map("transactionId", 2L, "createdNodes", Collections.singletonList("c"))));
+        assertEquals(Arrays.asList(1L, 2L), merged.get("transactionId"));
+        assertEquals(Arrays.asList("a", "b", "c"), merged.get("createdNodes"));
+    }
+
+    @Test
+    public void testSelectorFiltersChanges() throws Exception {
+        db.execute("CREATE (:Counter {count:0})").close();
+        Trigger.TriggerHandler.add("orders","MATCH (c:Counter) SET c.count = c.count + 1", map("labels", Arrays.asList("Order")));
+        Trigger.TriggerHandler.add("paid","MATCH (c:Counter) SET c.paid = coalesce(c.paid,0) + 1", map("relTypes", Arrays.asList("PAID"), "properties", Arrays.asList("amount")));
+        db.execute("CREATE (:Customer {name:'Joe'})").close();
+        db.execute("CREATE (:Order {id:1})").close();
+        db.execute("MATCH (o:Order) SET o.status = 'open'").close();
+        db.execute("MATCH (c:Customer), (o:Order) CREATE (c)-[:PAID]->(o)").close();
+        db.execute("MATCH ()-[p:PAID]->() SET p.amount = 10").close();
+        TestUtil.testCall(db, "MATCH (c:Counter) RETURN c.count AS count, c.paid AS paid", (row) -> {
+            assertEquals(2L, row.get("count"));
+            assertEquals(1L, row.get("paid"));
+        });
+    }
+
+    @Test
+    public void testSelectorFiltersChangesAfterCommit() throws Exception {
+        db.execute("CREATE (:Counter {count:0, other:0})").close();
+        Trigger.TriggerHandler.add("orders","MATCH (c:Counter) SET c.count = c.count + 1", map("phase", "after", "labels", Arrays.asList("Order")));
+        Trigger.TriggerHandler.add("other","MATCH (c:Counter) SET c.other = c.other + 1", map("phase", "after", "relTypes", Arrays.asList("OTHER")));
+        runSelectorChanges();
+        TestUtil.testCall(db, "MATCH (c:Counter) RETURN c.count AS count, c.other AS other", (row) -> {
+            assertEquals(2L, row.get("count"));
+            assertEquals(0L, row.get("other"));
+        });
+    }
+
+    @Test
+    public void testSelectorFiltersChangesAfterAsync() throws Exception {
+        db.execute("CREATE (:Counter {count:0, other:0})").close();
+        Trigger.TriggerHandler.add("orders","UNWIND {transactionId} AS tx MATCH (c:Counter) SET c.count = c.count + 1", map("phase", "afterAsync", "labels", Arrays.asList("Order")));
+        Trigger.TriggerHandler.add("other","UNWIND {transactionId} AS tx MATCH (c:Counter) SET c.other = c.other + 1", map("phase", "afterAsync", "relTypes", Arrays.asList("OTHER")));
+        Trigger.TriggerHandler.add("done","MATCH (c:Counter) SET c.done = true", map("phase", "afterAsync", "labels", Arrays.asList("Done")));
+        runSelectorChanges();
+        db.execute("CREATE (:Done)").close();
+        long end = System.currentTimeMillis() + 10_000;
+        while (!db.execute("MATCH (c:Counter) WHERE c.done RETURN c").hasNext() && System.currentTimeMillis() < end) {
+            Thread.sleep(50);
+        }
+        TestUtil.testCall(db, "MATCH (c:Counter) RETURN c.count AS count, c.other AS other, c.done AS done", (row) -> {
+            assertEquals(true, row.get("done"));
+            assertEquals(2L, row.get("count"));
+            assertEquals(0L, row.get("other"));
+        });
+    }
+
+    // two transactions change Order nodes, none changes an OTHER relationship
+    private void runSelectorChanges() {
+        db.execute("CREATE (:Customer {name:'Joe'})").close();
+        db.execute("CREATE (:Order {id:1})").close();
+        db.execute("MATCH (o:Order) SET o.status = 'open'").close();
+        db.execute("MATCH (c:Customer), (o:Order) CREATE (c)-[:PAID]->(o)").close();
+        db.execute("MATCH ()-[p:PAID]->() SET p.amount = 10").close();
+    }
 
+    @Test
+    public void testRegistrySnapshots() throws Exception {
+        TriggerRegistry before = Trigger.TriggerHandler.registry();
+        Trigger.TriggerHandler.add("snapshot","RETURN 1", null);
+        TriggerRegistry added = Trigger.TriggerHandler.registry();
+        assertTrue(added.version > before.version);
+        assertEquals(null, before.get("snapshot"));
+        assertTrue(added.hasActive("before"));
+        assertFalse(added.hasActive("after"));
 
+        Trigger.TriggerHandler.paused("snapshot");
+        TriggerRegistry paused = Trigger.TriggerHandler.registry();
+        assertFalse(paused.hasActive("before"));
+        assertFalse(added.get("snapshot").paused);
+        assertTrue(paused.get("snapshot").paused);
+    }
 }